@@ -1,16 +1,25 @@
 package com.serviceapp.config;
 
+import com.serviceapp.entity.util.PooledIdGenerator;
+import com.serviceapp.util.ReadWriteRoutingDataSource;
+import com.serviceapp.util.ReadWriteRoutingJpaDialect;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
 import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.data.web.config.EnableSpringDataWebSupport;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.jdbc.datasource.lookup.JndiDataSourceLookup;
 import org.springframework.orm.hibernate5.HibernateExceptionTranslator;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.validation.Validator;
@@ -18,6 +27,9 @@ import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 
 import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -28,6 +40,8 @@ import java.util.Properties;
 @EnableJpaRepositories("com.serviceapp.repository")
 @EnableTransactionManagement
 @EnableSpringDataWebSupport
+@EnableScheduling
+@PropertySource("classpath:movieApp.properties")
 public class ApplicationConfiguration {
 
     private static final String JNDI_NAME = "java:comp/env/jdbc/moviedb";
@@ -35,10 +49,48 @@ public class ApplicationConfiguration {
 
     private static final String HIBERNATE_DIALECT_PROP = "hibernate.dialect";
     private static final String HIBERNATE_DIALECT_VALUE = "org.hibernate.dialect.MySQLDialect";
+    private static final String HIBERNATE_BATCH_SIZE_PROP = "hibernate.jdbc.batch_size";
+    private static final String HIBERNATE_ORDER_INSERTS_PROP = "hibernate.order_inserts";
+    private static final String HIBERNATE_ORDER_INSERTS_VALUE = "true";
+    private static final String HIBERNATE_L2_CACHE_PROP = "hibernate.cache.use_second_level_cache";
+    private static final String HIBERNATE_L2_CACHE_VALUE = "true";
+    private static final String HIBERNATE_CACHE_FACTORY_PROP = "hibernate.cache.region.factory_class";
+    private static final String HIBERNATE_CACHE_FACTORY_VALUE = "org.hibernate.cache.jcache.JCacheRegionFactory";
+    private static final String HIBERNATE_CACHE_PROVIDER_PROP = "hibernate.javax.cache.provider";
+    private static final String HIBERNATE_CACHE_PROVIDER_VALUE = "org.ehcache.jsr107.EhcacheCachingProvider";
+    private static final String HIBERNATE_CACHE_URI_PROP = "hibernate.javax.cache.uri";
+    private static final String CACHE_CONFIG = "ehcache.xml";
+    private static final String HIBERNATE_STATISTICS_PROP = "hibernate.generate_statistics";
+    private static final String HIBERNATE_STATISTICS_VALUE = "true";
+    private static final String[] ID_ENTITIES = {"Movie", "Review", "User", "TokenRevocation"};
+    private Environment environment;
 
+    @Autowired
+    public ApplicationConfiguration(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Data source sending read-only transactions to replicas listed in <code>datasource.replicas</code> (comma
+     * separated JNDI names) and other ones to primary database. Without replicas everything goes to primary
+     *
+     * @return data source taking connection at the first statement, when transaction is known to be read-only or not
+     */
     @Bean
     public DataSource dataSource() {
-        return new JndiDataSourceLookup().getDataSource(JNDI_NAME);
+        JndiDataSourceLookup lookup = new JndiDataSourceLookup();
+        List<DataSource> replicas = new ArrayList<>();
+        for (String name : environment.getProperty("datasource.replicas", String[].class, new String[0])) {
+            if (!name.trim().isEmpty()) {
+                replicas.add(lookup.getDataSource(name.trim()));
+            }
+        }
+        ReadWriteRoutingDataSource.Selection selection = ReadWriteRoutingDataSource.Selection.valueOf(
+                environment.getProperty("datasource.replicas.selection", "ROUND_ROBIN"));
+        boolean readYourWrites = environment.getProperty("datasource.readYourWrites", Boolean.class, true);
+
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(
+                lookup.getDataSource(JNDI_NAME), replicas, selection, readYourWrites));
     }
 
     @Bean
@@ -53,6 +105,7 @@ public class ApplicationConfiguration {
 
         LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
         factoryBean.setJpaVendorAdapter(vendorAdapter);
+        factoryBean.setJpaDialect(new ReadWriteRoutingJpaDialect(dataSource()));
         factoryBean.setPackagesToScan(ENTITY_PACKAGES);
         factoryBean.setDataSource(dataSource());
         factoryBean.setJpaProperties(hibernateProps());
@@ -69,9 +122,36 @@ public class ApplicationConfiguration {
     private Properties hibernateProps() {
         Properties properties = new Properties();
         properties.put(HIBERNATE_DIALECT_PROP, HIBERNATE_DIALECT_VALUE);
+        properties.put(HIBERNATE_BATCH_SIZE_PROP, environment.getProperty("hibernate.batchSize", "50"));
+        properties.put(HIBERNATE_ORDER_INSERTS_PROP, HIBERNATE_ORDER_INSERTS_VALUE);
+        properties.put(HIBERNATE_L2_CACHE_PROP, HIBERNATE_L2_CACHE_VALUE);
+        properties.put(HIBERNATE_CACHE_FACTORY_PROP, HIBERNATE_CACHE_FACTORY_VALUE);
+        properties.put(HIBERNATE_CACHE_PROVIDER_PROP, HIBERNATE_CACHE_PROVIDER_VALUE);
+        properties.put(HIBERNATE_CACHE_URI_PROP, cacheConfigUri());
+        properties.put(HIBERNATE_STATISTICS_PROP, HIBERNATE_STATISTICS_VALUE);
+        properties.put(PooledIdGenerator.BLOCK_SIZE_SETTING, environment.getProperty("id.blockSize", "50"));
+        for (String entity : ID_ENTITIES) {
+            String blockSize = environment.getProperty("id.blockSize." + entity);
+            if (blockSize != null) {
+                properties.put(PooledIdGenerator.BLOCK_SIZE_SETTING + "." + entity, blockSize);
+            }
+        }
         return properties;
     }
 
+    /**
+     * Get location of second level cache configuration in the form accepted by cache provider
+     *
+     * @return URI of cache configuration file
+     */
+    private static String cacheConfigUri() {
+        try {
+            return new ClassPathResource(CACHE_CONFIG).getURI().toString();
+        } catch (IOException e) {
+            throw new IllegalStateException("Second level cache configuration " + CACHE_CONFIG + " not found", e);
+        }
+    }
+
     @Bean
     public static PropertySourcesPlaceholderConfigurer placeholderConfigurer() {
         return new PropertySourcesPlaceholderConfigurer();
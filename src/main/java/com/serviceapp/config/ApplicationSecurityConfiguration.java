@@ -3,6 +3,9 @@ package com.serviceapp.config;
 import com.serviceapp.filter.AuthFilter;
 import com.serviceapp.filter.JwtAuthFilter;
 import com.serviceapp.security.AccessDeniedHandler;
+import com.serviceapp.security.CachingAuthenticationProvider;
+import com.serviceapp.security.CredentialCache;
+import com.serviceapp.security.LoginThrottle;
 import com.serviceapp.security.RestAuthenticationEntryPoint;
 import com.serviceapp.security.UserDetailsServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,7 +25,6 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
-import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 
 import javax.servlet.Filter;
 
@@ -37,11 +39,16 @@ public class ApplicationSecurityConfiguration extends WebSecurityConfigurerAdapt
     private AuthenticationManager authenticationManager;
     private UserDetailsServiceImpl userDetailsService;
     private PasswordEncoder passwordEncoder;
+    private CredentialCache credentialCache;
+    private LoginThrottle loginThrottle;
 
     @Autowired
-    public ApplicationSecurityConfiguration(UserDetailsServiceImpl userDetailsService, PasswordEncoder passwordEncoder) {
+    public ApplicationSecurityConfiguration(UserDetailsServiceImpl userDetailsService, PasswordEncoder passwordEncoder,
+                                            CredentialCache credentialCache, LoginThrottle loginThrottle) {
         this.userDetailsService = userDetailsService;
         this.passwordEncoder = passwordEncoder;
+        this.credentialCache = credentialCache;
+        this.loginThrottle = loginThrottle;
     }
 
     @Bean
@@ -49,7 +56,7 @@ public class ApplicationSecurityConfiguration extends WebSecurityConfigurerAdapt
         DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
         provider.setUserDetailsService(userDetailsService);
         provider.setPasswordEncoder(passwordEncoder);
-        return provider;
+        return new CachingAuthenticationProvider(provider, credentialCache);
     }
 
     @Bean
@@ -70,22 +77,12 @@ public class ApplicationSecurityConfiguration extends WebSecurityConfigurerAdapt
 
     @Bean
     public Filter authFilter() throws Exception {
-        return new AuthFilter(authenticationManager());
+        return new AuthFilter(authenticationManager(), loginThrottle);
     }
 
     @Bean
-    public Filter adminTokenFilter() {
-        return new JwtAuthFilter(new AntPathRequestMatcher("/admin/**"), authenticationManager);
-    }
-
-    @Bean
-    public Filter accountTokenFilter() {
-        return new JwtAuthFilter(new AntPathRequestMatcher("/account/**"), authenticationManager);
-    }
-
-    @Bean
-    public Filter reviewTokenFilter() {
-        return new JwtAuthFilter(new AntPathRequestMatcher("/movies/**/post**"), authenticationManager);
+    public Filter tokenFilter() {
+        return new JwtAuthFilter(authenticationManager);
     }
 
     @Bean
@@ -102,13 +99,12 @@ public class ApplicationSecurityConfiguration extends WebSecurityConfigurerAdapt
                 .antMatchers("/admin**", "/admin/**").hasRole("ADMIN")
                 .antMatchers(HttpMethod.GET, "/movies**", "/movies/**", "/search**").permitAll()
                 .antMatchers(HttpMethod.POST, "/registration").permitAll()
+                .antMatchers(HttpMethod.GET, "/loginPage/refresh").permitAll()
                 .anyRequest().hasAnyRole("USER", "ADMIN")
                 .and()
                 .httpBasic().authenticationEntryPoint(new RestAuthenticationEntryPoint())
                 .and()
-                .addFilterBefore(adminTokenFilter(), UsernamePasswordAuthenticationFilter.class)
-                .addFilterBefore(accountTokenFilter(), UsernamePasswordAuthenticationFilter.class)
-                .addFilterBefore(reviewTokenFilter(), UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(tokenFilter(), UsernamePasswordAuthenticationFilter.class)
                 .addFilterAt(authFilter(), BasicAuthenticationFilter.class)
                 .exceptionHandling().accessDeniedHandler(accessDeniedHandler())
                 .and()
@@ -5,6 +5,8 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
@@ -21,6 +23,17 @@ import java.util.List;
 @ComponentScan("com.serviceapp.config")
 public class WebMvcConfiguration extends WebMvcConfigurerAdapter {
 
+    /**
+     * Timeout of asynchronous (streamed) responses in milliseconds
+     */
+    private static final long ASYNC_TIMEOUT = 60 * 60 * 1000;
+    /**
+     * Threads writing asynchronous (streamed) responses. Streamed exports are long, so requests over the limit wait
+     * in queue, and requests over queue capacity are rejected
+     */
+    private static final int ASYNC_THREADS = 4;
+    private static final int ASYNC_QUEUE_CAPACITY = 16;
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         registry.addResourceHandler("/resources/**").addResourceLocations("/resources/");
@@ -31,6 +44,27 @@ public class WebMvcConfiguration extends WebMvcConfigurerAdapter {
         registry.addMapping("/**").allowedOrigins("http://localhost:63342").allowedMethods("*");
     }
 
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(ASYNC_TIMEOUT);
+        configurer.setTaskExecutor(asyncTaskExecutor());
+    }
+
+    /**
+     * Bounded executor of asynchronous (streamed) responses, instead of default one starting a thread per response
+     *
+     * @return task executor
+     */
+    @Bean
+    public ThreadPoolTaskExecutor asyncTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(ASYNC_THREADS);
+        executor.setMaxPoolSize(ASYNC_THREADS);
+        executor.setQueueCapacity(ASYNC_QUEUE_CAPACITY);
+        executor.setThreadNamePrefix("mvc-async-");
+        return executor;
+    }
+
     @Override
     public void configureMessageConverters(List<HttpMessageConverter<?>> converters) {
         converters.add(new MappingJackson2HttpMessageConverter());
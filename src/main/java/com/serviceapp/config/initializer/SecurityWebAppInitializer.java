@@ -1,6 +1,7 @@
 package com.serviceapp.config.initializer;
 
 import com.serviceapp.filter.EncodingFilter;
+import com.serviceapp.filter.ReadYourWritesFilter;
 import org.springframework.security.web.context.AbstractSecurityWebApplicationInitializer;
 
 import javax.servlet.ServletContext;
@@ -15,6 +16,7 @@ public class SecurityWebAppInitializer extends AbstractSecurityWebApplicationIni
     @Override
     protected void beforeSpringSecurityFilterChain(ServletContext servletContext) {
         servletContext.addFilter(ENCODING_FILTER, EncodingFilter.class);
+        insertFilters(servletContext, new ReadYourWritesFilter());
     }
 
     /*
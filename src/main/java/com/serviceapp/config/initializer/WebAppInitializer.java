@@ -33,6 +33,7 @@ public class WebAppInitializer implements WebApplicationInitializer {
         newDispatcher.setThrowExceptionIfNoHandlerFound(true);
         ServletRegistration.Dynamic dispatcher = servletContext.addServlet("dispatcher", newDispatcher);
         dispatcher.setLoadOnStartup(1);
+        dispatcher.setAsyncSupported(true);
         dispatcher.addMapping("/");
 
     }
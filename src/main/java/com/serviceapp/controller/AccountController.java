@@ -76,7 +76,8 @@ public class AccountController {
     }
 
     /**
-     * Updates user account info. If user left password field empty it would mean the password remains the same
+     * Updates user account info. If user left password field empty it would mean the password remains the same.
+     * Changed password revokes all tokens of the user, the current one too, so user has to log in again
      *
      * @param user   <code>UserTransferObject</code> populated with user data to update
      * @param errors errors generated if user data validation failed
@@ -1,19 +1,34 @@
 package com.serviceapp.controller;
 
+import com.serviceapp.entity.ErrorEntity;
 import com.serviceapp.entity.Movie;
 import com.serviceapp.entity.Review;
 import com.serviceapp.entity.User;
 import com.serviceapp.entity.dto.MovieTransferObject;
 import com.serviceapp.entity.dto.UserTransferObject;
+import com.serviceapp.entity.util.CursorPage;
 import com.serviceapp.entity.util.MovieContainer;
 import com.serviceapp.entity.util.SortTypeUser;
 import com.serviceapp.exception.OnGetNullException;
+import com.serviceapp.security.CredentialCache;
+import com.serviceapp.security.LoginThrottle;
 import com.serviceapp.security.PasswordManager;
+import com.serviceapp.security.TokenAuthenticationManager;
 import com.serviceapp.security.securityEntity.UserDetailsImpl;
+import com.serviceapp.service.CustomTokenService;
+import com.serviceapp.service.EntityCacheService;
+import com.serviceapp.service.ExportService;
+import com.serviceapp.service.MovieImportService;
 import com.serviceapp.service.MovieService;
+import com.serviceapp.service.RatingRecountService;
+import com.serviceapp.service.RatingUpdateService;
 import com.serviceapp.service.ReviewService;
+import com.serviceapp.service.SearchResultCache;
+import com.serviceapp.service.TokenRevocationService;
 import com.serviceapp.service.UserService;
+import com.serviceapp.util.CursorHelper;
 import com.serviceapp.util.EntityHelper;
+import com.serviceapp.util.NdjsonHelper;
 import com.serviceapp.util.PrincipalUtil;
 import com.serviceapp.util.ResponseErrorHelper;
 import com.serviceapp.validation.marker.CreateUserValidation;
@@ -30,9 +45,15 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.groups.Default;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -59,14 +80,41 @@ public class AdminController {
     private ReviewService reviewService;
     private UserService userService;
     private PasswordManager passwordManager;
+    private RatingUpdateService ratingUpdateService;
+    private RatingRecountService ratingRecountService;
+    private SearchResultCache searchResultCache;
+    private CredentialCache credentialCache;
+    private TokenAuthenticationManager tokenAuthenticationManager;
+    private TokenRevocationService tokenRevocationService;
+    private CustomTokenService customTokenService;
+    private LoginThrottle loginThrottle;
+    private MovieImportService movieImportService;
+    private ExportService exportService;
+    private EntityCacheService entityCacheService;
 
     @Autowired
     public AdminController(MovieService movieService, ReviewService reviewService, UserService userService,
-                           PasswordManager passwordManager) {
+                           PasswordManager passwordManager, RatingUpdateService ratingUpdateService,
+                           RatingRecountService ratingRecountService, SearchResultCache searchResultCache,
+                           CredentialCache credentialCache, TokenAuthenticationManager tokenAuthenticationManager,
+                           TokenRevocationService tokenRevocationService, CustomTokenService customTokenService,
+                           LoginThrottle loginThrottle, MovieImportService movieImportService,
+                           ExportService exportService, EntityCacheService entityCacheService) {
         this.movieService = movieService;
         this.reviewService = reviewService;
         this.userService = userService;
         this.passwordManager = passwordManager;
+        this.ratingUpdateService = ratingUpdateService;
+        this.ratingRecountService = ratingRecountService;
+        this.searchResultCache = searchResultCache;
+        this.credentialCache = credentialCache;
+        this.tokenAuthenticationManager = tokenAuthenticationManager;
+        this.tokenRevocationService = tokenRevocationService;
+        this.customTokenService = customTokenService;
+        this.loginThrottle = loginThrottle;
+        this.movieImportService = movieImportService;
+        this.exportService = exportService;
+        this.entityCacheService = entityCacheService;
     }
 
     /**
@@ -106,6 +154,31 @@ public class AdminController {
         return new ResponseEntity<>("Movie " + added.getMovieName() + " created successfully", HttpStatus.OK);
     }
 
+    /**
+     * Create many movies at once. Movies are read from request body one by one and saved in batches, so body may be
+     * of any size. Each rejected movie is reported as a line of newline delimited JSON with its number in request
+     * body and validation errors. The last line reports number of imported and rejected movies (and error message if
+     * request body is not valid JSON).
+     *
+     * @param inputStream request body: JSON array of <code>MovieTransferObject</code> or newline delimited JSON (one
+     *                    <code>MovieTransferObject</code> per line)
+     * @return <code>ResponseEntity</code> with content (body and http status) depending on events occurred.
+     * Status codes:
+     * <li>200 - if import has been started. Body is import report</li>
+     */
+    @RequestMapping(value = "/managemovies/import", method = RequestMethod.POST)
+    public ResponseEntity importMovies(InputStream inputStream) {
+        StreamingResponseBody body = outputStream -> movieImportService.importMovies(inputStream, report -> {
+            try {
+                NdjsonHelper.writeLine(outputStream, report);
+            } catch (IOException e) {
+                // import goes on even if client is gone
+                LOGGER.debug("Unable to report import progress", e);
+            }
+        });
+        return ResponseEntity.ok().contentType(NdjsonHelper.NDJSON).body(body);
+    }
+
     /**
      * Get paged list of movies
      *
@@ -126,8 +199,9 @@ public class AdminController {
     }
 
     /**
-     * Recalculates movie rating. Movie rating is based on user rating sent with reviews. If no reviews found for
-     * particular movie - default <code>0</code> value is set.
+     * Recalculates movie rating and its aggregate from all movie reviews. Serves to repair rating that is
+     * incrementally updated with each review. Movie rating is based on user rating sent with reviews. If no reviews
+     * found for particular movie - default <code>0</code> value is set.
      *
      * @param movieId id of movie to recalculate rating
      * @return <code>ResponseEntity</code> with content (body and http status) depending on events occurred.
@@ -142,30 +216,55 @@ public class AdminController {
             return ResponseErrorHelper.responseError(HttpStatus.NOT_FOUND, "Can't find movie to update rating");
         }
 
-        Movie movieToUpdate = movieService.getMovie(movieId);
-        if (movieToUpdate == null) {
-            LOGGER.error("Unable to update movie. See all logs for details");
+        if (!ratingUpdateService.recountRating(movieId)) {
+            LOGGER.error("Unable to update movie. Please, see all logs for details");
             return ResponseErrorHelper.responseError(HttpStatus.INTERNAL_SERVER_ERROR, "Unable to update movie");
         }
 
-        List<Review> reviews = reviewService.getReviewsByMovieId(movieId);
-        if (reviews.isEmpty()) {
-            movieToUpdate.setRating(0d);
-            LOGGER.warn("No reviews found for movie " + movieToUpdate.getMovieName() + " with id "
-                    + movieToUpdate.getId() + ". So rating can't be updated. Rating set to 0.");
-        } else {
-            movieToUpdate.setRating(EntityHelper.recountRating(reviews));
-        }
-
-        Movie updated = movieService.updateMovie(movieToUpdate);
+        Movie updated = movieService.getMovie(movieId);
         if (updated == null) {
-            LOGGER.error("Unable to update movie. Please, see all logs for details");
-            return ResponseErrorHelper.responseError(HttpStatus.INTERNAL_SERVER_ERROR, "Unable to update movie");
+            LOGGER.error("Unable to get updated movie. Please, see all logs for details");
+            return ResponseErrorHelper.responseError(HttpStatus.INTERNAL_SERVER_ERROR, "Unable to get updated movie");
         }
 
         return new ResponseEntity<>(updated.getRating(), HttpStatus.OK);
     }
 
+    /**
+     * Recalculates ratings of all movies from their reviews. Progress is streamed as newline delimited JSON: one
+     * line per finished range of movie ids and the last line with <code>finished</code> flag (and error message if
+     * recount has been interrupted). Interrupted recount is resumed by the next request.
+     *
+     * @param restart if <code>true</code> - recount starts from scratch ignoring ranges finished by interrupted
+     *                recount
+     * @return <code>ResponseEntity</code> with content (body and http status) depending on events occurred.
+     * Status codes:
+     * <li>200 - if recount has been started. Body is recount progress</li>
+     * <li>409 - if recount is already running</li>
+     */
+    @RequestMapping(value = "/managemovies/recount", method = RequestMethod.POST)
+    public ResponseEntity recountRatings(@RequestParam(name = "restart", defaultValue = "false") boolean restart) {
+        if (ratingRecountService.isRunning()) {
+            return ResponseErrorHelper.responseError(HttpStatus.CONFLICT, "Rating recount is already running");
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            try {
+                ratingRecountService.recountAll(restart, progress -> {
+                    try {
+                        NdjsonHelper.writeLine(outputStream, progress);
+                    } catch (IOException e) {
+                        // recount goes on even if client is gone
+                        LOGGER.debug("Unable to report recount progress", e);
+                    }
+                });
+            } catch (IllegalStateException e) {
+                NdjsonHelper.writeLine(outputStream, new ErrorEntity(HttpStatus.CONFLICT, e.getMessage()));
+            }
+        };
+        return ResponseEntity.ok().contentType(NdjsonHelper.NDJSON).body(body);
+    }
+
     /**
      * Get movie data
      *
@@ -258,7 +357,7 @@ public class AdminController {
             LOGGER.error("No review to delete found. Please, see all logs for details");
             return ResponseErrorHelper.responseError(HttpStatus.INTERNAL_SERVER_ERROR, "No review to delete found");
         }
-        reviewService.deleteReview(reviewToDelete);
+        reviewService.deleteRatedReview(reviewToDelete);
 
         return new ResponseEntity<>("Review deleted", HttpStatus.OK);
     }
@@ -286,11 +385,19 @@ public class AdminController {
      * Get paged users list
      *
      * @param pageable <code>org.springframework.data.domain.Pageable</code> for convenient pagination and sorting
+     * @param after    cursor received with previous page to get users with keyset pagination, which costs the same
+     *                 for any depth. Empty value requests the first page sorted by the first sort order of
+     *                 <code>pageable</code> (id, login or name). Next pages keep sorting of the first one
      * @return <code>ResponseEntity</code> with content (body and http status) depending on events occurred.
      * <li>200 - if users retrieved successfully. Body will be a pageable users list</li>
+     * <li>400 - if cursor is invalid or users can't be paged by cursor with requested sorting</li>
      */
     @RequestMapping(value = "/users", method = RequestMethod.GET)
-    public ResponseEntity users(Pageable pageable) {
+    public ResponseEntity users(Pageable pageable, @RequestParam(name = "after", required = false) String after) {
+        if (after != null) {
+            return usersAfter(pageable.getSort(), after);
+        }
+
         int pageNumber = pageable.getPageNumber() < 0 ? 0 : pageable.getPageNumber();
         Sort sort = pageable.getSort();
         if (sort == null) {
@@ -312,6 +419,64 @@ public class AdminController {
         return new ResponseEntity<>(users, HttpStatus.OK);
     }
 
+    /**
+     * Get page of users with keyset pagination. Cursor holds sort property, sort direction and id and sort value of
+     * the last user of previous page
+     *
+     * @param sort  requested sorting. Used only for the first page
+     * @param after cursor received with previous page. Empty value requests the first page
+     * @return <code>ResponseEntity</code> with page of users and cursor to the next page, or 400 status code if
+     * cursor is invalid or sorting doesn't support keyset pagination
+     */
+    private ResponseEntity usersAfter(Sort sort, String after) {
+        String property = DEFAULT_USER_SORT_TYPE;
+        Sort.Direction direction = Sort.Direction.ASC;
+        Long lastId = null;
+        String lastValue = null;
+        try {
+            if (after.isEmpty()) {
+                if (sort != null && sort.iterator().hasNext()) {
+                    Sort.Order order = sort.iterator().next();
+                    property = order.getProperty();
+                    direction = order.getDirection();
+                }
+            } else {
+                String[] cursor = CursorHelper.decode(after, 4);
+                property = cursor[0];
+                direction = Sort.Direction.fromString(cursor[1]);
+                lastId = Long.valueOf(cursor[2]);
+                lastValue = cursor[3];
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseErrorHelper.responseError(HttpStatus.BAD_REQUEST, "Invalid cursor", e);
+        }
+        if (!SortTypeUser.isKeysetSortType(property)) {
+            return ResponseErrorHelper.responseError(HttpStatus.BAD_REQUEST,
+                    "Users sorted by " + property + " can't be paged by cursor");
+        }
+
+        List<User> users = userService.getUsersPageAfter(property, direction, lastValue, lastId,
+                USER_RECORDS_PER_PAGE + 1);
+        String next = null;
+        if (users.size() > USER_RECORDS_PER_PAGE) {
+            users = new ArrayList<>(users.subList(0, USER_RECORDS_PER_PAGE));
+            User last = users.get(users.size() - 1);
+            next = CursorHelper.encode(property, direction, last.getId(), keysetValue(last, property));
+        }
+        users.forEach(user -> user.setPassword(null));
+        return new ResponseEntity<>(new CursorPage<>(users, next), HttpStatus.OK);
+    }
+
+    private static String keysetValue(User user, String property) {
+        if (SortTypeUser.LOGIN.getValue().equals(property)) {
+            return user.getLogin();
+        }
+        if (SortTypeUser.NAME.getValue().equals(property)) {
+            return user.getName();
+        }
+        return String.valueOf(user.getId());
+    }
+
     /**
      * Make user admin (grant admin authorities)
      *
@@ -350,6 +515,10 @@ public class AdminController {
             LOGGER.error("User has not been updated. Please, see all logs for details");
             return ResponseErrorHelper.responseError(HttpStatus.INTERNAL_SERVER_ERROR, "User has not been updated");
         }
+        if (!updated.isAdmin()) {
+            // tokens issued before still grant admin role
+            tokenRevocationService.revoke(updated.getId());
+        }
 
         return new ResponseEntity<>(HttpStatus.OK);
     }
@@ -391,6 +560,9 @@ public class AdminController {
             LOGGER.error("User has not been updated. See all logs for details");
             return ResponseErrorHelper.responseError(HttpStatus.INTERNAL_SERVER_ERROR, "User has not been updated");
         }
+        if (updated.isBanned()) {
+            tokenRevocationService.revoke(updated.getId());
+        }
 
         return new ResponseEntity<>(HttpStatus.OK);
     }
@@ -439,6 +611,71 @@ public class AdminController {
         return new ResponseEntity<>(success, HttpStatus.OK);
     }
 
+    /**
+     * Export all movies as newline delimited JSON (one movie per line, ordered by id). Movies are read from database
+     * and sent one by one, so export of any size uses the same amount of memory.
+     *
+     * @return <code>ResponseEntity</code> with content (body and http status) depending on events occurred.
+     * Status codes:
+     * <li>200 - if export has been started. Body is movies list</li>
+     */
+    @RequestMapping(value = "/export/movies", method = RequestMethod.GET)
+    public ResponseEntity exportMovies() {
+        return export(Movie.class, movie -> {
+        });
+    }
+
+    /**
+     * Export all users as newline delimited JSON (one user per line, ordered by id). Passwords are not exported.
+     *
+     * @return <code>ResponseEntity</code> with content (body and http status) depending on events occurred.
+     * Status codes:
+     * <li>200 - if export has been started. Body is users list</li>
+     */
+    @RequestMapping(value = "/export/users", method = RequestMethod.GET)
+    public ResponseEntity exportUsers() {
+        return export(User.class, user -> user.setPassword(null));
+    }
+
+    /**
+     * Export all reviews of all movies as newline delimited JSON (one review per line, ordered by id).
+     *
+     * @return <code>ResponseEntity</code> with content (body and http status) depending on events occurred.
+     * Status codes:
+     * <li>200 - if export has been started. Body is reviews list</li>
+     */
+    @RequestMapping(value = "/export/reviews", method = RequestMethod.GET)
+    public ResponseEntity exportReviews() {
+        return export(Review.class, review -> {
+        });
+    }
+
+    /**
+     * Streams all entities of given type to client. Export stops when client closes connection
+     *
+     * @param type    entity class
+     * @param prepare applied to each entity before it is written (e.g. to hide sensitive data)
+     * @param <T>     entity type
+     * @return <code>ResponseEntity</code> with streamed body
+     */
+    private <T> ResponseEntity export(Class<T> type, Consumer<T> prepare) {
+        StreamingResponseBody body = outputStream -> {
+            try {
+                exportService.export(type, entity -> {
+                    prepare.accept(entity);
+                    try {
+                        NdjsonHelper.write(outputStream, entity);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                LOGGER.debug("{} export interrupted", type.getSimpleName(), e);
+            }
+        };
+        return ResponseEntity.ok().contentType(NdjsonHelper.NDJSON).body(body);
+    }
+
     /**
      * Used to indicate weather user is admin.
      *
@@ -449,4 +686,94 @@ public class AdminController {
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
+    /**
+     * Get metrics of movie rating updates (pending write-behind changes, flushed reviews, etc.)
+     *
+     * @return <code>ResponseEntity</code> with metric names and values and 200 status code
+     */
+    @RequestMapping(value = "/stats/ratings", method = RequestMethod.GET)
+    public ResponseEntity ratingStats() {
+        return new ResponseEntity<>(ratingUpdateService.getStats(), HttpStatus.OK);
+    }
+
+    /**
+     * Get metrics of movie search result cache (hits, misses, evictions, etc.)
+     *
+     * @return <code>ResponseEntity</code> with metric names and values and 200 status code
+     */
+    @RequestMapping(value = "/stats/search", method = RequestMethod.GET)
+    public ResponseEntity searchStats() {
+        return new ResponseEntity<>(searchResultCache.getStats(), HttpStatus.OK);
+    }
+
+    /**
+     * Get metrics of password hashing workers (queue depth, rejected hashes, hashing latency, etc.)
+     *
+     * @return <code>ResponseEntity</code> with metric names and values and 200 status code
+     */
+    @RequestMapping(value = "/stats/hashing", method = RequestMethod.GET)
+    public ResponseEntity hashingStats() {
+        return new ResponseEntity<>(passwordManager.getStats(), HttpStatus.OK);
+    }
+
+    /**
+     * Get metrics of HTTP Basic authentication cache (hits, misses, invalidations, etc.)
+     *
+     * @return <code>ResponseEntity</code> with metric names and values and 200 status code
+     */
+    @RequestMapping(value = "/stats/credentials", method = RequestMethod.GET)
+    public ResponseEntity credentialStats() {
+        return new ResponseEntity<>(credentialCache.getStats(), HttpStatus.OK);
+    }
+
+    /**
+     * Get metrics of verified token cache (hits, misses, evictions, etc.)
+     *
+     * @return <code>ResponseEntity</code> with metric names and values and 200 status code
+     */
+    @RequestMapping(value = "/stats/tokens", method = RequestMethod.GET)
+    public ResponseEntity tokenStats() {
+        return new ResponseEntity<>(tokenAuthenticationManager.getStats(), HttpStatus.OK);
+    }
+
+    /**
+     * Get metrics of token revocation checks (revoked users, filter hits, false positives, etc.)
+     *
+     * @return <code>ResponseEntity</code> with metric names and values and 200 status code
+     */
+    @RequestMapping(value = "/stats/revocations", method = RequestMethod.GET)
+    public ResponseEntity revocationStats() {
+        return new ResponseEntity<>(tokenRevocationService.getStats(), HttpStatus.OK);
+    }
+
+    /**
+     * Get metrics of issued tokens (logins with password and token refreshes)
+     *
+     * @return <code>ResponseEntity</code> with metric names and values and 200 status code
+     */
+    @RequestMapping(value = "/stats/logins", method = RequestMethod.GET)
+    public ResponseEntity loginStats() {
+        return new ResponseEntity<>(customTokenService.getStats(), HttpStatus.OK);
+    }
+
+    /**
+     * Get metrics of login throttling (tracked logins and addresses, throttled attempts, etc.)
+     *
+     * @return <code>ResponseEntity</code> with metric names and values and 200 status code
+     */
+    @RequestMapping(value = "/stats/throttle", method = RequestMethod.GET)
+    public ResponseEntity throttleStats() {
+        return new ResponseEntity<>(loginThrottle.getStats(), HttpStatus.OK);
+    }
+
+    /**
+     * Get metrics of second level cache of movies and users (hits, misses, etc.)
+     *
+     * @return <code>ResponseEntity</code> with metric names and values and 200 status code
+     */
+    @RequestMapping(value = "/stats/entities", method = RequestMethod.GET)
+    public ResponseEntity entityCacheStats() {
+        return new ResponseEntity<>(entityCacheService.getStats(), HttpStatus.OK);
+    }
+
 }
@@ -6,13 +6,15 @@ import com.serviceapp.util.ResponseErrorHelper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.*;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 
 /**
- * Handles login operation. Attempt login method is called to provide user with authentication token
+ * Handles login operation. Attempt login method is called to provide user with authentication token. Refresh method
+ * exchanges valid token for a new one without password
  */
 @RestController
 @RequestMapping("/loginPage")
@@ -49,4 +51,31 @@ public class LoginController {
         return new ResponseEntity<>(token, HttpStatus.OK);
     }
 
+    /**
+     * Exchanges valid token for a new one, so client doesn't have to send password again when token is about to
+     * expire
+     *
+     * @param authorizationHeader header containing valid token ("Bearer " followed by token)
+     * @return <code>ResponseEntity</code> with new user authorization token. Status codes:
+     * <li>200 - if token refreshed successfully</li>
+     * <li>401 - if token is missing, corrupted, expired or revoked</li>
+     */
+    @GetMapping("/refresh")
+    public ResponseEntity refresh(
+            @RequestHeader(name = "Authorization", required = false) String authorizationHeader) {
+        if (authorizationHeader == null || !authorizationHeader.startsWith("Bearer ")) {
+            return ResponseErrorHelper
+                    .responseError(HttpStatus.UNAUTHORIZED, "No authorization token found in request");
+        }
+
+        String token;
+        try {
+            token = tokenService.refreshToken(authorizationHeader.substring(7));
+        } catch (AuthenticationException e) {
+            return ResponseErrorHelper.responseError(HttpStatus.UNAUTHORIZED, e.getMessage());
+        }
+
+        return new ResponseEntity<>(token, HttpStatus.OK);
+    }
+
 }
@@ -2,13 +2,17 @@ package com.serviceapp.controller;
 
 import com.serviceapp.entity.Movie;
 import com.serviceapp.entity.Review;
+import com.serviceapp.entity.dto.MovieShortDto;
 import com.serviceapp.entity.dto.ReviewTransferObject;
+import com.serviceapp.entity.util.CursorPage;
 import com.serviceapp.entity.util.MovieContainer;
+import com.serviceapp.entity.util.ReviewContainer;
 import com.serviceapp.exception.OnGetNullException;
 import com.serviceapp.security.securityEntity.UserDetailsImpl;
 import com.serviceapp.service.MovieService;
 import com.serviceapp.service.ReviewService;
 import com.serviceapp.service.UserService;
+import com.serviceapp.util.CursorHelper;
 import com.serviceapp.util.EntityHelper;
 import com.serviceapp.util.PrincipalUtil;
 import com.serviceapp.util.ResponseErrorHelper;
@@ -19,6 +23,7 @@ import org.springframework.context.support.DefaultMessageSourceResolvable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -26,6 +31,7 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import java.sql.Date;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -38,6 +44,7 @@ public class MovieController {
 
     private static final Logger LOGGER = LogManager.getLogger();
     private static final Integer RECORDS_PER_PAGE = 6;
+    private static final String SLICE_MODE = "slice";
     private MovieService movieService;
     private ReviewService reviewService;
     private UserService userService;
@@ -50,17 +57,50 @@ public class MovieController {
     }
 
     /**
-     * Get paged list of movies
+     * Get paged list of movies. Only data displayed in movie lists is returned for each movie (see
+     * <code>MovieShortDto</code>), full movie data is available with movie details
      *
      * @param pageable <code>org.springframework.data.domain.Pageable</code> for convenient pagination and sorting
+     * @param mode     <code>slice</code> to get a slice of movies without total count of movies and pages (cheaper,
+     *                 suits infinite scroll). Any other value results in a page
+     * @param after    cursor received with previous page to get movies ordered by id with keyset pagination, which
+     *                 costs the same for any depth. Empty value requests the first page. If specified,
+     *                 <code>pageable</code> and <code>mode</code> are ignored
      * @return <code>ResponseEntity</code> with content (body and http status) depending on events occurred.
      * Status codes:
      * <li>200 - if movies retrieved successfully. Body will be a paged movies list</li>
+     * <li>400 - if cursor is invalid</li>
+     * <li>404 - if requested page is beyond the last one</li>
      */
     @GetMapping
-    public ResponseEntity paged(Pageable pageable) {
+    public ResponseEntity paged(Pageable pageable, @RequestParam(name = "mode", defaultValue = "page") String mode,
+                                @RequestParam(name = "after", required = false) String after) {
+        if (after != null) {
+            Long lastId;
+            try {
+                lastId = after.isEmpty() ? null : Long.valueOf(CursorHelper.decode(after, 1)[0]);
+            } catch (IllegalArgumentException e) {
+                return ResponseErrorHelper.responseError(HttpStatus.BAD_REQUEST, "Invalid cursor", e);
+            }
+            List<MovieShortDto> movies = movieService.findAllShortAfter(lastId, RECORDS_PER_PAGE + 1);
+            String next = null;
+            if (movies.size() > RECORDS_PER_PAGE) {
+                movies = new ArrayList<>(movies.subList(0, RECORDS_PER_PAGE));
+                next = CursorHelper.encode(movies.get(movies.size() - 1).getId());
+            }
+            return new ResponseEntity<>(new CursorPage<>(movies, next), HttpStatus.OK);
+        }
+
         int pageNumber = pageable.getPageNumber() < 0 ? 0 : pageable.getPageNumber();
-        Page<Movie> movies = movieService.findAllPaged(new PageRequest(pageNumber, RECORDS_PER_PAGE, null));
+        if (SLICE_MODE.equals(mode)) {
+            Slice<MovieShortDto> movies =
+                    movieService.findAllShortSliced(new PageRequest(pageNumber, RECORDS_PER_PAGE, null));
+            if (!movies.hasContent() && pageNumber > 0) {
+                return ResponseErrorHelper.responseError(HttpStatus.NOT_FOUND, "Sorry, there are no more movies");
+            }
+            return new ResponseEntity<>(movies, HttpStatus.OK);
+        }
+        Page<MovieShortDto> movies = movieService.findAllShortPaged(new PageRequest(pageNumber, RECORDS_PER_PAGE, null));
         if (movies.getTotalPages() - 1 < pageNumber) {
             return ResponseErrorHelper
                     .responseError(HttpStatus.NOT_FOUND, "Sorry, last page is " + (movies.getTotalPages()));
@@ -94,6 +134,38 @@ public class MovieController {
         return new ResponseEntity<>(container, HttpStatus.OK);
     }
 
+    /**
+     * Get page of movie reviews with their authors. Reviews are sorted from newest to oldest.
+     *
+     * @param movieId id of movie to get reviews for
+     * @param after   cursor received with movie data or with previous reviews page. If not specified - first page is
+     *                returned
+     * @return <code>ResponseEntity</code> with content (body and http status) depending on events occurred.
+     * <li>200 - if reviews retrieved successfully. Body contains cursor to the next page (if there is one)</li>
+     * <li>400 - if cursor is invalid</li>
+     * <li>404 - if no movie has been found</li>
+     * <li>500 - if some internal error that can't be handled at once occurred (primarily some severe db errors)</li>
+     */
+    @RequestMapping(value = "/{movieId}/reviews", method = RequestMethod.GET)
+    public ResponseEntity reviews(@PathVariable Long movieId,
+                                  @RequestParam(name = "after", required = false) String after) {
+        if (!movieService.movieExists(movieId)) {
+            return ResponseErrorHelper.responseError(HttpStatus.NOT_FOUND, "No such movie found");
+        }
+
+        ReviewContainer container;
+        try {
+            container = EntityHelper.completeReviews(movieId, after, reviewService, userService);
+        } catch (IllegalArgumentException e) {
+            return ResponseErrorHelper.responseError(HttpStatus.BAD_REQUEST, "Invalid cursor", e);
+        } catch (OnGetNullException e) {
+            LOGGER.error("Unable to get reviews", e);
+            return ResponseErrorHelper.responseError(HttpStatus.INTERNAL_SERVER_ERROR,
+                    e.getMessage() + " Some internal problems occurred");
+        }
+        return new ResponseEntity<>(container, HttpStatus.OK);
+    }
+
     /**
      * Performs review posting and accompanied functions (recalculating movie rating)
      *
@@ -131,21 +203,11 @@ public class MovieController {
         review.setMovieId(movieId);
         review.setUserId(currentUser.getId());
         review.setPostDate(postDate);
-        Review createdReview = reviewService.createReview(review);
+        Review createdReview = reviewService.createRatedReview(review);
         if (createdReview == null) {
             LOGGER.error("Review is not created. Please, see all logs for details");
             return ResponseErrorHelper.responseError(HttpStatus.INTERNAL_SERVER_ERROR, "Review is not created");
         }
-        try {
-            Movie updated = updateMovieRating(movieId, reviewObject.getRating());
-            if (updated == null) {
-                LOGGER.error("Rating not updated. Please, see all logs for details");
-                return ResponseErrorHelper.responseError(HttpStatus.INTERNAL_SERVER_ERROR, "Rating not updated");
-            }
-        } catch (OnGetNullException e) {
-            LOGGER.error("Rating not updated", e);
-            return ResponseErrorHelper.responseError(HttpStatus.INTERNAL_SERVER_ERROR, "Rating not updated", e);
-        }
         MovieContainer container;
         try {
             container = EntityHelper.completeMovie(movieId, movieService, reviewService, userService);
@@ -167,30 +229,4 @@ public class MovieController {
         return movieService.findTopRated();
     }
 
-    /**
-     * Updates movie current rating taking in account new rating put by user
-     *
-     * @param movieId id of movie to update rating
-     * @param rating  new rating set by user
-     * @return updated <code>Movie</code> object
-     */
-    private Movie updateMovieRating(Long movieId, Integer rating) throws OnGetNullException {
-        Movie movieToUpdate;
-        List<Review> reviews;
-        try {
-            movieToUpdate = movieService.getMovie(movieId);
-            reviews = reviewService.getReviewsByMovieId(movieId);
-        } catch (Exception e) {
-            throw new OnGetNullException(e);
-        }
-
-        if (!reviews.isEmpty()) {
-            movieToUpdate.setRating(EntityHelper.recountRating(reviews, rating));
-            return movieService.updateMovie(movieToUpdate);
-        } else {
-            movieToUpdate.setRating(Double.valueOf(rating));
-            return movieService.updateMovie(movieToUpdate);
-        }
-    }
-
 }
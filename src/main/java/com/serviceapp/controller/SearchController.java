@@ -1,16 +1,20 @@
 package com.serviceapp.controller;
 
-import com.serviceapp.entity.Movie;
+import com.serviceapp.entity.dto.MovieShortDto;
+import com.serviceapp.entity.dto.MovieSuggestionDto;
 import com.serviceapp.service.MovieService;
 import com.serviceapp.util.ResponseErrorHelper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * Controller for performing movies search. Available to all users
  */
@@ -19,6 +23,8 @@ import org.springframework.web.bind.annotation.*;
 public class SearchController {
 
     private static final Integer RECORDS_PER_PAGE = 6;
+    private static final Integer SUGGESTIONS_LIMIT = 10;
+    private static final String SLICE_MODE = "slice";
     private MovieService movieService;
 
     @Autowired
@@ -31,13 +37,26 @@ public class SearchController {
      *
      * @param title    title of movie to look for
      * @param pageable <code>org.springframework.data.domain.Pageable</code> for convenient pagination and sorting
-     * @return <code>Page</code> of <code>Movies</code> objects if any found with specified title
+     * @param mode     <code>slice</code> to get a slice of found movies without total count of movies and pages
+     *                 (cheaper, suits infinite scroll). Any other value results in a page
+     * @return <code>Page</code> (or <code>Slice</code>) of <code>MovieShortDto</code> objects (only data displayed in
+     * movie lists) if any found with specified title
      */
     @GetMapping
-    public ResponseEntity search(@RequestParam(name = "t", defaultValue = " ") String title, Pageable pageable) {
+    public ResponseEntity search(@RequestParam(name = "t", defaultValue = " ") String title, Pageable pageable,
+                                 @RequestParam(name = "mode", defaultValue = "page") String mode) {
         int pageNumber = pageable.getPageNumber() < 0 ? 0 : pageable.getPageNumber();
         title = (title == null) ? " " : (title.isEmpty() ? " " : title);
-        Page<Movie> movies = movieService.findMovieByTitle(title, new PageRequest(pageNumber, RECORDS_PER_PAGE, null));
+        if (SLICE_MODE.equals(mode)) {
+            Slice<MovieShortDto> movies = movieService
+                    .findMovieShortByTitleSliced(title, new PageRequest(pageNumber, RECORDS_PER_PAGE, null));
+            if (movies != null && !movies.hasContent() && pageNumber > 0) {
+                return ResponseErrorHelper.responseError(HttpStatus.NOT_FOUND, "Sorry, there are no more movies");
+            }
+            return new ResponseEntity<>(movies, HttpStatus.OK);
+        }
+        Page<MovieShortDto> movies =
+                movieService.findMovieShortByTitle(title, new PageRequest(pageNumber, RECORDS_PER_PAGE, null));
         if (movies != null) {
             if (movies.getTotalPages() - 1 < pageNumber && movies.getTotalPages() != 0) {
                 return ResponseErrorHelper
@@ -47,4 +66,18 @@ public class SearchController {
         return new ResponseEntity<>(movies, HttpStatus.OK);
     }
 
+    /**
+     * Method returns titles of movies which have a word starting with <code>query</code> parameter. Used for
+     * autocomplete while user types movie title
+     *
+     * @param query beginning of movie title word to look for
+     * @return <code>List</code> of up to 10 suggestions (movie id, title and rating) ranked by rating. Empty if query
+     * is blank
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity suggest(@RequestParam(name = "q", defaultValue = "") String query) {
+        List<MovieSuggestionDto> suggestions = movieService.suggestByTitle(query, SUGGESTIONS_LIMIT);
+        return new ResponseEntity<>(suggestions, HttpStatus.OK);
+    }
+
 }
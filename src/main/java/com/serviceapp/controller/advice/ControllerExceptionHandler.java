@@ -1,5 +1,6 @@
 package com.serviceapp.controller.advice;
 
+import com.serviceapp.exception.HashCapacityExceededException;
 import com.serviceapp.util.ResponseErrorHelper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -14,6 +15,7 @@ import org.springframework.web.method.annotation.MethodArgumentTypeMismatchExcep
 import org.springframework.web.servlet.NoHandlerFoundException;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 /**
  * Handles exceptions caught in controllers
@@ -59,6 +61,13 @@ public class ControllerExceptionHandler {
         return ResponseErrorHelper.responseError(HttpStatus.BAD_REQUEST, "Failed to read data", ex);
     }
 
+    @ExceptionHandler(HashCapacityExceededException.class)
+    public ResponseEntity hashCapacityExceeded(HttpServletResponse response, HashCapacityExceededException ex) {
+        LOGGER.warn("Password hashing capacity exceeded");
+        response.setHeader("Retry-After", HashCapacityExceededException.RETRY_AFTER_SECONDS);
+        return ResponseErrorHelper.responseError(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+    }
+
     @ExceptionHandler(Throwable.class)
     public ResponseEntity getException(HttpServletRequest request, Exception ex) {
         LOGGER.error("Something bad happened", ex);
@@ -2,27 +2,35 @@ package com.serviceapp.entity;
 
 import com.serviceapp.validation.annotation.ValidDate;
 import com.serviceapp.validation.annotation.ValidMovieTransferObjectURL;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.GenericGenerator;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
 import javax.validation.constraints.*;
 import java.sql.Date;
 
 /**
- * Class representing <code>Movie</code> entity.
+ * Class representing <code>Movie</code> entity. Kept in second level cache.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(indexes = @Index(name = "idx_movie_rating_id", columnList = "rating, id"))
 public class Movie {
 
     /**
      * Movie id from database
      */
     @Id
-    @GeneratedValue(generator = "increment")
-    @GenericGenerator(name = "increment", strategy = "increment")
+    @GeneratedValue(generator = "pooled")
+    @GenericGenerator(name = "pooled", strategy = "com.serviceapp.entity.util.PooledIdGenerator")
     private Long id;
 
     /**
@@ -64,13 +72,26 @@ public class Movie {
     private String trailerURL;
 
     /**
-     * Movie rating calculated based on users reviews
+     * Movie rating calculated based on users reviews. Together with rating aggregate it is changed only with atomic
+     * update statements (see <code>MovieRepository</code>), so saving the entity never overwrites it with stale value.
      */
     @Min(value = 0)
     @Max(value = 10)
-    @Column(name = "rating")
+    @Column(name = "rating", updatable = false)
     private Double rating;
 
+    /**
+     * Number of reviews movie rating is calculated from
+     */
+    @Column(name = "reviewcount", updatable = false)
+    private Long reviewCount = 0L;
+
+    /**
+     * Sum of ratings given with all reviews of the movie
+     */
+    @Column(name = "ratingsum", updatable = false)
+    private Long ratingSum = 0L;
+
     /**
      * Some description for the movie
      */
@@ -140,6 +161,22 @@ public class Movie {
         this.rating = rating;
     }
 
+    public Long getReviewCount() {
+        return reviewCount;
+    }
+
+    public void setReviewCount(Long reviewCount) {
+        this.reviewCount = reviewCount;
+    }
+
+    public Long getRatingSum() {
+        return ratingSum;
+    }
+
+    public void setRatingSum(Long ratingSum) {
+        this.ratingSum = ratingSum;
+    }
+
     public String getDescription() {
         return description;
     }
@@ -158,6 +195,8 @@ public class Movie {
                 ", posterURL='" + posterURL + '\'' +
                 ", trailerURL='" + trailerURL + '\'' +
                 ", rating=" + rating +
+                ", reviewCount=" + reviewCount +
+                ", ratingSum=" + ratingSum +
                 ", description='" + description + '\'' +
                 '}';
     }
@@ -0,0 +1,91 @@
+package com.serviceapp.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.sql.Timestamp;
+
+/**
+ * Class representing range of movie ids which ratings have been recalculated by bulk rating recount. Serves as
+ * checkpoint so interrupted recount can be resumed skipping finished ranges.
+ */
+@Entity
+public class RatingRecountRange {
+
+    /**
+     * First movie id of the range
+     */
+    @Id
+    @Column(name = "rangestart")
+    private Long rangeStart;
+
+    /**
+     * Last movie id of the range (inclusive)
+     */
+    @Column(name = "rangeend")
+    private Long rangeEnd;
+
+    /**
+     * Number of movies which ratings have been recalculated
+     */
+    @Column(name = "movies")
+    private Integer movies;
+
+    /**
+     * Time when recount of the range has been finished
+     */
+    @Column(name = "finished")
+    private Timestamp finished;
+
+    public RatingRecountRange() {
+    }
+
+    public RatingRecountRange(Long rangeStart, Long rangeEnd, Integer movies) {
+        this.rangeStart = rangeStart;
+        this.rangeEnd = rangeEnd;
+        this.movies = movies;
+        this.finished = new Timestamp(System.currentTimeMillis());
+    }
+
+    public Long getRangeStart() {
+        return rangeStart;
+    }
+
+    public void setRangeStart(Long rangeStart) {
+        this.rangeStart = rangeStart;
+    }
+
+    public Long getRangeEnd() {
+        return rangeEnd;
+    }
+
+    public void setRangeEnd(Long rangeEnd) {
+        this.rangeEnd = rangeEnd;
+    }
+
+    public Integer getMovies() {
+        return movies;
+    }
+
+    public void setMovies(Integer movies) {
+        this.movies = movies;
+    }
+
+    public Timestamp getFinished() {
+        return finished;
+    }
+
+    public void setFinished(Timestamp finished) {
+        this.finished = finished;
+    }
+
+    @Override
+    public String toString() {
+        return "RatingRecountRange{" +
+                "rangeStart=" + rangeStart +
+                ", rangeEnd=" + rangeEnd +
+                ", movies=" + movies +
+                ", finished=" + finished +
+                '}';
+    }
+}
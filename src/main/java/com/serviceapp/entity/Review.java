@@ -6,6 +6,8 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
 import javax.validation.constraints.*;
 import java.sql.Date;
 
@@ -13,14 +15,15 @@ import java.sql.Date;
  * Class representing <code>Review</code> entity.
  */
 @Entity
+@Table(indexes = @Index(name = "idx_review_movie_postdate_id", columnList = "movieID, postdate, id"))
 public class Review {
 
     /**
      * Review id from database
      */
     @Id
-    @GeneratedValue(generator = "increment")
-    @GenericGenerator(name = "increment", strategy = "increment")
+    @GeneratedValue(generator = "pooled")
+    @GenericGenerator(name = "pooled", strategy = "com.serviceapp.entity.util.PooledIdGenerator")
     private Long id;
 
     /**
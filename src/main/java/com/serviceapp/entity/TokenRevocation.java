@@ -0,0 +1,73 @@
+package com.serviceapp.entity;
+
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.sql.Timestamp;
+
+/**
+ * Class representing revocation of user tokens. All tokens of the user issued before revocation time are not valid
+ * anymore (e.g. user has been banned).
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_tokenrevocation_revokedbefore", columnList = "revokedbefore"))
+public class TokenRevocation {
+
+    /**
+     * Revocation id from database
+     */
+    @Id
+    @GeneratedValue(generator = "pooled")
+    @GenericGenerator(name = "pooled", strategy = "com.serviceapp.entity.util.PooledIdGenerator")
+    private Long id;
+
+    /**
+     * id of user whose tokens are revoked
+     */
+    @Column(name = "userID")
+    private Long userId;
+
+    /**
+     * Tokens issued before this time are revoked
+     */
+    @Column(name = "revokedbefore")
+    private Timestamp revokedBefore;
+
+    public TokenRevocation() {
+    }
+
+    public TokenRevocation(Long userId, Timestamp revokedBefore) {
+        this.userId = userId;
+        this.revokedBefore = revokedBefore;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Timestamp getRevokedBefore() {
+        return revokedBefore;
+    }
+
+    public void setRevokedBefore(Timestamp revokedBefore) {
+        this.revokedBefore = revokedBefore;
+    }
+
+}
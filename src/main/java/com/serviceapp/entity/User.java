@@ -1,27 +1,43 @@
 package com.serviceapp.entity;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
 import javax.validation.constraints.Size;
 
 /**
- * Class representing <code>User</code> entity.
+ * Class representing <code>User</code> entity. Kept in second level cache, which also maps logins to user ids.
+ * Cache is local to each node, so users expire from it after a minute and users with tokens revoked on other nodes
+ * are evicted by <code>TokenRevocationService</code>.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NaturalIdCache
+@Table(indexes = {
+        @Index(name = "idx_user_login_id", columnList = "login, id"),
+        @Index(name = "idx_user_username_id", columnList = "username, id")
+})
 public class User {
 
     /**
      * User id from database
      */
     @Id
-    @GeneratedValue(generator = "increment")
-    @GenericGenerator(name = "increment", strategy = "increment")
+    @GeneratedValue(generator = "pooled")
+    @GenericGenerator(name = "pooled", strategy = "com.serviceapp.entity.util.PooledIdGenerator")
     private Long id;
 
     /**
@@ -37,6 +53,7 @@ public class User {
      * Login is used to log in the service.
      * Only visible to admin.
      */
+    @NaturalId(mutable = true)
     @NotNull
     @Size(min = 3, max = 60, message = "{login.size}")
     @Pattern(regexp = "^[_A-Za-z0-9-+]+(\\.[_A-Za-z0-9-]+)*@[A-Za-z0-9-]+(\\.[A-Za-z0-9]+)*(\\.[A-Za-z]{2,})$",
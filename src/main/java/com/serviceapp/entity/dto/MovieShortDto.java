@@ -0,0 +1,83 @@
+package com.serviceapp.entity.dto;
+
+import java.sql.Date;
+
+/**
+ * Helper class used as DTO(shortened) for movies in movie lists. Holds only data needed to display movie card,
+ * full movie data is available with movie details.
+ */
+public class MovieShortDto {
+
+    private Long id;
+    private String movieName;
+    private String director;
+    private Date releaseDate;
+    private Double rating;
+    private String posterURL;
+
+    public MovieShortDto() {
+    }
+
+    /**
+     * Constructor used by queries. Release date is declared as <code>java.util.Date</code> because Hibernate
+     * resolves constructor by that type for date columns
+     */
+    public MovieShortDto(Long id, String movieName, String director, java.util.Date releaseDate, Double rating,
+                         String posterURL) {
+        this.id = id;
+        this.movieName = movieName;
+        this.director = director;
+        this.releaseDate = releaseDate == null ? null : new Date(releaseDate.getTime());
+        this.rating = rating;
+        this.posterURL = posterURL;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getMovieName() {
+        return movieName;
+    }
+
+    public void setMovieName(String movieName) {
+        this.movieName = movieName;
+    }
+
+    public String getDirector() {
+        return director;
+    }
+
+    public void setDirector(String director) {
+        this.director = director;
+    }
+
+    public Date getReleaseDate() {
+        return releaseDate;
+    }
+
+    public void setReleaseDate(Date releaseDate) {
+        this.releaseDate = releaseDate;
+    }
+
+    public Double getRating() {
+        return rating;
+    }
+
+    public void setRating(Double rating) {
+        this.rating = rating;
+    }
+
+    public String getPosterURL() {
+        return posterURL;
+    }
+
+    public void setPosterURL(String posterURL) {
+        this.posterURL = posterURL;
+    }
+
+}
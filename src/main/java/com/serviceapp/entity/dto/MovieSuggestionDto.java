@@ -0,0 +1,45 @@
+package com.serviceapp.entity.dto;
+
+/**
+ * Helper class used as DTO for movie title suggestions (autocomplete).
+ */
+public class MovieSuggestionDto {
+
+    private Long id;
+    private String movieName;
+    private Double rating;
+
+    public MovieSuggestionDto() {
+    }
+
+    public MovieSuggestionDto(Long id, String movieName, Double rating) {
+        this.id = id;
+        this.movieName = movieName;
+        this.rating = rating;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getMovieName() {
+        return movieName;
+    }
+
+    public void setMovieName(String movieName) {
+        this.movieName = movieName;
+    }
+
+    public Double getRating() {
+        return rating;
+    }
+
+    public void setRating(Double rating) {
+        this.rating = rating;
+    }
+
+}
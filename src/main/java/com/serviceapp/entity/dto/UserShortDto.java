@@ -24,6 +24,12 @@ public class UserShortDto {
     public UserShortDto() {
     }
 
+    public UserShortDto(Long id, String name, Boolean banned) {
+        this.id = id;
+        this.name = name;
+        this.banned = banned != null && banned;
+    }
+
     public boolean isBanned() {
         return banned;
     }
@@ -0,0 +1,41 @@
+package com.serviceapp.entity.util;
+
+import java.util.List;
+
+/**
+ * Class stores one page of records fetched with keyset (cursor) pagination and cursor pointing to the next page
+ *
+ * @param <T> type of records
+ */
+public class CursorPage<T> {
+
+    private List<T> content;
+    private String next;
+
+    public CursorPage() {
+    }
+
+    public CursorPage(List<T> content, String next) {
+        this.content = content;
+        this.next = next;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public void setContent(List<T> content) {
+        this.content = content;
+    }
+
+    /**
+     * Cursor to request the next page. <code>null</code> if there are no more records
+     */
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+}
@@ -0,0 +1,82 @@
+package com.serviceapp.entity.util;
+
+import java.util.List;
+
+/**
+ * Class stores result of bulk movie import. Reported for each rejected record and once at the end of import.
+ */
+public class ImportReport {
+
+    private Integer record;
+    private List<String> errors;
+    private long imported;
+    private long rejected;
+    private boolean finished;
+    private String error;
+
+    /**
+     * Number of rejected record in imported data (starting from 1)
+     */
+    public Integer getRecord() {
+        return record;
+    }
+
+    public void setRecord(Integer record) {
+        this.record = record;
+    }
+
+    /**
+     * Reasons why record has been rejected
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<String> errors) {
+        this.errors = errors;
+    }
+
+    /**
+     * Number of movies saved so far
+     */
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    /**
+     * Number of records rejected so far
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    /**
+     * <code>true</code> for the last report of import
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public void setFinished(boolean finished) {
+        this.finished = finished;
+    }
+
+    /**
+     * Error message if import has been interrupted (e.g. malformed JSON). Movies imported before are kept
+     */
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
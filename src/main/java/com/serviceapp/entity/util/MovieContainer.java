@@ -14,6 +14,7 @@ public class MovieContainer {
     private MovieTransferObject movieTransferObject;
     private List<Review> reviews;
     private List<UserShortDto> users;
+    private String nextReviews;
 
     public MovieTransferObject getMovieTransferObject() {
         return movieTransferObject;
@@ -38,4 +39,15 @@ public class MovieContainer {
     public void setUsers(List<UserShortDto> users) {
         this.users = users;
     }
+
+    /**
+     * Cursor to request the next page of movie reviews. <code>null</code> if all reviews are already included
+     */
+    public String getNextReviews() {
+        return nextReviews;
+    }
+
+    public void setNextReviews(String nextReviews) {
+        this.nextReviews = nextReviews;
+    }
 }
@@ -0,0 +1,132 @@
+package com.serviceapp.entity.util;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.hibernate.jdbc.AbstractReturningWork;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Id generator which is safe to use from several application instances sharing one database. Ids are reserved in
+ * blocks: each instance takes the next block of ids from generator table (one row per entity table) with a single
+ * update and hands out ids of the block from memory. Ids are unique across instances, but not necessarily ordered by
+ * creation time.
+ * <p>
+ * Block size is taken from <code>com.serviceapp.id.block_size.&lt;Entity&gt;</code> Hibernate setting (entity class
+ * simple name), falling back to <code>com.serviceapp.id.block_size</code>, then to 50.
+ * <p>
+ * When entity has no row in generator table yet, row is created with the id next to the greatest existing id of the
+ * entity, so generator can replace <code>increment</code> generator on existing data. Row created concurrently by
+ * another instance is used as is, any other failure to create the row fails id generation.
+ */
+public class PooledIdGenerator extends TableGenerator {
+
+    public static final String BLOCK_SIZE_SETTING = "com.serviceapp.id.block_size";
+    private static final int DEFAULT_BLOCK_SIZE = 50;
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23";
+    private String entityTable;
+    private String entityColumn;
+    private volatile boolean initialized;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Map settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+        String entity = params.getProperty(IdentifierGenerator.JPA_ENTITY_NAME);
+        Object blockSize = settings.get(BLOCK_SIZE_SETTING + "." + entity);
+        if (blockSize == null) {
+            blockSize = settings.get(BLOCK_SIZE_SETTING);
+        }
+        params.setProperty(INCREMENT_PARAM, String.valueOf(blockSize == null ? DEFAULT_BLOCK_SIZE : blockSize));
+        params.setProperty(OPT_PARAM, "pooled-lo");
+        params.setProperty(CONFIG_PREFER_SEGMENT_PER_ENTITY, "true");
+        entityTable = params.getProperty(PersistentIdentifierGenerator.TABLE);
+        entityColumn = params.getProperty(PersistentIdentifierGenerator.PK);
+        super.configure(type, params, serviceRegistry);
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object obj) {
+        if (!initialized) {
+            initializeSegment(session);
+        }
+        return super.generate(session, obj);
+    }
+
+    /**
+     * Creates row of the entity in generator table if there is no such row yet. Runs in separate transaction
+     *
+     * @param session current session
+     */
+    private synchronized void initializeSegment(SharedSessionContractImplementor session) {
+        if (initialized) {
+            return;
+        }
+        session.getTransactionCoordinator().createIsolationDelegate().delegateWork(
+                new AbstractReturningWork<Void>() {
+                    @Override
+                    public Void execute(Connection connection) throws SQLException {
+                        if (segmentExists(connection)) {
+                            return null;
+                        }
+                        String insert = "insert into " + getTableName() + " (" + getSegmentColumnName() + ", "
+                                + getValueColumnName() + ") select ?, coalesce(max(" + entityColumn + "), 0) + 1 from "
+                                + entityTable;
+                        try (PreparedStatement statement = connection.prepareStatement(insert)) {
+                            statement.setString(1, getSegmentValue());
+                            statement.executeUpdate();
+                        } catch (SQLException e) {
+                            // row may have been created concurrently by another instance, any other error is fatal
+                            if (!isConstraintViolation(e) || !segmentExists(connection)) {
+                                throw new HibernateException("Could not create row " + getSegmentValue() + " in "
+                                        + getTableName(), e);
+                            }
+                        }
+                        return null;
+                    }
+                }, true);
+        initialized = true;
+    }
+
+    /**
+     * Checks whether generator table has row of the entity
+     *
+     * @param connection connection to use
+     * @return <code>true</code> if row exists
+     * @throws SQLException if query fails
+     */
+    private boolean segmentExists(Connection connection) throws SQLException {
+        String select = "select count(*) from " + getTableName() + " where " + getSegmentColumnName() + " = ?";
+        try (PreparedStatement statement = connection.prepareStatement(select)) {
+            statement.setString(1, getSegmentValue());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getLong(1) > 0;
+            }
+        }
+    }
+
+    /**
+     * Checks whether statement failed on integrity constraint, e.g. duplicate key (SQLState class 23)
+     *
+     * @param e exception thrown by statement
+     * @return <code>true</code> if constraint has been violated
+     */
+    private static boolean isConstraintViolation(SQLException e) {
+        return e instanceof SQLIntegrityConstraintViolationException
+                || (e.getSQLState() != null && e.getSQLState().startsWith(INTEGRITY_CONSTRAINT_VIOLATION));
+    }
+
+}
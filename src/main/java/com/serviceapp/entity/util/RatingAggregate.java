@@ -0,0 +1,36 @@
+package com.serviceapp.entity.util;
+
+/**
+ * Class stores rating of a movie together with rating aggregate it is calculated from
+ */
+public class RatingAggregate {
+
+    private final Long movieId;
+    private final Double rating;
+    private final Long reviewCount;
+    private final Long ratingSum;
+
+    public RatingAggregate(Long movieId, Double rating, Long reviewCount, Long ratingSum) {
+        this.movieId = movieId;
+        this.rating = rating;
+        this.reviewCount = reviewCount;
+        this.ratingSum = ratingSum;
+    }
+
+    public Long getMovieId() {
+        return movieId;
+    }
+
+    public Double getRating() {
+        return rating;
+    }
+
+    public Long getReviewCount() {
+        return reviewCount;
+    }
+
+    public Long getRatingSum() {
+        return ratingSum;
+    }
+
+}
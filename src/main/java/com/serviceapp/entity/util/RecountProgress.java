@@ -0,0 +1,96 @@
+package com.serviceapp.entity.util;
+
+/**
+ * Class stores progress of bulk rating recount. Reported after each finished range of movie ids and once at the end
+ * of recount.
+ */
+public class RecountProgress {
+
+    private Long rangeStart;
+    private Long rangeEnd;
+    private int movies;
+    private int rangesDone;
+    private int rangesTotal;
+    private long moviesDone;
+    private boolean finished;
+    private String error;
+
+    public Long getRangeStart() {
+        return rangeStart;
+    }
+
+    public void setRangeStart(Long rangeStart) {
+        this.rangeStart = rangeStart;
+    }
+
+    public Long getRangeEnd() {
+        return rangeEnd;
+    }
+
+    public void setRangeEnd(Long rangeEnd) {
+        this.rangeEnd = rangeEnd;
+    }
+
+    /**
+     * Number of movies recalculated in reported range
+     */
+    public int getMovies() {
+        return movies;
+    }
+
+    public void setMovies(int movies) {
+        this.movies = movies;
+    }
+
+    /**
+     * Number of finished ranges including ones finished before recount has been resumed
+     */
+    public int getRangesDone() {
+        return rangesDone;
+    }
+
+    public void setRangesDone(int rangesDone) {
+        this.rangesDone = rangesDone;
+    }
+
+    public int getRangesTotal() {
+        return rangesTotal;
+    }
+
+    public void setRangesTotal(int rangesTotal) {
+        this.rangesTotal = rangesTotal;
+    }
+
+    /**
+     * Number of movies recalculated by this run
+     */
+    public long getMoviesDone() {
+        return moviesDone;
+    }
+
+    public void setMoviesDone(long moviesDone) {
+        this.moviesDone = moviesDone;
+    }
+
+    /**
+     * <code>true</code> for the last progress report of recount
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public void setFinished(boolean finished) {
+        this.finished = finished;
+    }
+
+    /**
+     * Error message if recount has been interrupted. Finished ranges are kept so next run resumes from them
+     */
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,43 @@
+package com.serviceapp.entity.util;
+
+import com.serviceapp.entity.Review;
+import com.serviceapp.entity.dto.UserShortDto;
+
+import java.util.List;
+
+/**
+ * Class stores one page of movie reviews, their authors and cursor pointing to the next page
+ */
+public class ReviewContainer {
+
+    private List<Review> reviews;
+    private List<UserShortDto> users;
+    private String next;
+
+    public List<Review> getReviews() {
+        return reviews;
+    }
+
+    public void setReviews(List<Review> reviews) {
+        this.reviews = reviews;
+    }
+
+    public List<UserShortDto> getUsers() {
+        return users;
+    }
+
+    public void setUsers(List<UserShortDto> users) {
+        this.users = users;
+    }
+
+    /**
+     * Cursor to request the next page of reviews. <code>null</code> if there are no more reviews
+     */
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+}
@@ -8,30 +8,32 @@ public enum SortTypeUser {
     /**
      * Sort by user ID (default)
      */
-    ID(0, "id"),
+    ID(0, "id", true),
     /**
      * Sort by login
      */
-    LOGIN(1, "login"),
+    LOGIN(1, "login", true),
     /**
      * Sort by name
      */
-    NAME(2, "name"),
+    NAME(2, "name", true),
     /**
      * Sort by admin authorities
      */
-    ADMIN(3, "admin"),
+    ADMIN(3, "admin", false),
     /**
      * Sort by banned status
      */
-    BANNED(4, "banned");
+    BANNED(4, "banned", false);
 
     private final int id;
     private final String value;
+    private final boolean keyset;
 
-    SortTypeUser(int id, String value) {
+    SortTypeUser(int id, String value, boolean keyset) {
         this.id = id;
         this.value = value;
+        this.keyset = keyset;
     }
 
     /**
@@ -49,6 +51,23 @@ public enum SortTypeUser {
         return false;
     }
 
+    /**
+     * Check if provided value is a user sort type that supports keyset (cursor) pagination. Such sort types are
+     * backed by non-null columns
+     *
+     * @param value value to check
+     * @return <code>true</code> if users can be paged by cursor when sorted by <code>value</code>, <code>false</code>
+     * otherwise
+     */
+    public static boolean isKeysetSortType(String value) {
+        for (SortTypeUser e : values()) {
+            if (e.getValue().equals(value)) {
+                return e.keyset;
+            }
+        }
+        return false;
+    }
+
     public int getId() {
         return id;
     }
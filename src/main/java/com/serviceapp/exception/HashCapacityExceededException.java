@@ -0,0 +1,19 @@
+package com.serviceapp.exception;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+/**
+ * Thrown when password can't be hashed because all password hashing workers are busy and their queue is full.
+ * Signals that request should be retried later (503 status code)
+ */
+public class HashCapacityExceededException extends AuthenticationServiceException {
+
+    /**
+     * Value of <code>Retry-After</code> header (in seconds) sent along with 503 status code
+     */
+    public static final String RETRY_AFTER_SECONDS = "1";
+
+    public HashCapacityExceededException(String message) {
+        super(message);
+    }
+}
@@ -2,27 +2,69 @@ package com.serviceapp.filter;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.serviceapp.entity.ErrorEntity;
+import com.serviceapp.exception.HashCapacityExceededException;
+import com.serviceapp.security.LoginThrottle;
 import com.serviceapp.util.ResponseHelper;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.authentication.logout.SecurityContextLogoutHandler;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
 
 /**
- * Authentication filter. Helps customize login handling
+ * Authentication filter. Helps customize login handling. Password authentication attempts are throttled per login
+ * and client address with <code>LoginThrottle</code> before password is checked
  */
 public class AuthFilter extends BasicAuthenticationFilter {
 
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String BASIC_PREFIX = "Basic ";
+    private static final String LOGIN_ATTRIBUTE = AuthFilter.class.getName() + ".login";
+    private LoginThrottle loginThrottle;
 
-    public AuthFilter(AuthenticationManager authenticationManager) {
+    public AuthFilter(AuthenticationManager authenticationManager, LoginThrottle loginThrottle) {
         super(authenticationManager);
+        this.loginThrottle = loginThrottle;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        String login = getLogin(request);
+        if (login != null) {
+            long wait = loginThrottle.tryAcquire(login, request.getRemoteAddr());
+            if (wait > 0) {
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                response.setHeader("Retry-After", String.valueOf((wait + 999) / 1000));
+                ResponseHelper.setCorsHeader(response);
+                OBJECT_MAPPER.writeValue(response.getWriter(), new ErrorEntity(HttpStatus.TOO_MANY_REQUESTS,
+                        "Too many login attempts, please try again later"));
+                return;
+            }
+            request.setAttribute(LOGIN_ATTRIBUTE, login);
+        }
+        super.doFilterInternal(request, response, chain);
+    }
+
+    @Override
+    protected void onSuccessfulAuthentication(HttpServletRequest request, HttpServletResponse response,
+                                              Authentication authResult) throws IOException {
+        super.onSuccessfulAuthentication(request, response, authResult);
+        Object login = request.getAttribute(LOGIN_ATTRIBUTE);
+        if (login != null) {
+            loginThrottle.release((String) login, request.getRemoteAddr());
+        }
     }
 
     @Override
@@ -35,6 +77,33 @@ public class AuthFilter extends BasicAuthenticationFilter {
             OBJECT_MAPPER
                     .writeValue(response.getWriter(), new ErrorEntity(HttpStatus.UNAUTHORIZED, "Wrong password or username"));
             new SecurityContextLogoutHandler().logout(request, response, null);
+        } else if (failed instanceof HashCapacityExceededException) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", HashCapacityExceededException.RETRY_AFTER_SECONDS);
+            ResponseHelper.setCorsHeader(response);
+            OBJECT_MAPPER
+                    .writeValue(response.getWriter(), new ErrorEntity(HttpStatus.SERVICE_UNAVAILABLE, failed.getMessage()));
+        }
+    }
+
+    /**
+     * Extracts login from basic authorization header
+     *
+     * @param request request to get login from
+     * @return lower-cased login or <code>null</code> if request has no basic authorization header or it is corrupted
+     */
+    private static String getLogin(HttpServletRequest request) {
+        String header = request.getHeader("Authorization");
+        if (header == null || !header.startsWith(BASIC_PREFIX)) {
+            return null;
+        }
+        try {
+            String credentials = new String(Base64.getDecoder().decode(header.substring(BASIC_PREFIX.length()).trim()),
+                    StandardCharsets.UTF_8);
+            int separator = credentials.indexOf(':');
+            return separator < 0 ? null : credentials.substring(0, separator).toLowerCase(Locale.ROOT);
+        } catch (IllegalArgumentException e) {
+            return null;
         }
     }
 
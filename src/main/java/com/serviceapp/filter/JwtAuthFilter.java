@@ -7,13 +7,15 @@ import com.serviceapp.security.securityEntity.TokenAuthentication;
 import com.serviceapp.util.ResponseHelper;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.InsufficientAuthenticationException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.AbstractAuthenticationProcessingFilter;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
 import org.springframework.security.web.util.matcher.RequestMatcher;
-import org.springframework.util.AntPathMatcher;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -22,20 +24,22 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 
 /**
- * Filter to control access to protected resources via authentication token
+ * Filter to control access to protected resources via authentication token. Single filter covers all token protected
+ * resources: admin resources (admin role required), account resources and review posting. Authenticated request is
+ * passed down the filter chain once
  */
 public class JwtAuthFilter extends AbstractAuthenticationProcessingFilter {
 
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final RequestMatcher ADMIN_MATCHER = new AntPathRequestMatcher("/admin/**");
+    private static final RequestMatcher TOKEN_MATCHER = new OrRequestMatcher(
+            ADMIN_MATCHER,
+            new AntPathRequestMatcher("/account/**"),
+            new AntPathRequestMatcher("/movies/**/post**"));
 
-    public JwtAuthFilter(RequestMatcher requiresAuthenticationRequestMatcher, AuthenticationManager authenticationManager) {
-        super(requiresAuthenticationRequestMatcher);
+    public JwtAuthFilter(AuthenticationManager authenticationManager) {
+        super(TOKEN_MATCHER);
         setAuthenticationManager(authenticationManager);
-        setAuthenticationSuccessHandler((request, response, authentication) -> {
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-            request.getRequestDispatcher(request.getServletPath() +
-                    (request.getPathInfo() != null ? request.getPathInfo() : "")).forward(request, response);
-        });
         setAuthenticationFailureHandler((request, response, authenticationException) -> {
             response.setStatus(HttpServletResponse.SC_FORBIDDEN);
             ResponseHelper.setCorsHeader(response);
@@ -63,12 +67,8 @@ public class JwtAuthFilter extends AbstractAuthenticationProcessingFilter {
 
         Authentication authenticated = getAuthenticationManager().authenticate(tokenAuthentication);
 
-        if (new AntPathMatcher().match("/admin/**", request.getServletPath())) {
-            if (!ifAdmin(authenticated)) {
-                response.setStatus(HttpServletResponse.SC_FORBIDDEN);
-                ResponseHelper.setCorsHeader(response);
-                OBJECT_MAPPER.writeValue(response.getWriter(), new ErrorEntity(HttpStatus.FORBIDDEN, "Access denied"));
-            }
+        if (ADMIN_MATCHER.matches(request) && !ifAdmin(authenticated)) {
+            throw new InsufficientAuthenticationException("Access denied");
         }
 
         return authenticated;
@@ -77,7 +77,7 @@ public class JwtAuthFilter extends AbstractAuthenticationProcessingFilter {
     @Override
     protected void successfulAuthentication(HttpServletRequest request, HttpServletResponse response, FilterChain chain,
                                             Authentication authResult) throws IOException, ServletException {
-        super.successfulAuthentication(request, response, chain, authResult);
+        SecurityContextHolder.getContext().setAuthentication(authResult);
         chain.doFilter(request, response);
     }
 
@@ -0,0 +1,35 @@
+package com.serviceapp.filter;
+
+import com.serviceapp.util.ReadWriteRoutingDataSource;
+
+import javax.servlet.*;
+import java.io.IOException;
+
+/**
+ * Delimits request for <code>ReadWriteRoutingDataSource</code>, so reads made after a write in the same request go
+ * to primary database
+ */
+public class ReadYourWritesFilter implements Filter {
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain)
+            throws IOException, ServletException {
+        ReadWriteRoutingDataSource.beginRequest();
+        try {
+            filterChain.doFilter(servletRequest, servletResponse);
+        } finally {
+            ReadWriteRoutingDataSource.endRequest();
+        }
+    }
+
+    @Override
+    public void destroy() {
+
+    }
+
+}
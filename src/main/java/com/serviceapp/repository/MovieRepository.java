@@ -1,12 +1,19 @@
 package com.serviceapp.repository;
 
 import com.serviceapp.entity.Movie;
+import com.serviceapp.entity.dto.MovieShortDto;
+import com.serviceapp.entity.util.RatingAggregate;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -14,7 +21,18 @@ import java.util.List;
  */
 @Repository
 @Transactional
-public interface MovieRepository extends JpaRepository<Movie, Long> {
+public interface MovieRepository extends JpaRepository<Movie, Long>, MovieRepositoryCustom {
+
+    /**
+     * Query selecting only movie data displayed in movie lists
+     */
+    String SHORT_MOVIE_QUERY = "select new com.serviceapp.entity.dto.MovieShortDto(" +
+            "m.id, m.movieName, m.director, m.releaseDate, m.rating, m.posterURL) from Movie m";
+    String TITLE_CONDITION = " where upper(m.movieName) like upper(concat('%', :title, '%')) escape '!'";
+    /**
+     * Escape character of title pattern in title search
+     */
+    char TITLE_ESCAPE = '!';
 
     /**
      * Save <code>Movie</code> entity and flush it immediately
@@ -77,24 +95,23 @@ public interface MovieRepository extends JpaRepository<Movie, Long> {
     boolean exists(Long id);
 
     /**
-     * Searches for movies with given title (or its part) in database
+     * Get ids, titles and ratings of all movies
      *
-     * @param title    movie title (or its part) to look for. Must not be null
-     * @param pageable object implementing <code>Pageable</code> interface. Serves for pagination and sorting
-     * @return iterable <code>Page</code> with <code>Movie</code> objects matching search param if any found and limited
-     * by params specified by <code>pageable</code>, otherwise returns <code>null</code>
-     * @throws IllegalArgumentException thrown if <code>title</code> is <code>null</code>
+     * @return <code>List</code> of arrays with movie id, title and rating
      */
     @Transactional(readOnly = true)
-    Page<Movie> findByMovieNameContainsAllIgnoreCase(String title, Pageable pageable);
+    @Query("select m.id, m.movieName, m.rating from Movie m")
+    List<Object[]> findAllTitles();
 
     /**
-     * Searches for movies with highest ratings and gets first 10 of them (if there are 10+ records in database).
+     * Get movies with highest ratings. Movies with equal rating are ordered by id (newer first)
      *
-     * @return <code>List</code> with 10 <code>Movies</code> with highest rating
+     * @param pageable object implementing <code>Pageable</code> interface. Defines number of movies to get
+     * @return <code>List</code> of movies sorted by rating from highest to lowest
      */
     @Transactional(readOnly = true)
-    List<Movie> findFirst10ByOrderByRatingDesc();
+    @Query("select m from Movie m order by m.rating desc, m.id desc")
+    List<Movie> findTopRated(Pageable pageable);
 
     /**
      * Get all <code>Movie</code> entities from database limited by <code>pageable</code> property
@@ -108,4 +125,139 @@ public interface MovieRepository extends JpaRepository<Movie, Long> {
     @Transactional(readOnly = true)
     Page<Movie> findAll(Pageable pageable);
 
+    /**
+     * Get shortened data of movies (for movie lists) limited by <code>pageable</code> property
+     *
+     * @param pageable object implementing <code>Pageable</code> interface. Serves for pagination and sorting
+     * @return iterable <code>Page</code> with <code>MovieShortDto</code> objects limited by params specified by
+     * <code>pageable</code>
+     */
+    @Transactional(readOnly = true)
+    @Query(value = SHORT_MOVIE_QUERY, countQuery = "select count(m) from Movie m")
+    Page<MovieShortDto> findAllShort(Pageable pageable);
+
+    /**
+     * Get shortened data of movies (for movie lists) limited by <code>pageable</code> property without counting all
+     * movies. One extra row is fetched to find out whether there is a next slice
+     *
+     * @param pageable object implementing <code>Pageable</code> interface. Serves for pagination and sorting
+     * @return <code>Slice</code> with <code>MovieShortDto</code> objects limited by params specified by
+     * <code>pageable</code>
+     */
+    @Transactional(readOnly = true)
+    @Query(SHORT_MOVIE_QUERY)
+    Slice<MovieShortDto> findAllShortSliced(Pageable pageable);
+
+    /**
+     * Get shortened data of the first page of movies ordered by id
+     *
+     * @param pageable page size limit. Only first page is expected, sorting is ignored
+     * @return <code>List</code> of movies in ascending id order
+     */
+    @Transactional(readOnly = true)
+    @Query(SHORT_MOVIE_QUERY + " order by m.id")
+    List<MovieShortDto> findShortFirstPage(Pageable pageable);
+
+    /**
+     * Get shortened data of the page of movies ordered by id that goes right after movie with given id (keyset
+     * pagination)
+     *
+     * @param id       id of the last movie from previous page
+     * @param pageable page size limit. Only first page is expected, sorting is ignored
+     * @return <code>List</code> of movies in ascending id order
+     */
+    @Transactional(readOnly = true)
+    @Query(SHORT_MOVIE_QUERY + " where m.id > :id order by m.id")
+    List<MovieShortDto> findShortPageAfter(@Param("id") Long id, Pageable pageable);
+
+    /**
+     * Searches for shortened data of movies with given title (or its part) ignoring case
+     *
+     * @param title    movie title (or its part) to look for with <code>%</code>, <code>_</code> and
+     *                 <code>!</code> escaped by <code>TITLE_ESCAPE</code>. Must not be null
+     * @param pageable object implementing <code>Pageable</code> interface. Serves for pagination and sorting
+     * @return iterable <code>Page</code> with <code>MovieShortDto</code> objects matching search param limited by
+     * params specified by <code>pageable</code>
+     */
+    @Transactional(readOnly = true)
+    @Query(value = SHORT_MOVIE_QUERY + TITLE_CONDITION, countQuery = "select count(m) from Movie m" + TITLE_CONDITION)
+    Page<MovieShortDto> findShortByTitle(@Param("title") String title, Pageable pageable);
+
+    /**
+     * Searches for shortened data of movies with given title (or its part) ignoring case without counting all found
+     * movies. One extra row is fetched to find out whether there is a next slice
+     *
+     * @param title    movie title (or its part) to look for with <code>%</code>, <code>_</code> and
+     *                 <code>!</code> escaped by <code>TITLE_ESCAPE</code>. Must not be null
+     * @param pageable object implementing <code>Pageable</code> interface. Serves for pagination and sorting
+     * @return <code>Slice</code> with <code>MovieShortDto</code> objects matching search param limited by params
+     * specified by <code>pageable</code>
+     */
+    @Transactional(readOnly = true)
+    @Query(SHORT_MOVIE_QUERY + TITLE_CONDITION)
+    Slice<MovieShortDto> findShortSliceByTitle(@Param("title") String title, Pageable pageable);
+
+    /**
+     * Get shortened data of movies with provided ids
+     *
+     * @param ids ids of movies to get
+     * @return <code>List</code> of found movies in no particular order
+     */
+    @Transactional(readOnly = true)
+    @Query(SHORT_MOVIE_QUERY + " where m.id in :ids")
+    List<MovieShortDto> findShortByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Get movie rating and its aggregate. Used right after rating update in the same transaction, so the state
+     * written by this transaction is read
+     *
+     * @param id id of movie
+     * @return rating and aggregate of the movie or <code>null</code> if there is no movie with provided id
+     */
+    @Transactional(readOnly = true)
+    @Query("select new com.serviceapp.entity.util.RatingAggregate(m.id, m.rating, m.reviewCount, m.ratingSum) " +
+            "from Movie m where m.id = :id")
+    RatingAggregate findRatingAggregate(@Param("id") Long id);
+
+    /**
+     * Fills rating aggregate (review count and ratings sum) from reviews for movies that don't have it yet
+     *
+     * @return number of updated movies
+     */
+    @Modifying
+    @Query("update Movie m set " +
+            "m.reviewCount = (select count(r) from Review r where r.movieId = m.id), " +
+            "m.ratingSum = (select coalesce(sum(r.rating), 0) from Review r where r.movieId = m.id) " +
+            "where m.reviewCount is null or m.ratingSum is null")
+    int initRatingAggregates();
+
+    /**
+     * Get smallest movie id
+     *
+     * @return smallest movie id or <code>null</code> if there are no movies
+     */
+    @Transactional(readOnly = true)
+    @Query("select min(m.id) from Movie m")
+    Long findMinId();
+
+    /**
+     * Get largest movie id
+     *
+     * @return largest movie id or <code>null</code> if there are no movies
+     */
+    @Transactional(readOnly = true)
+    @Query("select max(m.id) from Movie m")
+    Long findMaxId();
+
+    /**
+     * Get ids of movies in provided range
+     *
+     * @param from first movie id of the range
+     * @param to   last movie id of the range (inclusive)
+     * @return <code>List</code> of movie ids in ascending order
+     */
+    @Transactional(readOnly = true)
+    @Query("select m.id from Movie m where m.id between :from and :to order by m.id")
+    List<Long> findIdsBetween(@Param("from") Long from, @Param("to") Long to);
+
 }
@@ -0,0 +1,32 @@
+package com.serviceapp.repository;
+
+/**
+ * Movie updates that can't be expressed with query methods without evicting all movies from second level cache
+ */
+public interface MovieRepositoryCustom {
+
+    /**
+     * Atomically adds given number of reviews and sum of their ratings to movie rating aggregate and recalculates
+     * movie rating from it with one SQL statement. Negative values remove reviews from aggregate. Only the updated
+     * movie is evicted from second level cache.
+     * <p>
+     * Rating is assigned first so it is calculated from the old aggregate values both in MySQL (which evaluates
+     * assignments left to right) and in databases that use old values for all assignments.
+     *
+     * @param id      id of movie to update
+     * @param reviews number of reviews to add to aggregate
+     * @param ratings sum of ratings of these reviews
+     * @return number of updated movies. <code>0</code> if there is no movie with provided id
+     */
+    int updateRating(Long id, long reviews, long ratings);
+
+    /**
+     * Recalculates movie rating and its aggregate from all reviews of the movie with one SQL statement. Movies without
+     * reviews get <code>0</code> rating. Only the updated movie is evicted from second level cache.
+     *
+     * @param id id of movie to recalculate rating for
+     * @return number of updated movies. <code>0</code> if there is no movie with provided id
+     */
+    int recountRating(Long id);
+
+}
@@ -0,0 +1,93 @@
+package com.serviceapp.repository;
+
+import com.serviceapp.entity.Movie;
+import com.serviceapp.entity.Review;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+/**
+ * Implementation of {@link MovieRepositoryCustom}. Picked up by Spring Data as part of {@link MovieRepository}.
+ * <p>
+ * Ratings are written with JDBC in the current transaction. Hibernate evicts the whole entity region after JPQL bulk
+ * updates, so they are not used here; updated movie is evicted instead. It's evicted right away, so the transaction
+ * reads its own update, and once more after the transaction ends, as movie read meanwhile may have been cached with
+ * values that aren't committed yet (or never will be).
+ */
+public class MovieRepositoryImpl implements MovieRepositoryCustom {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private volatile String updateRatingSql;
+    private volatile String recountRatingSql;
+
+    @Autowired
+    public MovieRepositoryImpl(EntityManagerFactory entityManagerFactory, DataSource dataSource) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    @Transactional
+    public int updateRating(Long id, long reviews, long ratings) {
+        if (updateRatingSql == null) {
+            updateRatingSql = "update " + tableName(Movie.class) + " set " +
+                    "rating = case when coalesce(reviewcount, 0) + ? > 0 " +
+                    "then round(1.0 * (coalesce(ratingsum, 0) + ?) / (coalesce(reviewcount, 0) + ?), 2) " +
+                    "else 0 end, " +
+                    "reviewcount = coalesce(reviewcount, 0) + ?, " +
+                    "ratingsum = coalesce(ratingsum, 0) + ? " +
+                    "where id = ?";
+        }
+        int updated = jdbcTemplate.update(updateRatingSql, reviews, ratings, reviews, reviews, ratings, id);
+        evict(id);
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    public int recountRating(Long id) {
+        if (recountRatingSql == null) {
+            String movies = tableName(Movie.class);
+            String reviews = " from " + tableName(Review.class) + " r where r.movieID = " + movies + ".id)";
+            recountRatingSql = "update " + movies + " set " +
+                    "rating = coalesce((select round(avg(1.0 * r.rating), 2)" + reviews + ", 0), " +
+                    "reviewcount = (select count(*)" + reviews + ", " +
+                    "ratingsum = (select coalesce(sum(r.rating), 0)" + reviews + " " +
+                    "where id = ?";
+        }
+        int updated = jdbcTemplate.update(recountRatingSql, id);
+        evict(id);
+        return updated;
+    }
+
+    /**
+     * Evicts movie from second level cache now and after current transaction completes
+     *
+     * @param id id of movie to evict
+     */
+    private void evict(Long id) {
+        entityManagerFactory.getCache().evict(Movie.class, id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    entityManagerFactory.getCache().evict(Movie.class, id);
+                }
+            });
+        }
+    }
+
+    private String tableName(Class<?> entity) {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        return ((AbstractEntityPersister) sessionFactory.getMetamodel().entityPersister(entity)).getTableName();
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.serviceapp.repository;
+
+import com.serviceapp.entity.RatingRecountRange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Interface for accessing checkpoints of bulk rating recount in database
+ */
+@Repository
+@Transactional
+public interface RatingRecountRangeRepository extends JpaRepository<RatingRecountRange, Long> {
+
+    /**
+     * Returns all finished ranges of current recount
+     *
+     * @return all <code>RatingRecountRange</code> instances
+     */
+    @Override
+    @Transactional(readOnly = true)
+    List<RatingRecountRange> findAll();
+
+}
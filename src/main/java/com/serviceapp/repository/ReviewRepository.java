@@ -1,10 +1,14 @@
 package com.serviceapp.repository;
 
 import com.serviceapp.entity.Review;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Date;
 import java.util.List;
 
 /**
@@ -54,6 +58,33 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     @Transactional(readOnly = true)
     List<Review> findReviewsByMovieId(Long movieId);
 
+    /**
+     * Searches for the first page of reviews for movie with provided id. Newest reviews go first.
+     *
+     * @param movieId  ID of movie which reviews refer to
+     * @param pageable page size limit. Only first page is expected, sorting is ignored
+     * @return List of <code>Review</code> objects ordered by post date and id descending. Empty List if none found
+     */
+    @Transactional(readOnly = true)
+    List<Review> findByMovieIdOrderByPostDateDescIdDesc(Long movieId, Pageable pageable);
+
+    /**
+     * Searches for the page of reviews for movie with provided id that goes right after review with given post date
+     * and id (keyset pagination). Newest reviews go first.
+     *
+     * @param movieId  ID of movie which reviews refer to
+     * @param postDate post date of the last review from previous page
+     * @param id       id of the last review from previous page
+     * @param pageable page size limit. Only first page is expected, sorting is ignored
+     * @return List of <code>Review</code> objects ordered by post date and id descending. Empty List if none found
+     */
+    @Transactional(readOnly = true)
+    @Query("select r from Review r where r.movieId = :movieId " +
+            "and (r.postDate < :postDate or (r.postDate = :postDate and r.id < :id)) " +
+            "order by r.postDate desc, r.id desc")
+    List<Review> findReviewsPageAfter(@Param("movieId") Long movieId, @Param("postDate") Date postDate,
+                                      @Param("id") Long id, Pageable pageable);
+
     /**
      * Checks whether an entity of type <code>Review</code> with the given id exists.
      *
@@ -64,4 +95,5 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     @Override
     @Transactional(readOnly = true)
     boolean exists(Long id);
+
 }
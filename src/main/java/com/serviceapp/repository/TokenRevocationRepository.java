@@ -0,0 +1,28 @@
+package com.serviceapp.repository;
+
+import com.serviceapp.entity.TokenRevocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Interface for accessing token revocations in database
+ */
+@Repository
+@Transactional
+public interface TokenRevocationRepository extends JpaRepository<TokenRevocation, Long> {
+
+    /**
+     * Returns revocations of tokens issued after given time. Runs in read-write transaction, so revocations are read
+     * from primary database: a replica lagging behind by more than <code>token.revocation.skew</code> would hide
+     * revocations which are not read again by later refreshes
+     *
+     * @param since revocations of tokens issued before this time are skipped
+     * @return <code>List</code> of revocations in no particular order. Empty if none found
+     */
+    List<TokenRevocation> findByRevokedBeforeAfter(Timestamp since);
+
+}
@@ -1,12 +1,16 @@
 package com.serviceapp.repository;
 
 import com.serviceapp.entity.User;
+import com.serviceapp.entity.dto.UserShortDto;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -14,7 +18,7 @@ import java.util.List;
  */
 @Repository
 @Transactional
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
 
     /**
      * Save <code>User</code> entity and flush it immediately
@@ -47,6 +51,26 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Transactional(readOnly = true)
     User findUserByLogin(String login);
 
+    /**
+     * Get stored password hash of user. Not a read-only transaction, so password is read from primary database
+     *
+     * @param id id of user. Must not be <code>null</code>
+     * @return password hash or <code>null</code> if user is not found
+     */
+    @Query("select u.password from User u where u.id = :id")
+    String findPasswordById(@Param("id") Long id);
+
+    /**
+     * Looks up for short user data (id, username and banned state) of all users with provided IDs in one query.
+     * Login and password columns are not selected.
+     *
+     * @param ids ids of users to find. Must not be <code>null</code> or empty
+     * @return List of <code>UserShortDto</code> objects for found users. Ids with no user are skipped
+     */
+    @Transactional(readOnly = true)
+    @Query("select new com.serviceapp.entity.dto.UserShortDto(u.id, u.name, u.banned) from User u where u.id in :ids")
+    List<UserShortDto> findUsersShortByIdIn(@Param("ids") Collection<Long> ids);
+
     /**
      * Deletes given <code>User</code>
      *
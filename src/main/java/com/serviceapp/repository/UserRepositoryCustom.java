@@ -0,0 +1,35 @@
+package com.serviceapp.repository;
+
+import com.serviceapp.entity.User;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+/**
+ * User queries that can't be expressed with query methods
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * Get page of users sorted by given property that goes right after user with given sort value and id (keyset
+     * pagination). Users with equal sort value are ordered by id in the same direction.
+     *
+     * @param property  user property to sort by. Must be <code>id</code> or a non-null <code>String</code> property
+     * @param direction sort direction
+     * @param value     sort value of the last user from previous page. Ignored when sorting by <code>id</code>
+     * @param id        id of the last user from previous page. <code>null</code> to get the first page
+     * @param limit     max number of users to get
+     * @return <code>List</code> of users. Empty if none found
+     */
+    List<User> findPageAfter(String property, Sort.Direction direction, String value, Long id, int limit);
+
+    /**
+     * Looks up for user with provided login. Login is resolved to user id with second level cache, so database is
+     * queried only for logins which are not cached yet. Cached login is matched exactly (case sensitive)
+     *
+     * @param login login of user to find
+     * @return <code>User</code> object if found, otherwise returns <code>null</code>
+     */
+    User findByNaturalLogin(String login);
+
+}
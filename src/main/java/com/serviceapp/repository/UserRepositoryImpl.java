@@ -0,0 +1,60 @@
+package com.serviceapp.repository;
+
+import com.serviceapp.entity.User;
+import org.hibernate.Session;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.List;
+
+/**
+ * Implementation of {@link UserRepositoryCustom}. Picked up by Spring Data as part of {@link UserRepository}
+ */
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+    private static final String ID = "id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<User> findPageAfter(String property, Sort.Direction direction, String value, Long id, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<User> query = builder.createQuery(User.class);
+        Root<User> user = query.from(User.class);
+        Path<Long> userId = user.get(ID);
+        boolean ascending = direction == Sort.Direction.ASC;
+
+        if (ID.equals(property)) {
+            if (id != null) {
+                query.where(ascending ? builder.greaterThan(userId, id) : builder.lessThan(userId, id));
+            }
+            query.orderBy(ascending ? builder.asc(userId) : builder.desc(userId));
+        } else {
+            Path<String> key = user.get(property);
+            if (id != null) {
+                Predicate afterKey = ascending ? builder.greaterThan(key, value) : builder.lessThan(key, value);
+                Predicate afterId = ascending ? builder.greaterThan(userId, id) : builder.lessThan(userId, id);
+                query.where(builder.or(afterKey, builder.and(builder.equal(key, value), afterId)));
+            }
+            query.orderBy(ascending ? builder.asc(key) : builder.desc(key),
+                    ascending ? builder.asc(userId) : builder.desc(userId));
+        }
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public User findByNaturalLogin(String login) {
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(User.class).load(login);
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.serviceapp.security;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+
+/**
+ * Authentication provider which remembers successful authentications in <code>CredentialCache</code>. Authentication
+ * is delegated to wrapped provider only if credentials are not found in cache. Failed authentications are not cached
+ *
+ * @see CredentialCache
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+
+    private AuthenticationProvider delegate;
+    private CredentialCache credentialCache;
+
+    public CachingAuthenticationProvider(AuthenticationProvider delegate, CredentialCache credentialCache) {
+        this.delegate = delegate;
+        this.credentialCache = credentialCache;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        if (authentication.getName() == null || !(authentication.getCredentials() instanceof String)) {
+            return delegate.authenticate(authentication);
+        }
+        String login = authentication.getName();
+        String password = (String) authentication.getCredentials();
+
+        Authentication cached = credentialCache.get(login, password);
+        if (cached == null) {
+            long version = credentialCache.version();
+            Authentication result = delegate.authenticate(authentication);
+            if (result == null) {
+                return null;
+            }
+            // raw password is not kept in cache
+            cached = new UsernamePasswordAuthenticationToken(result.getPrincipal(), null, result.getAuthorities());
+            credentialCache.put(login, password, cached, version);
+            return result;
+        }
+
+        UsernamePasswordAuthenticationToken result =
+                new UsernamePasswordAuthenticationToken(cached.getPrincipal(), password, cached.getAuthorities());
+        result.setDetails(authentication.getDetails());
+        return result;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+
+}
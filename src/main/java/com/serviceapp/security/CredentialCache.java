@@ -0,0 +1,243 @@
+package com.serviceapp.security;
+
+import com.serviceapp.entity.User;
+import com.serviceapp.security.securityEntity.UserDetailsImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of successful HTTP Basic authentications. Lets repeated requests with the same credentials skip user lookup
+ * and password hashing.
+ * <p>
+ * Entries are keyed by HMAC of login and password computed with a random key generated on startup, so raw passwords
+ * are never stored. Cache holds up to <code>credentials.cache.size</code> entries, least recently used one is evicted
+ * first. Entry expires <code>credentials.cache.ttl</code> milliseconds after it has been cached. Cache is turned off
+ * unless <code>credentials.cache.enabled</code> is <code>true</code>.
+ */
+@Component
+@PropertySource("classpath:movieApp.properties")
+public class CredentialCache {
+
+    private static final String ENABLED_PROP = "credentials.cache.enabled";
+    private static final String SIZE_PROP = "credentials.cache.size";
+    private static final String TTL_PROP = "credentials.cache.ttl";
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int DEFAULT_SIZE = 10000;
+    private static final long DEFAULT_TTL = 30000;
+    private final boolean enabled;
+    private final int size;
+    private final long ttl;
+    private final SecretKeySpec key;
+    /**
+     * Cached authentications in access order. Guarded by <code>this</code>
+     */
+    private final LinkedHashMap<String, Entry> authentications = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * Incremented on each invalidation. Authentication is cached only if no invalidation happened while it was done
+     */
+    private final AtomicLong version = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    @Autowired
+    public CredentialCache(Environment environment) {
+        this.enabled = environment.getProperty(ENABLED_PROP, Boolean.class, false);
+        this.size = environment.getProperty(SIZE_PROP, Integer.class, DEFAULT_SIZE);
+        this.ttl = environment.getProperty(TTL_PROP, Long.class, DEFAULT_TTL);
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+    }
+
+    /**
+     * Get current version of cache. Must be taken before authentication which is going to be cached
+     *
+     * @return current version
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Get cached authentication
+     *
+     * @param login    login provided by user
+     * @param password password provided by user
+     * @return cached authentication or <code>null</code> if there is no such authentication in cache, it has expired
+     * or cache is turned off
+     */
+    public Authentication get(String login, String password) {
+        if (!enabled) {
+            return null;
+        }
+        String digest = digest(login, password);
+        synchronized (this) {
+            Entry entry = authentications.get(digest);
+            if (entry != null && entry.expires < System.currentTimeMillis()) {
+                authentications.remove(digest);
+                expirations.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.authentication;
+        }
+    }
+
+    /**
+     * Caches successful authentication. Authentication is not cached if cache has been invalidated after
+     * <code>version</code> has been taken
+     *
+     * @param login          login provided by user
+     * @param password       password provided by user
+     * @param authentication successful authentication. Should not hold raw password as credentials
+     * @param version        cache version taken before authentication
+     */
+    public void put(String login, String password, Authentication authentication, long version) {
+        if (!enabled || authentication == null || !authentication.isAuthenticated()) {
+            return;
+        }
+        String digest = digest(login, password);
+        Long userId = authentication.getPrincipal() instanceof UserDetailsImpl
+                ? ((UserDetailsImpl) authentication.getPrincipal()).getId() : null;
+        synchronized (this) {
+            if (this.version.get() != version) {
+                return;
+            }
+            authentications.put(digest, new Entry(userId, login, authentication, System.currentTimeMillis() + ttl));
+            Iterator<Entry> iterator = authentications.values().iterator();
+            while (authentications.size() > size && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Invalidates cached authentications of given user. Must be called whenever user is updated (banned, password
+     * changed, etc.) or deleted
+     *
+     * @param user changed user. Authentications with the same id or login are removed. <code>null</code> is ignored
+     */
+    public synchronized void invalidate(User user) {
+        if (user == null) {
+            return;
+        }
+        version.incrementAndGet();
+        Iterator<Entry> iterator = authentications.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if ((entry.userId != null && entry.userId.equals(user.getId()))
+                    || Objects.equals(entry.login, user.getLogin())) {
+                iterator.remove();
+                invalidations.increment();
+            }
+        }
+    }
+
+    /**
+     * Invalidates cached authentications of users with given ids. Used when users are known to be changed only by id
+     * (e.g. tokens revoked on another node)
+     *
+     * @param userIds ids of changed users
+     */
+    public synchronized void invalidate(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        version.incrementAndGet();
+        Iterator<Entry> iterator = authentications.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.userId != null && userIds.contains(entry.userId)) {
+                iterator.remove();
+                invalidations.increment();
+            }
+        }
+    }
+
+    /**
+     * Invalidates all cached authentications
+     */
+    public synchronized void clear() {
+        version.incrementAndGet();
+        invalidations.add(authentications.size());
+        authentications.clear();
+    }
+
+    /**
+     * Get cache metrics
+     *
+     * @return <code>Map</code> with metric names and their values
+     */
+    public synchronized Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled ? 1L : 0L);
+        stats.put("size", (long) authentications.size());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    /**
+     * Computes keyed hash of credentials
+     *
+     * @param login    user login
+     * @param password user password
+     * @return Base64 encoded HMAC of login and password
+     */
+    private String digest(String login, String password) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            mac.update(login.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return Base64.getEncoder().encodeToString(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Can't compute credentials digest. Error: " + e, e);
+        }
+    }
+
+    private static final class Entry {
+
+        private final Long userId;
+        private final String login;
+        private final Authentication authentication;
+        private final long expires;
+
+        private Entry(Long userId, String login, Authentication authentication, long expires) {
+            this.userId = userId;
+            this.login = login;
+            this.authentication = authentication;
+            this.expires = expires;
+        }
+    }
+
+}
@@ -0,0 +1,221 @@
+package com.serviceapp.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throttles password authentication attempts per login and per client address, so brute-force attempts are rejected
+ * before password is hashed.
+ * <p>
+ * Each login and address has a token bucket (implemented as generic cell rate algorithm: bucket is a single
+ * timestamp updated with compare-and-set, no locks). Login may be tried <code>login.throttle.loginRate</code> times
+ * per minute with bursts of <code>login.throttle.loginBurst</code> attempts, address - <code>addressRate</code> and
+ * <code>addressBurst</code> respectively. Attempt is charged before authentication and refunded if it succeeds, so
+ * only failed attempts use up the limit.
+ * <p>
+ * Buckets are spread over <code>login.throttle.shards</code> maps of up to <code>login.throttle.shardSize</code>
+ * buckets. Full bucket is the same as no bucket, so buckets are dropped as soon as they refill. If shard is still
+ * full of draining buckets, new keys share one overflow bucket of the shard (and are counted as overflows) rather
+ * than growing memory, so filling shards throttles new keys instead of letting them through.
+ */
+@Component
+@PropertySource("classpath:movieApp.properties")
+public class LoginThrottle {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private final Limiter logins;
+    private final Limiter addresses;
+    private final LongAdder throttledLogins = new LongAdder();
+    private final LongAdder throttledAddresses = new LongAdder();
+
+    @Autowired
+    public LoginThrottle(Environment environment) {
+        int shards = environment.getProperty("login.throttle.shards", Integer.class, 16);
+        int shardSize = environment.getProperty("login.throttle.shardSize", Integer.class, 10000);
+        this.logins = new Limiter(shards, shardSize,
+                MINUTE / environment.getProperty("login.throttle.loginRate", Long.class, 10L),
+                environment.getProperty("login.throttle.loginBurst", Integer.class, 5));
+        this.addresses = new Limiter(shards, shardSize,
+                MINUTE / environment.getProperty("login.throttle.addressRate", Long.class, 60L),
+                environment.getProperty("login.throttle.addressBurst", Integer.class, 20));
+    }
+
+    /**
+     * Charges authentication attempt to login and client address
+     *
+     * @param login   login attempt is made for. <code>null</code> is not throttled
+     * @param address client address. <code>null</code> is not throttled
+     * @return 0 if attempt is allowed, otherwise number of milliseconds to wait before next attempt is allowed
+     */
+    public long tryAcquire(String login, String address) {
+        long now = System.currentTimeMillis();
+        long wait = logins.tryAcquire(login, now);
+        if (wait > 0) {
+            throttledLogins.increment();
+            return wait;
+        }
+        wait = addresses.tryAcquire(address, now);
+        if (wait > 0) {
+            logins.release(login);
+            throttledAddresses.increment();
+            return wait;
+        }
+        return 0;
+    }
+
+    /**
+     * Refunds attempt charged with {@link #tryAcquire(String, String)}. Must be called when authentication succeeded
+     *
+     * @param login   login attempt has been made for
+     * @param address client address
+     */
+    public void release(String login, String address) {
+        logins.release(login);
+        addresses.release(address);
+    }
+
+    /**
+     * Drops buckets which have refilled
+     */
+    @Scheduled(fixedDelayString = "${login.throttle.cleanupInterval:60000}")
+    public void cleanup() {
+        long now = System.currentTimeMillis();
+        logins.cleanup(now);
+        addresses.cleanup(now);
+    }
+
+    /**
+     * Get throttling metrics
+     *
+     * @return <code>Map</code> with metric names and their values
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("logins", logins.size());
+        stats.put("addresses", addresses.size());
+        stats.put("throttledLogins", throttledLogins.sum());
+        stats.put("throttledAddresses", throttledAddresses.sum());
+        stats.put("overflows", logins.overflows.sum() + addresses.overflows.sum());
+        return stats;
+    }
+
+    /**
+     * Set of token buckets keyed by string
+     */
+    private static final class Limiter {
+
+        private final ConcurrentHashMap<String, AtomicLong>[] shards;
+        /**
+         * Bucket shared by keys which don't fit into full shard, per shard
+         */
+        private final AtomicLong[] overflowBuckets;
+        private final int shardSize;
+        /**
+         * Time needed to refill one attempt
+         */
+        private final long interval;
+        /**
+         * How far bucket's theoretical arrival time may run ahead of now, i.e. burst size in time units
+         */
+        private final long tolerance;
+        private final LongAdder overflows = new LongAdder();
+
+        @SuppressWarnings("unchecked")
+        private Limiter(int shards, int shardSize, long interval, int burst) {
+            this.shards = new ConcurrentHashMap[shards];
+            this.overflowBuckets = new AtomicLong[shards];
+            for (int i = 0; i < shards; i++) {
+                this.shards[i] = new ConcurrentHashMap<>();
+                this.overflowBuckets[i] = new AtomicLong();
+            }
+            this.shardSize = shardSize;
+            this.interval = Math.max(1, interval);
+            this.tolerance = this.interval * Math.max(0, burst - 1);
+        }
+
+        private long tryAcquire(String key, long now) {
+            if (key == null) {
+                return 0;
+            }
+            AtomicLong bucket = bucket(key, now);
+            if (bucket == null) {
+                overflows.increment();
+                bucket = overflowBuckets[index(key)];
+            }
+            while (true) {
+                long arrival = bucket.get();
+                long base = Math.max(arrival, now);
+                if (base - now > tolerance) {
+                    return base - now - tolerance;
+                }
+                if (bucket.compareAndSet(arrival, base + interval)) {
+                    return 0;
+                }
+            }
+        }
+
+        private void release(String key) {
+            if (key == null) {
+                return;
+            }
+            AtomicLong bucket = shard(key).get(key);
+            if (bucket == null) {
+                // attempt has been charged to overflow bucket (or key's bucket has refilled and been dropped)
+                bucket = overflowBuckets[index(key)];
+            }
+            bucket.addAndGet(-interval);
+        }
+
+        private AtomicLong bucket(String key, long now) {
+            ConcurrentHashMap<String, AtomicLong> shard = shard(key);
+            AtomicLong bucket = shard.get(key);
+            if (bucket != null) {
+                return bucket;
+            }
+            if (shard.size() >= shardSize) {
+                cleanup(shard, now);
+                if (shard.size() >= shardSize) {
+                    return null;
+                }
+            }
+            return shard.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+
+        private void cleanup(long now) {
+            for (ConcurrentHashMap<String, AtomicLong> shard : shards) {
+                cleanup(shard, now);
+            }
+        }
+
+        private void cleanup(ConcurrentHashMap<String, AtomicLong> shard, long now) {
+            shard.values().removeIf(bucket -> bucket.get() <= now);
+        }
+
+        private ConcurrentHashMap<String, AtomicLong> shard(String key) {
+            return shards[index(key)];
+        }
+
+        private int index(String key) {
+            return Math.floorMod(key.hashCode(), shards.length);
+        }
+
+        private long size() {
+            long size = 0;
+            for (ConcurrentHashMap<String, AtomicLong> shard : shards) {
+                size += shard.size();
+            }
+            return size;
+        }
+    }
+
+}
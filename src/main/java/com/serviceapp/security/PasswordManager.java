@@ -1,33 +1,69 @@
 package com.serviceapp.security;
 
+import com.serviceapp.exception.HashCapacityExceededException;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.core.env.Environment;
+import org.springframework.security.authentication.AuthenticationServiceException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Class with methods for creating hash password with salt
+ * <p>
+ * Hashing is CPU-heavy, so it runs on a dedicated pool of <code>password.hashThreads</code> workers instead of
+ * request threads. Up to <code>password.hashQueue</code> hashes may wait for a worker; when the queue is full hashing
+ * fails at once with <code>HashCapacityExceededException</code>, so a login storm can't occupy all request threads.
  */
 @Component
 @PropertySource("classpath:movieApp.properties")
 public class PasswordManager implements PasswordEncoder {
 
     private static final Logger LOGGER = LogManager.getLogger();
+    private static final String THREADS_PROP = "password.hashThreads";
+    private static final String QUEUE_PROP = "password.hashQueue";
+    private static final int DEFAULT_QUEUE = 64;
     private Environment environment;
+    private final ThreadPoolExecutor hashExecutor;
+    private final LongAdder hashes = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final LongAccumulator maxHashNanos = new LongAccumulator(Math::max, 0);
 
     @Autowired
     public PasswordManager(Environment environment) {
         this.environment = environment;
+        int threads = environment.getProperty(THREADS_PROP, Integer.class, Runtime.getRuntime().availableProcessors());
+        int queue = environment.getProperty(QUEUE_PROP, Integer.class, DEFAULT_QUEUE);
+        AtomicInteger counter = new AtomicInteger();
+        this.hashExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queue), runnable -> {
+            Thread thread = new Thread(runnable, "password-hash-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
@@ -58,14 +94,89 @@ public class PasswordManager implements PasswordEncoder {
     }
 
     /**
-     * Hashes given password with salt
+     * Hashes given password with salt on hashing worker pool. Caller waits for the result
+     *
+     * @param password password to hash
+     * @param salt     password salt
+     * @return string representing password in hashed form
+     * @throws IllegalArgumentException       thrown when password is corrupted or has unsupported characters
+     * @throws HashCapacityExceededException  thrown when all workers are busy and their queue is full
+     * @throws AuthenticationServiceException thrown when waiting thread is interrupted
+     */
+    private String hash(CharSequence password, byte[] salt)
+            throws IllegalArgumentException, HashCapacityExceededException, AuthenticationServiceException {
+        long submitted = System.nanoTime();
+        Future<String> result;
+        try {
+            result = hashExecutor.submit(() -> {
+                long started = System.nanoTime();
+                waitNanos.add(started - submitted);
+                try {
+                    return computeHash(password, salt);
+                } finally {
+                    long took = System.nanoTime() - started;
+                    hashes.increment();
+                    hashNanos.add(took);
+                    maxHashNanos.accumulate(took);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            LOGGER.warn("Password hashing rejected, {} hashes are queued", hashExecutor.getQueue().size());
+            throw new HashCapacityExceededException("Server is busy, please try again later");
+        }
+
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AuthenticationServiceException("Password hashing interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Password hashing failed. Error: " + e.getCause(), e.getCause());
+        }
+    }
+
+    /**
+     * Get password hashing metrics
+     *
+     * @return <code>Map</code> with metric names and their values. Times are in microseconds
+     */
+    public Map<String, Long> getStats() {
+        long count = hashes.sum();
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("threads", (long) hashExecutor.getMaximumPoolSize());
+        stats.put("active", (long) hashExecutor.getActiveCount());
+        stats.put("queued", (long) hashExecutor.getQueue().size());
+        stats.put("queueCapacity", (long) (hashExecutor.getQueue().size() + hashExecutor.getQueue().remainingCapacity()));
+        stats.put("hashes", count);
+        stats.put("rejected", rejected.sum());
+        stats.put("avgWaitMicros", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(waitNanos.sum() / count));
+        stats.put("avgHashMicros", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(hashNanos.sum() / count));
+        stats.put("maxHashMicros", TimeUnit.NANOSECONDS.toMicros(maxHashNanos.get()));
+        return stats;
+    }
+
+    /**
+     * Stops hashing workers
+     */
+    @PreDestroy
+    public void shutdown() {
+        hashExecutor.shutdownNow();
+    }
+
+    /**
+     * Computes hash of given password with salt
      *
      * @param password password to hash
      * @param salt     password salt
      * @return string representing password in hashed form
      * @throws IllegalArgumentException thrown when password is corrupted or has unsupported characters
      */
-    private String hash(CharSequence password, byte[] salt) throws IllegalArgumentException {
+    private String computeHash(CharSequence password, byte[] salt) throws IllegalArgumentException {
         SecretKeyFactory secretKeyFactory;
         try {
             secretKeyFactory = SecretKeyFactory.getInstance(environment.getProperty("password.secretKeyFactory"));
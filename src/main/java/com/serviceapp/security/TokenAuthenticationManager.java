@@ -3,8 +3,11 @@ package com.serviceapp.security;
 import com.serviceapp.security.securityEntity.TokenAuthentication;
 import com.serviceapp.security.securityEntity.UserDetailsImpl;
 import com.serviceapp.service.CustomTokenService;
+import com.serviceapp.service.TokenRevocationService;
 import io.jsonwebtoken.impl.DefaultClaims;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationServiceException;
 import org.springframework.security.core.Authentication;
@@ -13,22 +16,68 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Authentication manager implementation used to provide authentication to protected resources via JWT
+ * <p>
+ * Verified tokens are cached by their SHA-256 digest, so token reused by client is not parsed and verified again
+ * until it expires. Cache lookups take no locks: a hit only records its time. Once cache holds more than
+ * <code>token.cache.size</code> authentications, one thread removes expired ones and then the least recently used ones
+ * till a tenth of the cache is free, so eviction is approximate and cache may briefly exceed its size.
+ * <p>
+ * Only user data from the token is cached, each request gets its own principal and authorities built from it. This is
+ * deliberate: Spring Security and controllers may modify authentication of the request, and shared object would leak
+ * such changes to other requests. Building it costs a few small allocations, far less than verifying the signature.
+ * <p>
+ * Tokens revoked with <code>TokenRevocationService</code> (e.g. of banned users) are rejected, cached or not.
  */
 @Service
+@PropertySource("classpath:movieApp.properties")
 public class TokenAuthenticationManager implements AuthenticationManager {
 
+    private static final String CACHE_SIZE_PROP = "token.cache.size";
+    private static final int DEFAULT_CACHE_SIZE = 10000;
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("No specified algorithm found. Error: " + e, e);
+        }
+    });
     private CustomTokenService tokenService;
+    private TokenRevocationService revocationService;
+    private final int cacheSize;
+    /**
+     * Verified authentications by token digest
+     */
+    private final ConcurrentHashMap<String, CachedAuthentication> authentications = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
 
     @Autowired
-    public TokenAuthenticationManager(CustomTokenService tokenService) {
+    public TokenAuthenticationManager(CustomTokenService tokenService, TokenRevocationService revocationService,
+                                      Environment environment) {
         this.tokenService = tokenService;
+        this.revocationService = revocationService;
+        this.cacheSize = environment.getProperty(CACHE_SIZE_PROP, Integer.class, DEFAULT_CACHE_SIZE);
     }
 
     @Override
@@ -48,10 +97,20 @@ public class TokenAuthenticationManager implements AuthenticationManager {
      *
      * @param authentication <code>TokenAuthentication</code> object
      * @return <code>TokenAuthentication</code> object populated with full authentication data if token is valid
-     * @throws AuthenticationException thrown if token is invalid or expiration date has passed
+     * @throws AuthenticationException thrown if token is invalid, revoked or expiration date has passed
      */
     private TokenAuthentication processAuthentication(TokenAuthentication authentication) throws AuthenticationException {
         String token = authentication.getToken();
+        if (token == null) {
+            throw new AuthenticationServiceException("Token corrupted");
+        }
+
+        String digest = digest(token);
+        CachedAuthentication cached = getCached(digest);
+        if (cached != null) {
+            checkRevoked(cached.userId, cached.issuedAt);
+            return cached.authentication(token);
+        }
 
         DefaultClaims claims;
         try {
@@ -66,7 +125,12 @@ public class TokenAuthenticationManager implements AuthenticationManager {
 
         Date expirationDate = new Date(claims.get("token_expiration_date", Long.class));
         if (expirationDate.after(new Date())) {
-            return makeAuthentication(authentication, claims);
+            Long creationDate = claims.get("token_creation_date", Long.class);
+            long issuedAt = creationDate == null ? 0 : creationDate;
+            TokenAuthentication authenticated = makeAuthentication(authentication, claims);
+            checkRevoked(((UserDetailsImpl) authenticated.getPrincipal()).getId(), issuedAt);
+            putCached(digest, authenticated, issuedAt, expirationDate.getTime());
+            return authenticated;
         } else {
             throw new AuthenticationServiceException("Token expired");
         }
@@ -100,4 +164,164 @@ public class TokenAuthenticationManager implements AuthenticationManager {
         }
     }
 
+    /**
+     * Get token cache metrics
+     *
+     * @return <code>Map</code> with metric names and their values
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("size", (long) authentications.size());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        return stats;
+    }
+
+    /**
+     * Checks whether token has been revoked
+     *
+     * @param userId   id of user the token has been issued to
+     * @param issuedAt time when token has been issued in milliseconds
+     * @throws AuthenticationException thrown if token has been revoked
+     */
+    private void checkRevoked(Long userId, long issuedAt) throws AuthenticationException {
+        if (revocationService.isRevoked(userId, issuedAt)) {
+            throw new AuthenticationServiceException("Token revoked");
+        }
+    }
+
+    /**
+     * Get cached authentication for token
+     *
+     * @param digest token digest
+     * @return cached authentication or <code>null</code> if token is not in cache or has expired
+     */
+    private CachedAuthentication getCached(String digest) {
+        CachedAuthentication cached = authentications.get(digest);
+        if (cached != null && cached.expires <= System.currentTimeMillis()) {
+            if (authentications.remove(digest, cached)) {
+                expirations.increment();
+            }
+            cached = null;
+        }
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        cached.lastUsed = System.nanoTime();
+        hits.increment();
+        return cached;
+    }
+
+    /**
+     * Caches verified authentication until token expires
+     *
+     * @param digest         token digest
+     * @param authentication verified authentication
+     * @param issuedAt       time when token has been issued in milliseconds
+     * @param expires        token expiration time in milliseconds
+     */
+    private void putCached(String digest, TokenAuthentication authentication, long issuedAt, long expires) {
+        authentications.put(digest, new CachedAuthentication(authentication, issuedAt, expires));
+        // threads coming while eviction is running don't wait for it
+        if (authentications.size() > cacheSize && evictionLock.tryLock()) {
+            try {
+                evict(digest);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Removes expired authentications and then least recently used ones till a tenth of the cache is free
+     *
+     * @param added digest of just cached token. It's never evicted
+     */
+    private void evict(String added) {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, CachedAuthentication>> iterator = authentications.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue().expires <= now) {
+                iterator.remove();
+                expirations.increment();
+            }
+        }
+
+        int excess = authentications.size() - (cacheSize - cacheSize / 10);
+        if (excess <= 0) {
+            return;
+        }
+        long[] lastUsed = authentications.entrySet().stream()
+                .filter(entry -> !entry.getKey().equals(added))
+                .mapToLong(entry -> entry.getValue().lastUsed)
+                .sorted()
+                .toArray();
+        if (lastUsed.length == 0) {
+            return;
+        }
+        long threshold = lastUsed[Math.min(excess, lastUsed.length) - 1];
+        iterator = authentications.entrySet().iterator();
+        while (excess > 0 && iterator.hasNext()) {
+            Map.Entry<String, CachedAuthentication> entry = iterator.next();
+            if (entry.getValue().lastUsed <= threshold && !entry.getKey().equals(added)) {
+                iterator.remove();
+                evictions.increment();
+                excess--;
+            }
+        }
+    }
+
+    /**
+     * Computes token digest used as cache key
+     *
+     * @param token token to digest
+     * @return Base64 encoded SHA-256 digest of token
+     */
+    private static String digest(String token) {
+        return Base64.getEncoder().encodeToString(SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * User data of verified token. Immutable except for last use time, so it's shared by all requests made with the
+     * token
+     */
+    private static final class CachedAuthentication {
+
+        private final Long userId;
+        private final String userName;
+        private final String login;
+        private final List<GrantedAuthority> authorities;
+        private final long issuedAt;
+        private final long expires;
+        /**
+         * <code>System.nanoTime</code> of the last use
+         */
+        private volatile long lastUsed = System.nanoTime();
+
+        private CachedAuthentication(TokenAuthentication authentication, long issuedAt, long expires) {
+            UserDetailsImpl principal = (UserDetailsImpl) authentication.getPrincipal();
+            this.userId = principal.getId();
+            this.userName = principal.getUserName();
+            this.login = principal.getLogin();
+            this.authorities = Collections.unmodifiableList(new ArrayList<>(authentication.getAuthorities()));
+            this.issuedAt = issuedAt;
+            this.expires = expires;
+        }
+
+        /**
+         * Makes new authentication object with cached user data
+         *
+         * @param token token the authentication is made with
+         * @return full authentication object
+         */
+        private TokenAuthentication authentication(String token) {
+            Collection<GrantedAuthority> copy = new ArrayList<>(authorities);
+            UserDetailsImpl principal = new UserDetailsImpl(userId, userName, login, "randomtext", copy, false);
+            return new TokenAuthentication(token, copy, true, principal);
+        }
+    }
+
 }
@@ -5,6 +5,10 @@ import com.serviceapp.security.PasswordManager;
 import com.serviceapp.security.securityEntity.UserDetailsImpl;
 import io.jsonwebtoken.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Service;
@@ -12,22 +16,42 @@ import org.springframework.stereotype.Service;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Service class for managing authentication token
+ * Service class for managing authentication token. Token is either issued on login with password or refreshed:
+ * valid token is exchanged for a new one with the same user data, which costs only signature check instead of
+ * password hashing.
+ * <p>
+ * Token carries time of the login with password (<code>auth_time</code>), refreshed tokens keep it. Tokens are not
+ * refreshed and don't live longer than <code>token.refresh.maxAge</code> milliseconds after the login, so user has to
+ * enter password again at least that often.
  */
 @Service
+@PropertySource("classpath:movieApp.properties")
 public class CustomTokenService {
 
     private static final String KEY = "my_d_art_project_key_228";
+    private static final String MAX_AGE_PROP = "token.refresh.maxAge";
+    private static final long DEFAULT_MAX_AGE = 7 * 24 * 60 * 60 * 1000L;
     private UserDetailsService userDetailsService;
     private PasswordManager passwordManager;
+    private TokenRevocationService revocationService;
+    private final long maxAge;
+    private final LongAdder passwordLogins = new LongAdder();
+    private final LongAdder failedLogins = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder failedRefreshes = new LongAdder();
 
     @Autowired
-    public CustomTokenService(UserDetailsService userDetailsService, PasswordManager passwordManager) {
+    public CustomTokenService(UserDetailsService userDetailsService, PasswordManager passwordManager,
+                              TokenRevocationService revocationService, Environment environment) {
         this.userDetailsService = userDetailsService;
         this.passwordManager = passwordManager;
+        this.revocationService = revocationService;
+        this.maxAge = environment.getProperty(MAX_AGE_PROP, Long.class, DEFAULT_MAX_AGE);
     }
 
     /**
@@ -56,8 +80,10 @@ public class CustomTokenService {
 
         UserDetailsImpl user = (UserDetailsImpl) userDetailsService.loadUserByUsername(login);
         if (!passwordManager.matches(password, user.getPassword())) {
+            failedLogins.increment();
             throw new PasswordMismatchException("Authentication error");
         }
+        passwordLogins.increment();
 
         Calendar calendar = Calendar.getInstance();
         calendar.add(Calendar.DAY_OF_MONTH, 1);
@@ -69,6 +95,78 @@ public class CustomTokenService {
         return jwtBuilder.signWith(SignatureAlgorithm.HS512, KEY).compact();
     }
 
+    /**
+     * Exchanges valid token for a new one with the same user data and new expiration date. Password is not checked.
+     * New token expires no later than <code>token.refresh.maxAge</code> after the login with password
+     *
+     * @param token valid (not expired and not revoked) token
+     * @return new user authentication token
+     * @throws AuthenticationException thrown if token is corrupted, expired, revoked, issued to banned user or
+     *                                 issued on login older than <code>token.refresh.maxAge</code>
+     */
+    public String refreshToken(String token) throws AuthenticationException {
+        Claims claims;
+        try {
+            claims = parseToken(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            failedRefreshes.increment();
+            throw new AuthenticationServiceException("Token corrupted");
+        }
+
+        Long expirationDate = claims.get("token_expiration_date", Long.class);
+        Long creationDate = claims.get("token_creation_date", Long.class);
+        Long authTime = claims.get("auth_time", Long.class);
+        Integer id = claims.get("user_id", Integer.class);
+        if (expirationDate == null || creationDate == null || authTime == null || id == null) {
+            failedRefreshes.increment();
+            throw new AuthenticationServiceException("Invalid token");
+        }
+        long now = System.currentTimeMillis();
+        if (expirationDate <= now) {
+            failedRefreshes.increment();
+            throw new AuthenticationServiceException("Token expired");
+        }
+        if (authTime + maxAge <= now) {
+            failedRefreshes.increment();
+            throw new AuthenticationServiceException("Login required");
+        }
+        if (Boolean.TRUE.equals(claims.get("user_banned", Boolean.class))
+                || revocationService.isRevoked(Long.valueOf(id), creationDate)) {
+            failedRefreshes.increment();
+            throw new AuthenticationServiceException("Token revoked");
+        }
+
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(now);
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        Date expiration = new Date(Math.min(calendar.getTimeInMillis(), authTime + maxAge));
+
+        Map<String, Object> tokenData = new HashMap<>(claims);
+        tokenData.put("token_creation_date", now);
+        tokenData.put("token_expiration_date", expiration);
+
+        JwtBuilder jwtBuilder = Jwts.builder();
+        jwtBuilder.setExpiration(expiration);
+        jwtBuilder.setClaims(tokenData);
+
+        refreshes.increment();
+        return jwtBuilder.signWith(SignatureAlgorithm.HS512, KEY).compact();
+    }
+
+    /**
+     * Get token issuing metrics. Distinguishes tokens issued on login with password from refreshed ones
+     *
+     * @return <code>Map</code> with metric names and their values
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("passwordLogins", passwordLogins.sum());
+        stats.put("failedLogins", failedLogins.sum());
+        stats.put("refreshes", refreshes.sum());
+        stats.put("failedRefreshes", failedRefreshes.sum());
+        return stats;
+    }
+
     /**
      * Parses user data to <code>Map</code> which serves as token data (claims).
      *
@@ -86,7 +184,9 @@ public class CustomTokenService {
         tokenData.put("user_banned", user.isBanned());
         tokenData.put("user_authorities", user.getAuthorities());
 
-        tokenData.put("token_creation_date", new Date().getTime());
+        long now = new Date().getTime();
+        tokenData.put("auth_time", now);
+        tokenData.put("token_creation_date", now);
         tokenData.put("token_expiration_date", calendar.getTime());
 
         return tokenData;
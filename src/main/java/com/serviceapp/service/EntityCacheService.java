@@ -0,0 +1,66 @@
+package com.serviceapp.service;
+
+import com.serviceapp.entity.Movie;
+import com.serviceapp.entity.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.NaturalIdCacheStatistics;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Service reporting usage of second level cache of Hibernate entities. Cache sizes are set in
+ * <code>ehcache.xml</code>.
+ */
+@Service
+public class EntityCacheService {
+
+    private static final String[] ENTITY_REGIONS = {Movie.class.getName(), User.class.getName()};
+    private static final String[] NATURAL_ID_REGIONS = {User.class.getName() + "##NaturalId"};
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public EntityCacheService(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Get metrics of second level cache: hits, misses and puts of each cached entity and of login to user id
+     * resolution. Metrics are collected only if Hibernate statistics are enabled
+     *
+     * @return metric names and values
+     */
+    public Map<String, Long> getStats() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hits", statistics.getSecondLevelCacheHitCount());
+        stats.put("misses", statistics.getSecondLevelCacheMissCount());
+        stats.put("puts", statistics.getSecondLevelCachePutCount());
+        for (String region : ENTITY_REGIONS) {
+            SecondLevelCacheStatistics regionStatistics = statistics.getSecondLevelCacheStatistics(region);
+            if (regionStatistics != null) {
+                String name = region.substring(region.lastIndexOf('.') + 1);
+                stats.put(name + ".hits", regionStatistics.getHitCount());
+                stats.put(name + ".misses", regionStatistics.getMissCount());
+                stats.put(name + ".puts", regionStatistics.getPutCount());
+            }
+        }
+        for (String region : NATURAL_ID_REGIONS) {
+            NaturalIdCacheStatistics regionStatistics = statistics.getNaturalIdCacheStatistics(region);
+            if (regionStatistics != null) {
+                String name = region.substring(region.lastIndexOf('.') + 1, region.indexOf('#'));
+                stats.put(name + ".naturalId.hits", regionStatistics.getHitCount());
+                stats.put(name + ".naturalId.misses", regionStatistics.getMissCount());
+                stats.put(name + ".naturalId.puts", regionStatistics.getPutCount());
+            }
+        }
+        stats.put("naturalIdQueries", statistics.getNaturalIdQueryExecutionCount());
+        return stats;
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.serviceapp.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.function.Consumer;
+
+/**
+ * Service for exporting whole tables. Entities are read with forward-only cursor and detached one by one, so memory
+ * used by export doesn't depend on table size (unlike <code>findAll()</code> which loads all entities into one
+ * persistence context). Export runs in read-only transaction, so it reads from replica when there is one.
+ * <p>
+ * Rows are fetched from database by <code>export.fetchSize</code> rows. Default value
+ * (<code>Integer.MIN_VALUE</code>) makes MySQL driver stream rows one by one instead of reading the whole result
+ * into memory. Set positive value for other databases or for MySQL connection with <code>useCursorFetch=true</code>.
+ */
+@Service
+@PropertySource("classpath:movieApp.properties")
+public class ExportService {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final String FETCH_SIZE_PROP = "export.fetchSize";
+    private static final int DEFAULT_FETCH_SIZE = Integer.MIN_VALUE;
+    private final EntityManagerFactory entityManagerFactory;
+    private final int fetchSize;
+
+    @Autowired
+    public ExportService(EntityManagerFactory entityManagerFactory, Environment environment) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.fetchSize = environment.getProperty(FETCH_SIZE_PROP, Integer.class, DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Passes all entities of given type ordered by id to consumer. Blocks until all entities are passed. Entities are
+     * detached, so changing them doesn't affect database
+     *
+     * @param type     entity class
+     * @param consumer receives entities one by one. Export stops if consumer throws exception (exception is
+     *                 rethrown)
+     * @param <T>      entity type
+     * @return number of exported entities
+     */
+    @Transactional(readOnly = true)
+    public <T> long export(Class<T> type, Consumer<T> consumer) {
+        Session session = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory)
+                .unwrap(Session.class);
+        long exported = 0;
+        try (ScrollableResults results = session
+                .createQuery("select e from " + type.getName() + " e order by e.id", type)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                T entity = type.cast(results.get(0));
+                session.evict(entity);
+                consumer.accept(entity);
+                exported++;
+            }
+        }
+        LOGGER.info("{} {} entities exported", exported, type.getSimpleName());
+        return exported;
+    }
+
+}
@@ -0,0 +1,214 @@
+package com.serviceapp.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.serviceapp.entity.Movie;
+import com.serviceapp.entity.dto.MovieTransferObject;
+import com.serviceapp.entity.util.ImportReport;
+import com.serviceapp.util.EntityHelper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Service for importing large amounts of movies. Movies are read one by one from JSON array or newline delimited
+ * JSON (one movie per line) with streaming parser, so the whole input is never kept in memory. Valid movies are
+ * saved in transactions of <code>movies.import.batchSize</code> movies which are sent to database as JDBC batches.
+ * Persistence context is cleared after each transaction.
+ * <p>
+ * If transaction fails, its movies are saved again one by one to find rejected ones. Malformed JSON stops import,
+ * movies saved before are kept.
+ */
+@Service
+@PropertySource("classpath:movieApp.properties")
+public class MovieImportService {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final String BATCH_SIZE_PROP = "movies.import.batchSize";
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private final MovieService movieService;
+    private final EntityManagerFactory entityManagerFactory;
+    private final Validator validator;
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final int batchSize;
+
+    @Autowired
+    public MovieImportService(MovieService movieService, EntityManagerFactory entityManagerFactory,
+                              Validator validator, Environment environment) {
+        this.movieService = movieService;
+        this.entityManagerFactory = entityManagerFactory;
+        this.validator = validator;
+        this.batchSize = environment.getProperty(BATCH_SIZE_PROP, Integer.class, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Reads movies from input and saves valid ones. Blocks until input is read to the end.
+     *
+     * @param inputStream JSON array of movies or newline delimited JSON movies. Movie ids and ratings are ignored
+     * @param listener    receives report for each rejected record and the final report (with <code>finished</code>
+     *                    flag set). Called from the thread which runs import
+     * @return final report of import. Contains error message if import has been interrupted
+     */
+    public ImportReport importMovies(InputStream inputStream, Consumer<ImportReport> listener) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+        Counters counters = new Counters();
+        List<Movie> batch = new ArrayList<>(batchSize);
+        List<Integer> records = new ArrayList<>(batchSize);
+        String error = null;
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+            int record = 0;
+            while (token != null && token != JsonToken.END_ARRAY) {
+                record++;
+                JsonNode node = parser.readValueAsTree();
+                Movie movie = toMovie(node, record, counters, listener);
+                if (movie != null) {
+                    batch.add(movie);
+                    records.add(record);
+                    if (batch.size() == batchSize) {
+                        save(entityManager, batch, records, counters, listener);
+                    }
+                }
+                token = parser.nextToken();
+            }
+        } catch (IOException e) {
+            error = "Malformed JSON: " + e.getMessage();
+            LOGGER.warn("Movie import interrupted", e);
+        } finally {
+            try {
+                save(entityManager, batch, records, counters, listener);
+            } finally {
+                entityManager.close();
+            }
+        }
+
+        ImportReport report = counters.report();
+        report.setFinished(true);
+        report.setError(error);
+        listener.accept(report);
+        LOGGER.info("Movie import finished: {} movies imported, {} records rejected", report.getImported(),
+                report.getRejected());
+        return report;
+    }
+
+    /**
+     * Converts record to movie and validates it
+     *
+     * @return movie to save or <code>null</code> if record has been rejected
+     */
+    private Movie toMovie(JsonNode node, int record, Counters counters, Consumer<ImportReport> listener) {
+        MovieTransferObject movie;
+        try {
+            movie = node.isObject() ? objectMapper.treeToValue(node, MovieTransferObject.class) : null;
+        } catch (JsonProcessingException e) {
+            movie = null;
+        }
+        if (movie == null) {
+            reject(record, Collections.singletonList("Movie data expected"), counters, listener);
+            return null;
+        }
+        Set<ConstraintViolation<MovieTransferObject>> violations = validator.validate(movie);
+        if (!violations.isEmpty()) {
+            reject(record, violations.stream().map(ConstraintViolation::getMessage).collect(Collectors.toList()),
+                    counters, listener);
+            return null;
+        }
+        movie.setId(null);
+        movie.setRating(0D);
+        return EntityHelper.dtoToMovie(movie);
+    }
+
+    /**
+     * Saves movies in one transaction. If it fails, movies are saved one by one in separate transactions and failed
+     * ones are rejected. Batch is emptied afterwards
+     */
+    private void save(EntityManager entityManager, List<Movie> batch, List<Integer> records, Counters counters,
+                      Consumer<ImportReport> listener) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Movie> saved = new ArrayList<>(batch.size());
+        if (persist(entityManager, batch)) {
+            saved.addAll(batch);
+        } else {
+            for (int i = 0; i < batch.size(); i++) {
+                Movie movie = batch.get(i);
+                movie.setId(null);
+                if (persist(entityManager, Collections.singletonList(movie))) {
+                    saved.add(movie);
+                } else {
+                    reject(records.get(i), Collections.singletonList("Unable to save movie"), counters, listener);
+                }
+            }
+        }
+        counters.imported += saved.size();
+        movieService.moviesImported(saved);
+        batch.clear();
+        records.clear();
+    }
+
+    private static boolean persist(EntityManager entityManager, List<Movie> movies) {
+        try {
+            entityManager.getTransaction().begin();
+            movies.forEach(entityManager::persist);
+            entityManager.getTransaction().commit();
+            return true;
+        } catch (RuntimeException e) {
+            LOGGER.debug("Unable to save imported movies", e);
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            return false;
+        } finally {
+            entityManager.clear();
+        }
+    }
+
+    private static void reject(int record, List<String> errors, Counters counters, Consumer<ImportReport> listener) {
+        counters.rejected++;
+        ImportReport report = counters.report();
+        report.setRecord(record);
+        report.setErrors(errors);
+        listener.accept(report);
+    }
+
+    private static class Counters {
+
+        private long imported;
+        private long rejected;
+
+        private ImportReport report() {
+            ImportReport report = new ImportReport();
+            report.setImported(imported);
+            report.setRejected(rejected);
+            return report;
+        }
+
+    }
+
+}
@@ -0,0 +1,222 @@
+package com.serviceapp.service;
+
+import com.serviceapp.entity.Movie;
+import com.serviceapp.entity.util.RatingAggregate;
+import com.serviceapp.repository.MovieRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * In-memory list of movies with highest ratings. Keeps a buffer of <code>movies.top.buffer</code> best movies which
+ * is updated when movie ratings change and when movies are added, edited or deleted, and publishes first
+ * <code>movies.top.size</code> of them as immutable list. Reads never lock and never access database.
+ * <p>
+ * Buffer always holds the best movies of the whole catalog: a movie that drops below the buffer leaves it, and the
+ * buffer is reloaded from database once it becomes smaller than published list. Buffer is also reloaded at startup
+ * and every <code>movies.top.reconcileInterval</code> milliseconds to repair changes made outside of this
+ * application. Movies with equal rating are ordered by id (newer first).
+ */
+@Service
+@PropertySource("classpath:movieApp.properties")
+public class MovieLeaderboard {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final String SIZE_PROP = "movies.top.size";
+    private static final String BUFFER_PROP = "movies.top.buffer";
+    private static final int DEFAULT_SIZE = 10;
+    private static final int DEFAULT_BUFFER = 50;
+    private static final Comparator<Movie> BY_RATING = Comparator
+            .comparing((Movie movie) -> movie.getRating() == null ? -1d : movie.getRating()).reversed()
+            .thenComparing(Movie::getId, Comparator.reverseOrder());
+    private final MovieRepository movieRepository;
+    private final int size;
+    private final int bufferSize;
+    /**
+     * Best movies sorted by rating. Guarded by <code>this</code>
+     */
+    private final List<Movie> buffer = new ArrayList<>();
+    /**
+     * Whether buffer holds all movies of the catalog (there are fewer movies than buffer size). Guarded by
+     * <code>this</code>
+     */
+    private boolean complete;
+    private volatile List<Movie> top = Collections.emptyList();
+
+    @Autowired
+    public MovieLeaderboard(MovieRepository movieRepository, Environment environment) {
+        this.movieRepository = movieRepository;
+        this.size = environment.getProperty(SIZE_PROP, Integer.class, DEFAULT_SIZE);
+        this.bufferSize = Math.max(size, environment.getProperty(BUFFER_PROP, Integer.class, DEFAULT_BUFFER));
+    }
+
+    /**
+     * Get movies with highest ratings
+     *
+     * @return immutable <code>List</code> of <code>movies.top.size</code> movies with highest ratings
+     */
+    public List<Movie> getTop() {
+        return top;
+    }
+
+    /**
+     * Reloads buffer of best movies from database
+     */
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${movies.top.reconcileInterval:300000}",
+            initialDelayString = "${movies.top.reconcileInterval:300000}")
+    public synchronized void rebuild() {
+        List<Movie> movies = movieRepository.findTopRated(new PageRequest(0, bufferSize));
+        buffer.clear();
+        buffer.addAll(movies);
+        complete = movies.size() < bufferSize;
+        publish();
+        LOGGER.debug("Top rated movies reloaded");
+    }
+
+    /**
+     * Applies changed movie (new movie, edited movie or movie with new rating)
+     *
+     * @param movie current state of movie. Ignored if <code>null</code>
+     */
+    public synchronized void update(Movie movie) {
+        if (movie == null || movie.getId() == null) {
+            return;
+        }
+        int index = indexOf(movie.getId());
+        if (index >= 0) {
+            buffer.remove(index);
+        }
+        if (fits(movie)) {
+            int position = Collections.binarySearch(buffer, movie, BY_RATING);
+            buffer.add(position < 0 ? -position - 1 : position, movie);
+            if (buffer.size() > bufferSize) {
+                buffer.remove(bufferSize);
+                complete = false;
+            }
+        }
+        if (index < 0 || !reloadIfShort()) {
+            publish();
+        }
+    }
+
+    /**
+     * Applies new rating of a movie. Movie data is taken from buffer, so database is accessed only when the movie is
+     * not in buffer yet and its new rating takes it there
+     *
+     * @param aggregate new rating of movie with its aggregate. Ignored if <code>null</code>
+     * @param loader    loads movie by id, used when movie enters buffer
+     */
+    public synchronized void updateRating(RatingAggregate aggregate, Function<Long, Movie> loader) {
+        if (aggregate == null || aggregate.getMovieId() == null) {
+            return;
+        }
+        int index = indexOf(aggregate.getMovieId());
+        if (index >= 0) {
+            update(copy(buffer.get(index), aggregate.getRating(), aggregate.getReviewCount(),
+                    aggregate.getRatingSum()));
+            return;
+        }
+        Movie probe = new Movie();
+        probe.setId(aggregate.getMovieId());
+        probe.setRating(aggregate.getRating());
+        if (fits(probe)) {
+            update(loader.apply(aggregate.getMovieId()));
+        }
+    }
+
+    /**
+     * Applies edited data of a movie. Rating is not changed by editing, so rating known to buffer is kept
+     *
+     * @param movie edited movie. Ignored if <code>null</code> or not in buffer
+     */
+    public synchronized void updateDetails(Movie movie) {
+        int index = movie == null || movie.getId() == null ? -1 : indexOf(movie.getId());
+        if (index >= 0) {
+            Movie buffered = buffer.get(index);
+            buffer.set(index, copy(movie, buffered.getRating(), buffered.getReviewCount(), buffered.getRatingSum()));
+            publish();
+        }
+    }
+
+    /**
+     * Removes deleted movie
+     *
+     * @param movieId id of deleted movie
+     */
+    public synchronized void remove(Long movieId) {
+        int index = movieId == null ? -1 : indexOf(movieId);
+        if (index >= 0) {
+            buffer.remove(index);
+            if (!reloadIfShort()) {
+                publish();
+            }
+        }
+    }
+
+    /**
+     * Reloads buffer if it has become shorter than published list and some movies may be missing in it
+     *
+     * @return <code>true</code> if buffer has been reloaded
+     */
+    private boolean reloadIfShort() {
+        if (!complete && buffer.size() < size) {
+            rebuild();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether movie which is not in buffer belongs there
+     */
+    private boolean fits(Movie movie) {
+        return complete || buffer.size() < bufferSize
+                && (buffer.isEmpty() || BY_RATING.compare(movie, buffer.get(buffer.size() - 1)) < 0)
+                || buffer.size() == bufferSize && BY_RATING.compare(movie, buffer.get(bufferSize - 1)) < 0;
+    }
+
+    /**
+     * Copies movie with given rating. Published movies are never changed, as they may be serialized at the moment
+     */
+    private static Movie copy(Movie movie, Double rating, Long reviewCount, Long ratingSum) {
+        Movie copy = new Movie();
+        copy.setId(movie.getId());
+        copy.setMovieName(movie.getMovieName());
+        copy.setDirector(movie.getDirector());
+        copy.setReleaseDate(movie.getReleaseDate());
+        copy.setPosterURL(movie.getPosterURL());
+        copy.setTrailerURL(movie.getTrailerURL());
+        copy.setDescription(movie.getDescription());
+        copy.setRating(rating);
+        copy.setReviewCount(reviewCount);
+        copy.setRatingSum(ratingSum);
+        return copy;
+    }
+
+    private int indexOf(Long movieId) {
+        for (int i = 0; i < buffer.size(); i++) {
+            if (movieId.equals(buffer.get(i).getId())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void publish() {
+        top = Collections.unmodifiableList(new ArrayList<>(buffer.subList(0, Math.min(size, buffer.size()))));
+    }
+
+}
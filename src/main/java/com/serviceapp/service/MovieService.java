@@ -1,16 +1,29 @@
 package com.serviceapp.service;
 
 import com.serviceapp.entity.Movie;
+import com.serviceapp.entity.dto.MovieShortDto;
+import com.serviceapp.entity.dto.MovieSuggestionDto;
+import com.serviceapp.entity.util.RatingAggregate;
 import com.serviceapp.repository.MovieRepository;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Service class that accesses repository layer for movie data
@@ -26,10 +39,32 @@ public class MovieService {
      */
     private static final String BLANK_SYMBOL = " ";
     private final MovieRepository movieRepository;
+    private final MovieLeaderboard movieLeaderboard;
+    private final MovieTitleIndex movieTitleIndex;
+    private final MovieTitleTrie movieTitleTrie;
+    private final SearchResultCache searchResultCache;
 
     @Autowired
-    public MovieService(MovieRepository movieRepository) {
+    public MovieService(MovieRepository movieRepository, MovieLeaderboard movieLeaderboard,
+                        MovieTitleIndex movieTitleIndex, MovieTitleTrie movieTitleTrie,
+                        SearchResultCache searchResultCache) {
         this.movieRepository = movieRepository;
+        this.movieLeaderboard = movieLeaderboard;
+        this.movieTitleIndex = movieTitleIndex;
+        this.movieTitleTrie = movieTitleTrie;
+        this.searchResultCache = searchResultCache;
+    }
+
+    /**
+     * Fills rating aggregate for movies created before it has been introduced. Runs once on startup and does
+     * nothing when all movies already have it.
+     */
+    @PostConstruct
+    public void initRatingAggregates() {
+        int initialized = movieRepository.initRatingAggregates();
+        if (initialized > 0) {
+            LOGGER.info("Rating aggregate initialized for {} movies", initialized);
+        }
     }
 
     /**
@@ -41,7 +76,30 @@ public class MovieService {
      * <code>Movie</code> object. Returns <code>null</code> if trying to save <code>null</code>
      */
     public Movie createMovie(Movie movie) {
-        return movie == null ? null : movieRepository.saveAndFlush(movie);
+        if (movie == null) {
+            return null;
+        }
+        Movie created = movieRepository.saveAndFlush(movie);
+        movieLeaderboard.update(created);
+        movieTitleIndex.update(created);
+        movieTitleTrie.update(created);
+        searchResultCache.invalidate(created.getMovieName());
+        return created;
+    }
+
+    /**
+     * Passes movies saved bypassing this service (e.g. by bulk import) to in-memory structures and drops cached search
+     * results which may miss them
+     *
+     * @param movies saved movies
+     */
+    public void moviesImported(List<Movie> movies) {
+        for (Movie movie : movies) {
+            movieLeaderboard.update(movie);
+            movieTitleIndex.update(movie);
+            movieTitleTrie.update(movie);
+            searchResultCache.invalidate(movie.getMovieName());
+        }
     }
 
     /**
@@ -53,7 +111,81 @@ public class MovieService {
      * <code>Movie</code> object. Returns <code>null</code> if trying to update <code>null</code>
      */
     public Movie updateMovie(Movie movie) {
-        return movie == null ? null : movieRepository.saveAndFlush(movie);
+        if (movie == null) {
+            return null;
+        }
+        String oldTitle = movieTitleIndex.getTitle(movie.getId());
+        Movie updated = movieRepository.saveAndFlush(movie);
+        movieTitleIndex.update(updated);
+        searchResultCache.invalidate(oldTitle, updated.getMovieName());
+        // rating is not updatable with entity, so in-memory structures keep the rating they know
+        movieLeaderboard.updateDetails(updated);
+        movieTitleTrie.updateTitle(updated.getId(), updated.getMovieName());
+        return updated;
+    }
+
+    /**
+     * Updates movie rating adding reviews to its rating aggregate (review count and ratings sum). Update is done with
+     * one atomic SQL statement, so its cost doesn't depend on number of movie reviews.
+     * <p>
+     * New rating is read back and passed to in-memory structures in the same transaction, while movie row is still
+     * locked by the update, so concurrent updates of one movie reach them in the order they are written.
+     *
+     * @param movieId id of movie to update rating. Must not be <code>null</code>, otherwise returns <code>false</code>
+     * @param reviews number of added reviews. Negative value means reviews have been deleted
+     * @param ratings sum of ratings given with added (or deleted if negative) reviews
+     * @return <code>true</code> if movie rating has been updated, <code>false</code> if there is no such movie
+     */
+    @Transactional
+    public Boolean updateRating(Long movieId, long reviews, long ratings) {
+        if (movieId == null || movieRepository.updateRating(movieId, reviews, ratings) == 0) {
+            return false;
+        }
+        ratingChanged(movieRepository.findRatingAggregate(movieId));
+        return true;
+    }
+
+    /**
+     * Recalculates movie rating and its aggregate from all movie reviews. Serves to repair incrementally updated
+     * rating. Done with one SQL statement, so concurrent review posts are not lost. In-memory structures are updated
+     * the same way as by <code>updateRating</code>.
+     *
+     * @param movieId id of movie to recalculate rating. Must not be <code>null</code>, otherwise returns
+     *                <code>false</code>
+     * @return <code>true</code> if movie rating has been recalculated, <code>false</code> if there is no such movie
+     */
+    @Transactional
+    public Boolean recountRating(Long movieId) {
+        if (movieId == null || movieRepository.recountRating(movieId) == 0) {
+            return false;
+        }
+        ratingChanged(movieRepository.findRatingAggregate(movieId));
+        return true;
+    }
+
+    /**
+     * Reloads in-memory data that depends on movie ratings (top rated movies and title suggestions). Used after
+     * ratings have been changed bypassing this service
+     */
+    public void ratingsReloaded() {
+        movieLeaderboard.rebuild();
+        movieTitleTrie.rebuild();
+        searchResultCache.clear();
+    }
+
+    /**
+     * Passes changed rating to in-memory structures ranking movies by rating and drops cached search results showing
+     * its old value
+     *
+     * @param aggregate current rating of movie
+     */
+    private void ratingChanged(RatingAggregate aggregate) {
+        if (aggregate == null) {
+            return;
+        }
+        movieLeaderboard.updateRating(aggregate, movieRepository::findOne);
+        movieTitleTrie.updateRating(aggregate.getMovieId(), aggregate.getRating());
+        searchResultCache.invalidate(movieTitleIndex.getTitle(aggregate.getMovieId()));
     }
 
     /**
@@ -63,7 +195,12 @@ public class MovieService {
      */
     public void deleteMovie(Movie movie) {
         if (movie != null) {
+            String oldTitle = movieTitleIndex.getTitle(movie.getId());
             movieRepository.delete(movie);
+            movieLeaderboard.remove(movie.getId());
+            movieTitleIndex.remove(movie.getId());
+            movieTitleTrie.remove(movie.getId());
+            searchResultCache.invalidate(oldTitle, movie.getMovieName());
         }
     }
 
@@ -78,7 +215,8 @@ public class MovieService {
     }
 
     /**
-     * Get all instances of the <code>Movie</code> type.
+     * Get all instances of the <code>Movie</code> type. All of them are loaded into memory at once, use
+     * <code>ExportService</code> to walk through all of them.
      *
      * @return all <code>Movie</code> instances
      */
@@ -106,33 +244,132 @@ public class MovieService {
     }
 
     /**
-     * Get movies with given title (or its part) in database. Spaces, empty symbols and empty string will result in
-     * <code>null</code> output.
+     * Get shortened data (for movie lists) of movies with given title (or its part). Spaces, empty symbols and empty
+     * string will result in <code>null</code> output. Matching movie ids are resolved with in-memory title index, only
+     * movies of requested page are loaded from database. Movies are ordered by id. If <code>pageable</code> defines
+     * sorting or index is not ready, search is done in database. Either way title is matched as plain substring ignoring
+     * case. Pages found with index are cached until a movie which title contains the term is changed.
      *
      * @param title    movie title (or its part) to look for. Must not be <code>null</code> (or will return
      *                 <code>null</code>)
      * @param pageable object implementing <code>Pageable</code> interface. Serves for pagination and sorting
-     * @return iterable <code>Page</code> with <code>Movie</code> objects matching search param if any found and limited
-     * by params specified by <code>pageable</code>, otherwise returns <code>null</code>
+     * @return iterable <code>Page</code> with <code>MovieShortDto</code> objects matching search param if any found and
+     * limited by params specified by <code>pageable</code>, otherwise returns <code>null</code>
+     * @see MovieTitleIndex
+     * @see SearchResultCache
      */
-    public Page<Movie> findMovieByTitle(String title, Pageable pageable) {
-        if (title != null) {
-            if (title.isEmpty() || BLANK_SYMBOL.equals(title) || title.trim().isEmpty()) {
-                return null;
-            }
-        } else {
+    public Page<MovieShortDto> findMovieShortByTitle(String title, Pageable pageable) {
+        if (title == null || title.isEmpty() || BLANK_SYMBOL.equals(title) || title.trim().isEmpty()) {
             return null;
         }
-        return movieRepository.findByMovieNameContainsAllIgnoreCase(title, pageable);
+        if (pageable == null || pageable.getSort() != null || !movieTitleIndex.isReady()) {
+            return movieRepository.findShortByTitle(likeLiteral(title), pageable);
+        }
+
+        Page<MovieShortDto> cached = searchResultCache.get(title, pageable);
+        if (cached != null) {
+            return cached;
+        }
+        long version = searchResultCache.version();
+        Page<MovieShortDto> found = findByIndex(title, pageable,
+                ids -> orderByIds(ids, movieRepository.findShortByIds(ids), MovieShortDto::getId));
+        searchResultCache.put(title, pageable, found, version);
+        return found;
     }
 
     /**
-     * Get 10 movies with highest ratings
+     * Get shortened data (for movie lists) of movies with given title (or its part) without counting all found
+     * movies. Works like <code>findMovieShortByTitle</code>, but database search (used when <code>pageable</code>
+     * defines sorting or index is not ready) doesn't run count query.
+     *
+     * @param title    movie title (or its part) to look for. Must not be <code>null</code> (or will return
+     *                 <code>null</code>)
+     * @param pageable object implementing <code>Pageable</code> interface. Serves for pagination and sorting
+     * @return <code>Slice</code> with <code>MovieShortDto</code> objects matching search param limited by params
+     * specified by <code>pageable</code>, otherwise returns <code>null</code>
+     * @see #findMovieShortByTitle(String, Pageable)
+     */
+    public Slice<MovieShortDto> findMovieShortByTitleSliced(String title, Pageable pageable) {
+        if (title == null || title.isEmpty() || BLANK_SYMBOL.equals(title) || title.trim().isEmpty()) {
+            return null;
+        }
+        if (pageable == null || pageable.getSort() != null || !movieTitleIndex.isReady()) {
+            return movieRepository.findShortSliceByTitle(likeLiteral(title), pageable);
+        }
+        // index knows number of found movies, so page is as cheap as slice and may be already cached
+        Page<MovieShortDto> page = findMovieShortByTitle(title, pageable);
+        return new SliceImpl<>(page.getContent(), pageable, page.hasNext());
+    }
+
+    /**
+     * Finds ids of movies with given title in title index and loads requested page of them
+     *
+     * @param title    movie title (or its part) to look for
+     * @param pageable requested page. Must not be <code>null</code>
+     * @param loader   loads movies with given ids keeping order of ids
+     * @return <code>Page</code> of loaded movies ordered by id
+     */
+    private <T> Page<T> findByIndex(String title, Pageable pageable, Function<List<Long>, List<T>> loader) {
+        List<Long> ids = movieTitleIndex.find(title);
+        int from = Math.min(pageable.getOffset(), ids.size());
+        int to = Math.min(from + pageable.getPageSize(), ids.size());
+        List<Long> pageIds = ids.subList(from, to);
+        return new PageImpl<>(pageIds.isEmpty() ? new ArrayList<>() : loader.apply(pageIds), pageable, ids.size());
+    }
+
+    /**
+     * Orders loaded movies as given ids. Movies that no longer exist are skipped
+     *
+     * @param ids    ids of movies in required order
+     * @param movies loaded movies in any order
+     * @param id     gets id of movie
+     * @return <code>List</code> of movies ordered as ids
+     */
+    /**
+     * Escapes LIKE wildcards in title, so database search matches it as plain substring like title index does
+     *
+     * @param title title (or its part) to look for
+     * @return title to pass to title search of <code>MovieRepository</code>
+     */
+    private static String likeLiteral(String title) {
+        StringBuilder literal = new StringBuilder(title.length());
+        for (char c : title.toCharArray()) {
+            if (c == '%' || c == '_' || c == MovieRepository.TITLE_ESCAPE) {
+                literal.append(MovieRepository.TITLE_ESCAPE);
+            }
+            literal.append(c);
+        }
+        return literal.toString();
+    }
+
+    private static <T> List<T> orderByIds(List<Long> ids, List<T> movies, Function<T, Long> id) {
+        Map<Long, T> byId = movies.stream().collect(Collectors.toMap(id, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Get movies which title has a word starting with given prefix. Served from memory without accessing database
+     *
+     * @param prefix beginning of title word to look for. If <code>null</code> or blank - empty list is returned
+     * @param limit  maximum number of suggestions
+     * @return <code>List</code> of suggestions ranked by rating
+     * @see MovieTitleTrie
+     */
+    public List<MovieSuggestionDto> suggestByTitle(String prefix, int limit) {
+        return movieTitleTrie.suggest(prefix, limit);
+    }
+
+    /**
+     * Get 10 movies with highest ratings. Served from memory without accessing database
      *
      * @return List of 10 <code>Movie</code> objects with highest ratings
+     * @see MovieLeaderboard
      */
     public List<Movie> findTopRated() {
-        return movieRepository.findFirst10ByOrderByRatingDesc();
+        return movieLeaderboard.getTop();
     }
 
     /**
@@ -147,4 +384,44 @@ public class MovieService {
         return movieRepository.findAll(pageable == null ? new PageRequest(0, 5) : pageable);
     }
 
+    /**
+     * Get shortened data (for movie lists) of movies limited by <code>pageable</code> property
+     *
+     * @param pageable object implementing <code>Pageable</code> interface. Serves for pagination and sorting. If
+     *                 <code>null</code> - default scenario will be used (first 5 results).
+     * @return iterable <code>Page</code> with <code>MovieShortDto</code> objects limited by params specified by
+     * <code>pageable</code>
+     */
+    public Page<MovieShortDto> findAllShortPaged(Pageable pageable) {
+        return movieRepository.findAllShort(pageable == null ? new PageRequest(0, 5) : pageable);
+    }
+
+    /**
+     * Get shortened data (for movie lists) of movies limited by <code>pageable</code> property without counting all
+     * movies
+     *
+     * @param pageable object implementing <code>Pageable</code> interface. Serves for pagination and sorting. If
+     *                 <code>null</code> - default scenario will be used (first 5 results).
+     * @return <code>Slice</code> with <code>MovieShortDto</code> objects limited by params specified by
+     * <code>pageable</code>
+     */
+    public Slice<MovieShortDto> findAllShortSliced(Pageable pageable) {
+        return movieRepository.findAllShortSliced(pageable == null ? new PageRequest(0, 5) : pageable);
+    }
+
+    /**
+     * Get shortened data (for movie lists) of page of movies ordered by id that starts right after movie with given
+     * id, so deep pages cost the same as the first one
+     *
+     * @param id    id of the last movie from previous page. <code>null</code> to get the first page
+     * @param limit max number of movies to get
+     * @return <code>List</code> of movies in ascending id order. Empty if none found
+     */
+    public List<MovieShortDto> findAllShortAfter(Long id, int limit) {
+        PageRequest pageRequest = new PageRequest(0, limit);
+        return id == null
+                ? movieRepository.findShortFirstPage(pageRequest)
+                : movieRepository.findShortPageAfter(id, pageRequest);
+    }
+
 }
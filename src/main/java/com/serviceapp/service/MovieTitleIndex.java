@@ -0,0 +1,172 @@
+package com.serviceapp.service;
+
+import com.serviceapp.entity.Movie;
+import com.serviceapp.repository.MovieRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory trigram index over movie titles. Each three-character part of lower-cased title points to ids of
+ * movies containing it. Search intersects id sets of all trigrams of search term and then checks that title of each
+ * candidate really contains the term, so results are the same as of case-insensitive substring search in database.
+ * Terms shorter than three characters are checked against all indexed titles (still without accessing database).
+ * <p>
+ * Index is built at startup and updated by <code>MovieService</code> when movies are created, updated or deleted.
+ * Reads don't lock; writers are serialized.
+ */
+@Service
+public class MovieTitleIndex {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final int GRAM = 3;
+    private final MovieRepository movieRepository;
+    /**
+     * Lower-cased title of every indexed movie
+     */
+    private final Map<Long, String> titles = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> trigrams = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    @Autowired
+    public MovieTitleIndex(MovieRepository movieRepository) {
+        this.movieRepository = movieRepository;
+    }
+
+    /**
+     * Builds index from titles of all movies in database
+     */
+    @PostConstruct
+    public synchronized void rebuild() {
+        ready = false;
+        titles.clear();
+        trigrams.clear();
+        for (Object[] row : movieRepository.findAllTitles()) {
+            add((Long) row[0], (String) row[1]);
+        }
+        ready = true;
+        LOGGER.info("Movie title index built for {} movies", titles.size());
+    }
+
+    /**
+     * Checks whether index has been built and can be used for search
+     *
+     * @return <code>true</code> if index is ready
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Finds ids of movies which titles contain given term ignoring case
+     *
+     * @param term title (or its part) to look for. Must not be <code>null</code>
+     * @return ids of found movies in ascending order
+     */
+    public List<Long> find(String term) {
+        String normalized = normalize(term);
+        Set<Long> candidates = titles.keySet();
+        if (normalized.length() >= GRAM) {
+            Set<String> termGrams = grams(normalized);
+            for (String gram : termGrams) {
+                Set<Long> ids = trigrams.get(gram);
+                if (ids == null) {
+                    return Collections.emptyList();
+                }
+                if (ids.size() < candidates.size()) {
+                    candidates = ids;
+                }
+            }
+        }
+
+        List<Long> found = new ArrayList<>();
+        for (Long id : candidates) {
+            String title = titles.get(id);
+            if (title != null && title.contains(normalized)) {
+                found.add(id);
+            }
+        }
+        Collections.sort(found);
+        return found;
+    }
+
+    /**
+     * Get indexed title of movie
+     *
+     * @param movieId id of movie
+     * @return lower-cased title of movie or <code>null</code> if movie is not indexed
+     */
+    public String getTitle(Long movieId) {
+        return movieId == null ? null : titles.get(movieId);
+    }
+
+    /**
+     * Adds new or updated movie to index
+     *
+     * @param movie movie to index. Ignored if <code>null</code> or has no id
+     */
+    public synchronized void update(Movie movie) {
+        if (movie == null || movie.getId() == null) {
+            return;
+        }
+        remove(movie.getId());
+        add(movie.getId(), movie.getMovieName());
+    }
+
+    /**
+     * Removes deleted movie from index
+     *
+     * @param movieId id of deleted movie
+     */
+    public synchronized void remove(Long movieId) {
+        if (movieId == null) {
+            return;
+        }
+        String title = titles.remove(movieId);
+        if (title == null) {
+            return;
+        }
+        for (String gram : grams(title)) {
+            trigrams.computeIfPresent(gram, (key, ids) -> {
+                ids.remove(movieId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private void add(Long movieId, String movieName) {
+        if (movieId == null || movieName == null) {
+            return;
+        }
+        String title = normalize(movieName);
+        for (String gram : grams(title)) {
+            trigrams.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(movieId);
+        }
+        // title is published last, so readers never verify against title which grams are not indexed yet
+        titles.put(movieId, title);
+    }
+
+    private static Set<String> grams(String title) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= title.length(); i++) {
+            grams.add(title.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static String normalize(String title) {
+        return title.toLowerCase(Locale.ROOT);
+    }
+
+}
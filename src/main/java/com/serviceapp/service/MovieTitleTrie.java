@@ -0,0 +1,478 @@
+package com.serviceapp.service;
+
+import com.serviceapp.entity.Movie;
+import com.serviceapp.entity.dto.MovieSuggestionDto;
+import com.serviceapp.repository.MovieRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory prefix tree (radix tree) over normalized movie titles for title suggestions. Every word of a title
+ * starts a key, so "god" suggests both "Godzilla" and "The Godfather". Titles are lower-cased and all characters
+ * except letters and digits are replaced with single space. Keys are cut to <code>MAX_KEY</code> characters, longer
+ * prefix is matched against whole titles of the subtree of its first <code>MAX_KEY</code> characters.
+ * <p>
+ * Each node keeps <code>search.suggest.size</code> best movies of its subtree ranked by rating, so suggestion is a
+ * walk down the prefix without visiting the subtree. Tree is persistent: writers copy nodes on the changed path and
+ * publish new root, so readers never lock and always see consistent tree. Writers are serialized.
+ * <p>
+ * Tree is built at startup and updated by <code>MovieService</code> when movies are created, updated or deleted and
+ * when their ratings change.
+ */
+@Service
+@PropertySource("classpath:movieApp.properties")
+public class MovieTitleTrie {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final String SIZE_PROP = "search.suggest.size";
+    private static final int DEFAULT_SIZE = 10;
+    private static final int MAX_KEY = 40;
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+    private static final Comparator<Entry> BY_RATING = Comparator.comparingDouble((Entry entry) -> entry.rating)
+            .reversed()
+            .thenComparing(Comparator.comparingLong((Entry entry) -> entry.id).reversed());
+    private final MovieRepository movieRepository;
+    private final int size;
+    /**
+     * Indexed entry of every movie, to find its keys on update and delete. Changed by writers only
+     */
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private volatile Node root;
+
+    @Autowired
+    public MovieTitleTrie(MovieRepository movieRepository, Environment environment) {
+        this.movieRepository = movieRepository;
+        this.size = environment.getProperty(SIZE_PROP, Integer.class, DEFAULT_SIZE);
+        this.root = new Node("", new char[0], NO_CHILDREN, NO_ENTRIES, size);
+    }
+
+    /**
+     * Builds tree from titles and ratings of all movies in database
+     */
+    @PostConstruct
+    public synchronized void rebuild() {
+        entries.clear();
+        List<KeyEntry> keys = new ArrayList<>();
+        for (Object[] row : movieRepository.findAllTitles()) {
+            Entry entry = new Entry((Long) row[0], (String) row[1], (Double) row[2]);
+            entries.put(entry.id, entry);
+            for (String key : keys(entry.title)) {
+                keys.add(new KeyEntry(key, entry));
+            }
+        }
+        keys.sort(Comparator.comparing((KeyEntry keyEntry) -> keyEntry.key));
+        root = build("", keys, 0, keys.size(), 0);
+        LOGGER.info("Movie title suggestion tree built for {} movies", entries.size());
+    }
+
+    /**
+     * Get movies which title has a word starting with given prefix. Prefix is normalized the same way as titles
+     *
+     * @param prefix beginning of title word (or words) to look for
+     * @param limit  maximum number of suggestions. Can't be larger than <code>search.suggest.size</code>
+     * @return <code>List</code> of suggestions ranked by rating (highest first). Empty if prefix is blank
+     */
+    public List<MovieSuggestionDto> suggest(String prefix, int limit) {
+        List<MovieSuggestionDto> suggestions = new ArrayList<>();
+        String query = normalize(prefix == null ? "" : prefix);
+        if (query.isEmpty()) {
+            return suggestions;
+        }
+        if (Character.isWhitespace(prefix.charAt(prefix.length() - 1))) {
+            // completed word
+            query += " ";
+        }
+        String key = query.length() > MAX_KEY ? query.substring(0, MAX_KEY) : query;
+
+        Node node = root;
+        while (!key.isEmpty()) {
+            Node child = node.child(key.charAt(0));
+            if (child == null) {
+                return suggestions;
+            }
+            if (key.startsWith(child.label)) {
+                key = key.substring(child.label.length());
+            } else if (child.label.startsWith(key)) {
+                key = "";
+            } else {
+                return suggestions;
+            }
+            node = child;
+        }
+        Entry[] ranked = node.top;
+        if (query.length() > MAX_KEY) {
+            // keys are cut, so best movies of the node may not match longer prefix: whole subtree is checked
+            List<Entry> matching = new ArrayList<>();
+            collect(node, " " + query, matching, new HashSet<>());
+            matching.sort(BY_RATING);
+            ranked = matching.toArray(NO_ENTRIES);
+        }
+        for (Entry entry : ranked) {
+            if (suggestions.size() >= limit) {
+                break;
+            }
+            suggestions.add(new MovieSuggestionDto(entry.id, entry.title, entry.rating));
+        }
+        return suggestions;
+    }
+
+    /**
+     * Collects movies of subtree which title contains given word prefix
+     */
+    private static void collect(Node node, String prefix, List<Entry> matching, Set<Long> ids) {
+        for (Entry entry : node.own) {
+            if (ids.add(entry.id) && (" " + normalize(entry.title)).contains(prefix)) {
+                matching.add(entry);
+            }
+        }
+        for (Node child : node.children) {
+            collect(child, prefix, matching, ids);
+        }
+    }
+
+    /**
+     * Adds new movie or applies changed title or rating of existing one
+     *
+     * @param movie current state of movie. Ignored if <code>null</code> or has no id
+     */
+    public synchronized void update(Movie movie) {
+        if (movie == null || movie.getId() == null) {
+            return;
+        }
+        apply(new Entry(movie.getId(), movie.getMovieName(), movie.getRating()));
+    }
+
+    /**
+     * Applies changed rating of existing movie
+     *
+     * @param movieId id of movie
+     * @param rating  new rating of movie
+     */
+    public synchronized void updateRating(Long movieId, Double rating) {
+        Entry old = movieId == null ? null : entries.get(movieId);
+        if (old != null) {
+            apply(new Entry(movieId, old.title, rating));
+        }
+    }
+
+    /**
+     * Applies changed title of existing movie keeping its rating
+     *
+     * @param movieId id of movie
+     * @param title   new title of movie
+     */
+    public synchronized void updateTitle(Long movieId, String title) {
+        Entry old = movieId == null ? null : entries.get(movieId);
+        if (old != null) {
+            apply(new Entry(movieId, title, old.rating));
+        }
+    }
+
+    private void apply(Entry entry) {
+        Entry old = entries.put(entry.id, entry);
+        Node updated = root;
+        Set<String> newKeys = keys(entry.title);
+        if (old != null) {
+            for (String key : keys(old.title)) {
+                if (!newKeys.contains(key)) {
+                    updated = remove(updated, key, entry.id, true);
+                }
+            }
+        }
+        for (String key : newKeys) {
+            updated = put(updated, key, entry);
+        }
+        root = updated;
+    }
+
+    /**
+     * Removes deleted movie
+     *
+     * @param movieId id of deleted movie
+     */
+    public synchronized void remove(Long movieId) {
+        Entry old = movieId == null ? null : entries.remove(movieId);
+        if (old == null) {
+            return;
+        }
+        Node updated = root;
+        for (String key : keys(old.title)) {
+            updated = remove(updated, key, movieId, true);
+        }
+        root = updated;
+    }
+
+    /**
+     * Builds subtree from sorted keys. All keys in range share first <code>depth</code> characters
+     */
+    private Node build(String label, List<KeyEntry> keys, int from, int to, int depth) {
+        List<Entry> own = new ArrayList<>();
+        int i = from;
+        while (i < to && keys.get(i).key.length() == depth) {
+            own.add(keys.get(i++).entry);
+        }
+        List<Character> childKeys = new ArrayList<>();
+        List<Node> children = new ArrayList<>();
+        while (i < to) {
+            char first = keys.get(i).key.charAt(depth);
+            int end = i + 1;
+            while (end < to && keys.get(end).key.charAt(depth) == first) {
+                end++;
+            }
+            // keys are sorted, so common prefix of the group is common prefix of its first and last key
+            String firstKey = keys.get(i).key;
+            String lastKey = keys.get(end - 1).key;
+            int common = depth + 1;
+            while (common < firstKey.length() && common < lastKey.length()
+                    && firstKey.charAt(common) == lastKey.charAt(common)) {
+                common++;
+            }
+            childKeys.add(first);
+            children.add(build(firstKey.substring(depth, common), keys, i, end, common));
+            i = end;
+        }
+        char[] chars = new char[childKeys.size()];
+        for (int c = 0; c < chars.length; c++) {
+            chars[c] = childKeys.get(c);
+        }
+        return new Node(label, chars, children.toArray(NO_CHILDREN), own.toArray(NO_ENTRIES), size);
+    }
+
+    /**
+     * Copies path to the key adding entry (or replacing entry of the same movie) at its end
+     */
+    private Node put(Node node, String key, Entry entry) {
+        if (key.isEmpty()) {
+            List<Entry> own = new ArrayList<>();
+            for (Entry existing : node.own) {
+                if (existing.id != entry.id) {
+                    own.add(existing);
+                }
+            }
+            own.add(entry);
+            return node.with(node.keys, node.children, own.toArray(NO_ENTRIES));
+        }
+        int index = node.indexOf(key.charAt(0));
+        if (index < 0) {
+            Node leaf = new Node(key, new char[0], NO_CHILDREN, new Entry[]{entry}, size);
+            int position = -index - 1;
+            char[] keys = new char[node.keys.length + 1];
+            Node[] children = new Node[node.children.length + 1];
+            System.arraycopy(node.keys, 0, keys, 0, position);
+            System.arraycopy(node.children, 0, children, 0, position);
+            keys[position] = key.charAt(0);
+            children[position] = leaf;
+            System.arraycopy(node.keys, position, keys, position + 1, node.keys.length - position);
+            System.arraycopy(node.children, position, children, position + 1, node.children.length - position);
+            return node.with(keys, children, node.own);
+        }
+
+        Node child = node.children[index];
+        int common = 0;
+        while (common < child.label.length() && common < key.length()
+                && child.label.charAt(common) == key.charAt(common)) {
+            common++;
+        }
+        Node updatedChild;
+        if (common == child.label.length()) {
+            updatedChild = put(child, key.substring(common), entry);
+        } else {
+            // split edge of the child
+            Node tail = child.withLabel(child.label.substring(common));
+            Node middle = new Node(child.label.substring(0, common), new char[]{tail.label.charAt(0)},
+                    new Node[]{tail}, NO_ENTRIES, size);
+            updatedChild = put(middle, key.substring(common), entry);
+        }
+        Node[] children = node.children.clone();
+        children[index] = updatedChild;
+        return node.with(node.keys, children, node.own);
+    }
+
+    /**
+     * Copies path to the key removing entry of the movie at its end. Nodes left without entries are removed and
+     * nodes left with single child are merged with it
+     *
+     * @return updated node or <code>null</code> if node became empty
+     */
+    private Node remove(Node node, String key, long movieId, boolean isRoot) {
+        Node updated;
+        if (key.isEmpty()) {
+            List<Entry> own = new ArrayList<>();
+            for (Entry existing : node.own) {
+                if (existing.id != movieId) {
+                    own.add(existing);
+                }
+            }
+            updated = node.with(node.keys, node.children, own.toArray(NO_ENTRIES));
+        } else {
+            int index = node.indexOf(key.charAt(0));
+            if (index < 0 || !key.startsWith(node.children[index].label)) {
+                return node;
+            }
+            Node child = remove(node.children[index], key.substring(node.children[index].label.length()),
+                    movieId, false);
+            if (child == null) {
+                char[] keys = new char[node.keys.length - 1];
+                Node[] children = new Node[node.children.length - 1];
+                System.arraycopy(node.keys, 0, keys, 0, index);
+                System.arraycopy(node.children, 0, children, 0, index);
+                System.arraycopy(node.keys, index + 1, keys, index, keys.length - index);
+                System.arraycopy(node.children, index + 1, children, index, children.length - index);
+                updated = node.with(keys, children, node.own);
+            } else {
+                Node[] children = node.children.clone();
+                children[index] = child;
+                updated = node.with(node.keys, children, node.own);
+            }
+        }
+        if (isRoot || updated.own.length > 0 || updated.children.length > 1) {
+            return updated;
+        }
+        if (updated.children.length == 0) {
+            return null;
+        }
+        Node child = updated.children[0];
+        return child.withLabel(updated.label + child.label);
+    }
+
+    /**
+     * Get keys of title: normalized title starting from each of its words
+     */
+    private static Set<String> keys(String title) {
+        Set<String> keys = new LinkedHashSet<>();
+        String normalized = normalize(title == null ? "" : title);
+        for (int i = 0; i < normalized.length(); i++) {
+            if (i == 0 || normalized.charAt(i - 1) == ' ') {
+                String key = normalized.substring(i);
+                keys.add(key.length() > MAX_KEY ? key.substring(0, MAX_KEY) : key);
+            }
+        }
+        return keys;
+    }
+
+    private static String normalize(String title) {
+        StringBuilder normalized = new StringBuilder(title.length());
+        boolean space = true;
+        for (int i = 0; i < title.length(); i++) {
+            char c = title.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toLowerCase(c));
+                space = false;
+            } else if (!space) {
+                normalized.append(' ');
+                space = true;
+            }
+        }
+        int length = normalized.length();
+        return length > 0 && normalized.charAt(length - 1) == ' '
+                ? normalized.substring(0, length - 1) : normalized.toString();
+    }
+
+    /**
+     * Immutable movie data stored in tree
+     */
+    private static final class Entry {
+
+        private final long id;
+        private final String title;
+        private final double rating;
+
+        private Entry(Long id, String title, Double rating) {
+            this.id = id;
+            this.title = title == null ? "" : title;
+            this.rating = rating == null ? 0 : rating;
+        }
+    }
+
+    private static final class KeyEntry {
+
+        private final String key;
+        private final Entry entry;
+
+        private KeyEntry(String key, Entry entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * Immutable tree node. Children are sorted by first character of their labels
+     */
+    private static final class Node {
+
+        private final String label;
+        private final char[] keys;
+        private final Node[] children;
+        /**
+         * Movies which key ends at this node
+         */
+        private final Entry[] own;
+        /**
+         * Best movies of this subtree
+         */
+        private final Entry[] top;
+        private final int size;
+
+        private Node(String label, char[] keys, Node[] children, Entry[] own, int size) {
+            this.label = label;
+            this.keys = keys;
+            this.children = children;
+            this.own = own;
+            this.size = size;
+            this.top = top(children, own, size);
+        }
+
+        private Node with(char[] keys, Node[] children, Entry[] own) {
+            return new Node(label, keys, children, own, size);
+        }
+
+        private Node withLabel(String label) {
+            return new Node(label, keys, children, own, size);
+        }
+
+        private int indexOf(char key) {
+            return Arrays.binarySearch(keys, key);
+        }
+
+        private Node child(char key) {
+            int index = indexOf(key);
+            return index < 0 ? null : children[index];
+        }
+
+        private static Entry[] top(Node[] children, Entry[] own, int size) {
+            List<Entry> candidates = new ArrayList<>(Arrays.asList(own));
+            for (Node child : children) {
+                candidates.addAll(Arrays.asList(child.top));
+            }
+            candidates.sort(BY_RATING);
+            List<Entry> top = new ArrayList<>(Math.min(size, candidates.size()));
+            Set<Long> ids = new HashSet<>();
+            for (Entry candidate : candidates) {
+                if (top.size() >= size) {
+                    break;
+                }
+                if (ids.add(candidate.id)) {
+                    top.add(candidate);
+                }
+            }
+            return top.toArray(NO_ENTRIES);
+        }
+    }
+
+}
@@ -0,0 +1,247 @@
+package com.serviceapp.service;
+
+import com.serviceapp.entity.Movie;
+import com.serviceapp.entity.RatingRecountRange;
+import com.serviceapp.entity.Review;
+import com.serviceapp.entity.util.RecountProgress;
+import com.serviceapp.repository.MovieRepository;
+import com.serviceapp.repository.RatingRecountRangeRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Service for recalculating ratings of all movies from their reviews. Movie ids are split into ranges of
+ * <code>rating.recount.rangeSize</code> ids which are processed in parallel by <code>rating.recount.threads</code>
+ * threads. Each range is recalculated with one SQL update aggregating reviews of every movie in it, so rating changes
+ * made by concurrent review posts are never overwritten with values read before them.
+ * <p>
+ * Write-behind flush is paused while recount runs. Pending changes of movies in a range are dropped right before the
+ * range is recalculated, changes queued afterwards are written when flush resumes.
+ * <p>
+ * Each finished range is saved as <code>RatingRecountRange</code> checkpoint, so interrupted recount resumes from
+ * unfinished ranges. Checkpoints are removed when all ranges are finished. Recount of a range is idempotent, so a
+ * range interrupted in the middle is simply recalculated again.
+ */
+@Service
+@PropertySource("classpath:movieApp.properties")
+public class RatingRecountService {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final String RANGE_SIZE_PROP = "rating.recount.rangeSize";
+    private static final String THREADS_PROP = "rating.recount.threads";
+    private static final long DEFAULT_RANGE_SIZE = 10000;
+    private static final int DEFAULT_THREADS = 4;
+    private final MovieRepository movieRepository;
+    private final RatingRecountRangeRepository rangeRepository;
+    private final RatingUpdateService ratingUpdateService;
+    private final MovieService movieService;
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final long rangeSize;
+    private final int threads;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile String recountSql;
+
+    @Autowired
+    public RatingRecountService(MovieRepository movieRepository, RatingRecountRangeRepository rangeRepository,
+                                RatingUpdateService ratingUpdateService, MovieService movieService,
+                                EntityManagerFactory entityManagerFactory, DataSource dataSource,
+                                Environment environment) {
+        this.movieRepository = movieRepository;
+        this.rangeRepository = rangeRepository;
+        this.ratingUpdateService = ratingUpdateService;
+        this.movieService = movieService;
+        this.entityManagerFactory = entityManagerFactory;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.rangeSize = environment.getProperty(RANGE_SIZE_PROP, Long.class, DEFAULT_RANGE_SIZE);
+        this.threads = environment.getProperty(THREADS_PROP, Integer.class, DEFAULT_THREADS);
+    }
+
+    /**
+     * Checks whether recount is running at the moment
+     *
+     * @return <code>true</code> if recount is running
+     */
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Recalculates ratings of all movies. Blocks until all ranges are finished or one of them fails. Only one recount
+     * may run at a time.
+     *
+     * @param restart  if <code>true</code> - checkpoints of previous interrupted recount are dropped and all ranges
+     *                 are recalculated, otherwise finished ranges are skipped
+     * @param listener receives progress after each finished range and at the end of recount (with
+     *                 <code>finished</code> flag set). Called from the thread which runs recount
+     * @return final progress of recount. Contains error message if recount has been interrupted
+     * @throws IllegalStateException thrown if recount is already running
+     */
+    public RecountProgress recountAll(boolean restart, Consumer<RecountProgress> listener) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Rating recount is already running");
+        }
+        ratingUpdateService.pauseFlush();
+        try {
+            return doRecountAll(restart, listener);
+        } finally {
+            ratingUpdateService.resumeFlush();
+            running.set(false);
+            movieService.ratingsReloaded();
+        }
+    }
+
+    private RecountProgress doRecountAll(boolean restart, Consumer<RecountProgress> listener) {
+        if (restart) {
+            rangeRepository.deleteAllInBatch();
+        }
+
+        List<long[]> ranges = new ArrayList<>();
+        Long minId = movieRepository.findMinId();
+        Long maxId = movieRepository.findMaxId();
+        if (minId != null && maxId != null) {
+            // ranges are aligned to range size so checkpoints stay valid when new movies are added
+            for (long start = Math.floorDiv(minId, rangeSize) * rangeSize; start <= maxId; start += rangeSize) {
+                ranges.add(new long[]{start, start + rangeSize - 1});
+            }
+        }
+        Set<Long> finishedRanges = new HashSet<>();
+        for (RatingRecountRange range : rangeRepository.findAll()) {
+            if (range.getRangeEnd() == range.getRangeStart() + rangeSize - 1) {
+                finishedRanges.add(range.getRangeStart());
+            }
+        }
+
+        int rangesDone = 0;
+        long moviesDone = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CompletionService<RatingRecountRange> completionService = new ExecutorCompletionService<>(executor);
+        int submitted = 0;
+        for (long[] range : ranges) {
+            if (finishedRanges.contains(range[0])) {
+                rangesDone++;
+            } else {
+                completionService.submit(() -> recountRange(range[0], range[1]));
+                submitted++;
+            }
+        }
+        LOGGER.info("Rating recount started: {} ranges, {} already finished", ranges.size(), rangesDone);
+        RecountProgress progress = new RecountProgress();
+        progress.setRangesDone(rangesDone);
+        progress.setRangesTotal(ranges.size());
+
+        try {
+            for (int i = 0; i < submitted; i++) {
+                RatingRecountRange range = completionService.take().get();
+                rangesDone++;
+                moviesDone += range.getMovies();
+                progress = progress(range, rangesDone, ranges.size(), moviesDone);
+                listener.accept(progress);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failed(progress, "Rating recount interrupted", e, listener);
+        } catch (ExecutionException e) {
+            return failed(progress, "Rating recount failed: " + e.getCause().getMessage(), e.getCause(), listener);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        rangeRepository.deleteAllInBatch();
+        progress = new RecountProgress();
+        progress.setRangesDone(rangesDone);
+        progress.setRangesTotal(ranges.size());
+        progress.setMoviesDone(moviesDone);
+        progress.setFinished(true);
+        listener.accept(progress);
+        LOGGER.info("Rating recount finished: {} movies recalculated", moviesDone);
+        return progress;
+    }
+
+    /**
+     * Recalculates ratings of movies in provided range and saves checkpoint for it
+     *
+     * @param from first movie id of the range
+     * @param to   last movie id of the range (inclusive)
+     * @return saved checkpoint
+     */
+    private RatingRecountRange recountRange(long from, long to) {
+        int discarded = ratingUpdateService.discardPending(from, to);
+        if (discarded > 0) {
+            LOGGER.debug("Pending rating changes of {} movies dropped before recount of range {}-{}", discarded,
+                    from, to);
+        }
+        int movies = jdbcTemplate.update(recountSql(), from, to);
+        // ratings are written bypassing Hibernate, so cached movies are outdated
+        movieRepository.findIdsBetween(from, to).forEach(id -> entityManagerFactory.getCache().evict(Movie.class, id));
+
+        return rangeRepository.save(new RatingRecountRange(from, to, movies));
+    }
+
+    /**
+     * Builds SQL recalculating ratings of movies in id range from their reviews. Table names are taken from Hibernate
+     * mapping of <code>Movie</code> and <code>Review</code>
+     *
+     * @return SQL update statement with range start and end parameters
+     */
+    private String recountSql() {
+        if (recountSql == null) {
+            String movies = tableName(Movie.class);
+            String reviews = " from " + tableName(Review.class) + " r where r.movieID = " + movies + ".id)";
+            recountSql = "update " + movies + " set " +
+                    "reviewcount = (select count(*)" + reviews + ", " +
+                    "ratingsum = (select coalesce(sum(r.rating), 0)" + reviews + ", " +
+                    "rating = coalesce((select round(avg(1.0 * r.rating), 2)" + reviews + ", 0) " +
+                    "where id between ? and ?";
+        }
+        return recountSql;
+    }
+
+    private String tableName(Class<?> entity) {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        return ((AbstractEntityPersister) sessionFactory.getMetamodel().entityPersister(entity)).getTableName();
+    }
+
+    private static RecountProgress progress(RatingRecountRange range, int rangesDone, int rangesTotal,
+                                            long moviesDone) {
+        RecountProgress progress = new RecountProgress();
+        progress.setRangeStart(range.getRangeStart());
+        progress.setRangeEnd(range.getRangeEnd());
+        progress.setMovies(range.getMovies());
+        progress.setRangesDone(rangesDone);
+        progress.setRangesTotal(rangesTotal);
+        progress.setMoviesDone(moviesDone);
+        return progress;
+    }
+
+    private static RecountProgress failed(RecountProgress progress, String error, Throwable cause,
+                                          Consumer<RecountProgress> listener) {
+        LOGGER.error(error, cause);
+        progress.setError(error);
+        progress.setFinished(true);
+        listener.accept(progress);
+        return progress;
+    }
+
+}
@@ -0,0 +1,325 @@
+package com.serviceapp.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Service for applying review changes to movie ratings. By default every change is written to database at once.
+ * In write-behind mode (<code>rating.writeBehind.enabled</code> property) changes are accumulated in memory per
+ * movie and written periodically, so a burst of reviews for one movie results in one update of movie row per flush
+ * interval instead of one update per review.
+ * <p>
+ * In write-behind mode movie rating may lag behind posted reviews for up to flush interval. Pending changes are
+ * flushed on shutdown. If there are too many movies with pending changes, new changes are written at once.
+ * <p>
+ * Writing, queueing, flushing and recalculating rating of the same movie are mutually exclusive (movies are guarded
+ * by a fixed number of striped locks), so a change being flushed is never applied on top of recalculated rating and a
+ * change can't be queued between recalculation and dropping of pending changes it already includes. Changes made in a
+ * transaction hold the lock till the transaction completes and are queued only after it commits, so recalculation
+ * never sees a review without its rating change or the other way round.
+ *
+ * @see MovieService#updateRating(Long, long, long)
+ */
+@Service
+@PropertySource("classpath:movieApp.properties")
+public class RatingUpdateService {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final String WRITE_BEHIND_ENABLED_PROP = "rating.writeBehind.enabled";
+    private static final String MAX_PENDING_MOVIES_PROP = "rating.writeBehind.maxPendingMovies";
+    private static final int DEFAULT_MAX_PENDING_MOVIES = 10000;
+    private static final int LOCK_STRIPES = 256;
+    private final MovieService movieService;
+    private final boolean writeBehind;
+    private final int maxPendingMovies;
+    /**
+     * Pending changes per movie id. Value holds number of reviews and sum of their ratings. Values are immutable and
+     * replaced with <code>merge</code>, so taking them with <code>remove</code> never loses concurrent change.
+     */
+    private final ConcurrentHashMap<Long, long[]> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicInteger pauses = new AtomicInteger();
+    private final LongAdder queuedReviews = new LongAdder();
+    private final LongAdder flushedReviews = new LongAdder();
+    private final LongAdder movieUpdates = new LongAdder();
+    private final LongAdder directUpdates = new LongAdder();
+    private final LongAdder failedUpdates = new LongAdder();
+
+    @Autowired
+    public RatingUpdateService(MovieService movieService, Environment environment) {
+        this.movieService = movieService;
+        this.writeBehind = environment.getProperty(WRITE_BEHIND_ENABLED_PROP, Boolean.class, false);
+        this.maxPendingMovies = environment.getProperty(MAX_PENDING_MOVIES_PROP, Integer.class,
+                DEFAULT_MAX_PENDING_MOVIES);
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Adds reviews to movie rating. In write-behind mode change is only queued and will be written with next flush.
+     * Inside a transaction movie stays locked till the transaction completes, rating is updated in the same
+     * transaction and queued change is added only once the transaction commits.
+     *
+     * @param movieId id of movie to update rating. Must not be <code>null</code>, otherwise returns <code>false</code>
+     * @param reviews number of added reviews. Negative value means reviews have been deleted
+     * @param ratings sum of ratings given with added (or deleted if negative) reviews
+     * @return <code>true</code> if rating has been updated or change has been queued, <code>false</code> if movie
+     * has not been found
+     * @see #lockRating(Long)
+     */
+    public Boolean addReviews(Long movieId, long reviews, long ratings) {
+        if (movieId == null) {
+            return false;
+        }
+        boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+        ReentrantLock lock = lock(movieId);
+        if (inTransaction) {
+            lockRating(movieId);
+        } else {
+            lock.lock();
+        }
+        try {
+            if (!writeBehind || (pending.size() >= maxPendingMovies && !pending.containsKey(movieId))) {
+                directUpdates.increment();
+                return movieService.updateRating(movieId, reviews, ratings);
+            }
+            if (!movieService.movieExists(movieId)) {
+                return false;
+            }
+            if (inTransaction) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCommit() {
+                        queue(movieId, reviews, ratings);
+                    }
+                });
+            } else {
+                queue(movieId, reviews, ratings);
+            }
+            return true;
+        } finally {
+            if (!inTransaction) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Locks rating of movie till current transaction completes, so it is neither recalculated nor flushed
+     * meanwhile. Lock it before changing reviews of the movie: recalculation holding the lock would otherwise wait
+     * for uncommitted reviews of the transaction waiting for the lock.
+     *
+     * @param movieId id of movie to lock rating of
+     * @throws IllegalStateException if there is no transaction to hold the lock till
+     */
+    public void lockRating(Long movieId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Rating can only be locked in transaction");
+        }
+        ReentrantLock lock = lock(movieId);
+        lock.lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+    }
+
+    private void queue(Long movieId, long reviews, long ratings) {
+        pending.merge(movieId, new long[]{reviews, ratings}, RatingUpdateService::sum);
+        queuedReviews.add(reviews);
+    }
+
+    /**
+     * Recalculates movie rating from all movie reviews. Pending changes of this movie are dropped as recalculated
+     * rating already includes them. Waits for flush of this movie if it is in progress.
+     *
+     * @param movieId id of movie to recalculate rating. Must not be <code>null</code>, otherwise returns
+     *                <code>false</code>
+     * @return <code>true</code> if movie rating has been recalculated, <code>false</code> if there is no such movie
+     * @see MovieService#recountRating(Long)
+     */
+    public Boolean recountRating(Long movieId) {
+        if (movieId == null) {
+            return false;
+        }
+        ReentrantLock lock = lock(movieId);
+        lock.lock();
+        try {
+            pending.remove(movieId);
+            return movieService.recountRating(movieId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops pending changes of movies in provided range. Used right before recalculating their ratings from reviews
+     * as recalculated ratings include them. Flush should be paused, otherwise a change taken by running flush may
+     * be written after recalculation.
+     *
+     * @param from first movie id of the range
+     * @param to   last movie id of the range (inclusive)
+     * @return number of movies which pending changes have been dropped
+     * @see #pauseFlush()
+     */
+    public int discardPending(long from, long to) {
+        int discarded = 0;
+        for (Long movieId : pending.keySet()) {
+            if (movieId >= from && movieId <= to) {
+                ReentrantLock lock = lock(movieId);
+                lock.lock();
+                try {
+                    if (pending.remove(movieId) != null) {
+                        discarded++;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+        return discarded;
+    }
+
+    /**
+     * Stops writing pending changes until <code>resumeFlush</code> is called. Waits for flush in progress to finish.
+     * Changes are still queued while flush is paused. Used while all ratings are recalculated.
+     */
+    public void pauseFlush() {
+        pauses.incrementAndGet();
+        flushLock.lock();
+        flushLock.unlock();
+    }
+
+    /**
+     * Resumes writing pending changes stopped with <code>pauseFlush</code>
+     */
+    public void resumeFlush() {
+        pauses.decrementAndGet();
+    }
+
+    /**
+     * Writes all pending changes to database. Runs periodically with <code>rating.writeBehind.flushInterval</code>
+     * delay (in milliseconds) and on shutdown. Changes that failed to be written are queued back. Does nothing while
+     * flush is paused.
+     *
+     * @return number of updated movies
+     */
+    @Scheduled(fixedDelayString = "${rating.writeBehind.flushInterval:500}")
+    public int flush() {
+        flushLock.lock();
+        try {
+            return pauses.get() > 0 ? 0 : flushAll();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private int flushAll() {
+        int updated = 0;
+        for (Long movieId : pending.keySet()) {
+            if (flush(movieId)) {
+                updated++;
+            }
+        }
+        movieUpdates.add(updated);
+        return updated;
+    }
+
+    /**
+     * Writes pending change of one movie holding its lock
+     *
+     * @return <code>true</code> if movie rating has been updated
+     */
+    private boolean flush(Long movieId) {
+        ReentrantLock lock = lock(movieId);
+        lock.lock();
+        try {
+            long[] change = pending.remove(movieId);
+            if (change == null || (change[0] == 0 && change[1] == 0)) {
+                return false;
+            }
+            try {
+                boolean updated = movieService.updateRating(movieId, change[0], change[1]);
+                if (!updated) {
+                    LOGGER.warn("Movie with id {} not found. Its pending rating change is dropped", movieId);
+                }
+                flushedReviews.add(change[0]);
+                return updated;
+            } catch (RuntimeException e) {
+                LOGGER.error("Unable to update rating of movie with id " + movieId + ". Change queued back", e);
+                failedUpdates.increment();
+                pending.merge(movieId, change, RatingUpdateService::sum);
+                return false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lock(Long movieId) {
+        return locks[Math.floorMod(movieId.hashCode(), locks.length)];
+    }
+
+    /**
+     * Flushes pending changes before application shuts down
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (!pending.isEmpty()) {
+            LOGGER.info("Flushing rating changes for {} movies on shutdown", pending.size());
+            flushLock.lock();
+            try {
+                flushAll();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Get metrics of rating updates
+     *
+     * @return <code>Map</code> with metric names and their values
+     */
+    public Map<String, Long> getStats() {
+        long pendingReviews = 0;
+        for (long[] change : pending.values()) {
+            pendingReviews += change[0];
+        }
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("writeBehind", writeBehind ? 1L : 0L);
+        stats.put("flushPaused", pauses.get() > 0 ? 1L : 0L);
+        stats.put("pendingMovies", (long) pending.size());
+        stats.put("pendingReviews", pendingReviews);
+        stats.put("queuedReviews", queuedReviews.sum());
+        stats.put("flushedReviews", flushedReviews.sum());
+        stats.put("movieUpdates", movieUpdates.sum());
+        stats.put("directUpdates", directUpdates.sum());
+        stats.put("failedUpdates", failedUpdates.sum());
+        return stats;
+    }
+
+    private static long[] sum(long[] first, long[] second) {
+        return new long[]{first[0] + second[0], first[1] + second[1]};
+    }
+
+}
@@ -3,8 +3,12 @@ package com.serviceapp.service;
 import com.serviceapp.entity.Review;
 import com.serviceapp.repository.ReviewRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
+import java.sql.Date;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -17,10 +21,12 @@ import java.util.List;
 public class ReviewService {
 
     private ReviewRepository reviewRepository;
+    private RatingUpdateService ratingUpdateService;
 
     @Autowired
-    public ReviewService(ReviewRepository reviewRepository) {
+    public ReviewService(ReviewRepository reviewRepository, RatingUpdateService ratingUpdateService) {
         this.reviewRepository = reviewRepository;
+        this.ratingUpdateService = ratingUpdateService;
     }
 
     /**
@@ -35,6 +41,30 @@ public class ReviewService {
         return review == null ? null : reviewRepository.saveAndFlush(review);
     }
 
+    /**
+     * Save <code>Review</code> entity and add it to rating of its movie in one transaction. Review isn't saved if
+     * rating can't be updated.
+     *
+     * @param review <code>Review</code> entity to save. Must not be <code>null</code> and must refer to a movie,
+     *               otherwise method returns <code>null</code>
+     * @return saved <code>Review</code> object. Returns <code>null</code> if trying to save <code>null</code> or if
+     * there is no movie the review refers to
+     * @see RatingUpdateService#addReviews(Long, long, long)
+     */
+    @Transactional
+    public Review createRatedReview(Review review) {
+        if (review == null || review.getMovieId() == null) {
+            return null;
+        }
+        ratingUpdateService.lockRating(review.getMovieId());
+        Review createdReview = reviewRepository.saveAndFlush(review);
+        if (!ratingUpdateService.addReviews(createdReview.getMovieId(), 1, createdReview.getRating())) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return null;
+        }
+        return createdReview;
+    }
+
     /**
      * Get review with provided ID in database
      *
@@ -68,6 +98,23 @@ public class ReviewService {
         }
     }
 
+    /**
+     * Deletes given <code>Review</code> and removes it from rating of its movie in one transaction. Review of movie
+     * which doesn't exist any more is just deleted.
+     *
+     * @param review <code>Review</code> entity to delete. Must not be <code>null</code> and must refer to a movie,
+     *               otherwise nothing will happen
+     * @see RatingUpdateService#addReviews(Long, long, long)
+     */
+    @Transactional
+    public void deleteRatedReview(Review review) {
+        if (review != null && review.getMovieId() != null) {
+            ratingUpdateService.lockRating(review.getMovieId());
+            reviewRepository.delete(review);
+            ratingUpdateService.addReviews(review.getMovieId(), -1, -review.getRating());
+        }
+    }
+
     /**
      * Get reviews for movie with provided id.
      *
@@ -78,6 +125,26 @@ public class ReviewService {
         return movieId == null ? new ArrayList<>() : reviewRepository.findReviewsByMovieId(movieId);
     }
 
+    /**
+     * Get page of reviews for movie with provided id sorted by database from newest to oldest. Page starts right
+     * after review with given post date and id, so deep pages cost the same as the first one.
+     *
+     * @param movieId  ID of movie which reviews refer to
+     * @param postDate post date of the last review from previous page. <code>null</code> to get the first page
+     * @param id       id of the last review from previous page. <code>null</code> to get the first page
+     * @param limit    max number of reviews to get
+     * @return List of <code>Review</code> objects if found any. Otherwise returns empty List.
+     */
+    public List<Review> getReviewsPage(Long movieId, Date postDate, Long id, int limit) {
+        if (movieId == null) {
+            return new ArrayList<>();
+        }
+        PageRequest pageRequest = new PageRequest(0, limit);
+        return postDate == null || id == null
+                ? reviewRepository.findByMovieIdOrderByPostDateDescIdDesc(movieId, pageRequest)
+                : reviewRepository.findReviewsPageAfter(movieId, postDate, id, pageRequest);
+    }
+
     /**
      * Returns whether an entity of type <code>Review</code> with the given id exists.
      *
@@ -0,0 +1,200 @@
+package com.serviceapp.service;
+
+import com.serviceapp.entity.dto.MovieShortDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of movie search results (pages of movies found by title). Holds up to <code>search.cache.size</code> pages,
+ * least recently used page is evicted first. Page expires <code>search.cache.ttl</code> milliseconds after it has
+ * been cached.
+ * <p>
+ * Pages are keyed by lower-cased search term, page number and page size. Any page that contains a movie (or that
+ * would contain it) is found by a term which is a part of movie title, so when movie changes only pages with terms
+ * found in its old or new title are invalidated. Result computed concurrently with invalidation is not cached.
+ */
+@Service
+@PropertySource("classpath:movieApp.properties")
+public class SearchResultCache {
+
+    private static final String SIZE_PROP = "search.cache.size";
+    private static final String TTL_PROP = "search.cache.ttl";
+    private static final int DEFAULT_SIZE = 1000;
+    private static final long DEFAULT_TTL = 60000;
+    private final int size;
+    private final long ttl;
+    /**
+     * Cached pages in access order. Guarded by <code>this</code>
+     */
+    private final LinkedHashMap<Key, Entry> pages = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * Incremented on each invalidation. Result is cached only if no invalidation happened while it was computed
+     */
+    private final AtomicLong version = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    @Autowired
+    public SearchResultCache(Environment environment) {
+        this.size = environment.getProperty(SIZE_PROP, Integer.class, DEFAULT_SIZE);
+        this.ttl = environment.getProperty(TTL_PROP, Long.class, DEFAULT_TTL);
+    }
+
+    /**
+     * Get current version of cache. Must be taken before computing result which is going to be cached
+     *
+     * @return current version
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Get cached page
+     *
+     * @param term     search term
+     * @param pageable requested page
+     * @return cached page or <code>null</code> if there is no such page in cache or it has expired
+     */
+    public synchronized Page<MovieShortDto> get(String term, Pageable pageable) {
+        Key key = new Key(term, pageable);
+        Entry entry = pages.get(key);
+        if (entry != null && entry.expires < System.currentTimeMillis()) {
+            pages.remove(key);
+            expirations.increment();
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.page;
+    }
+
+    /**
+     * Caches page. Page is not cached if cache has been invalidated after <code>version</code> has been taken
+     *
+     * @param term     search term
+     * @param pageable requested page
+     * @param page     found page
+     * @param version  cache version taken before page has been computed
+     */
+    public synchronized void put(String term, Pageable pageable, Page<MovieShortDto> page, long version) {
+        if (page == null || this.version.get() != version) {
+            return;
+        }
+        pages.put(new Key(term, pageable), new Entry(page, System.currentTimeMillis() + ttl));
+        Iterator<Entry> iterator = pages.values().iterator();
+        while (pages.size() > size && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Invalidates pages which search terms are found in given titles
+     *
+     * @param titles titles of changed movie (before and after change). <code>null</code> titles are ignored
+     */
+    public synchronized void invalidate(String... titles) {
+        version.incrementAndGet();
+        Iterator<Key> iterator = pages.keySet().iterator();
+        while (iterator.hasNext()) {
+            String term = iterator.next().term;
+            for (String title : titles) {
+                if (title != null && normalize(title).contains(term)) {
+                    iterator.remove();
+                    invalidations.increment();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Invalidates all pages
+     */
+    public synchronized void clear() {
+        version.incrementAndGet();
+        invalidations.add(pages.size());
+        pages.clear();
+    }
+
+    /**
+     * Get cache metrics
+     *
+     * @return <code>Map</code> with metric names and their values
+     */
+    public synchronized Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("size", (long) pages.size());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    private static String normalize(String term) {
+        return term.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Key {
+
+        private final String term;
+        private final int page;
+        private final int size;
+
+        private Key(String term, Pageable pageable) {
+            this.term = normalize(term);
+            this.page = pageable.getPageNumber();
+            this.size = pageable.getPageSize();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return page == key.page && size == key.size && term.equals(key.term);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * term.hashCode() + page) + size;
+        }
+    }
+
+    private static final class Entry {
+
+        private final Page<MovieShortDto> page;
+        private final long expires;
+
+        private Entry(Page<MovieShortDto> page, long expires) {
+            this.page = page;
+            this.expires = expires;
+        }
+    }
+
+}
@@ -0,0 +1,201 @@
+package com.serviceapp.service;
+
+import com.serviceapp.entity.TokenRevocation;
+import com.serviceapp.entity.User;
+import com.serviceapp.repository.TokenRevocationRepository;
+import com.serviceapp.security.CredentialCache;
+import com.serviceapp.util.BloomFilter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service for revoking user tokens (e.g. when user is banned) before they expire.
+ * <p>
+ * Revocations are stored in database and each node keeps them in memory: a Bloom filter of user ids with revoked
+ * tokens and an exact map from user id to revocation time. Most users have no revoked tokens, so the check is
+ * usually answered by the filter alone, and a filter hit is confirmed by the map. No database access is needed to
+ * check a token. Revocations made on other nodes are read every <code>token.revocation.refreshInterval</code>
+ * milliseconds. Revocation time is stamped before the revocation is committed and clocks of nodes differ, so
+ * revocations stamped up to <code>token.revocation.skew</code> milliseconds before the last refresh are read again
+ * (applying a revocation twice changes nothing). Revocations older than <code>token.revocation.retention</code>
+ * milliseconds (longer than token lifetime) are forgotten.
+ * <p>
+ * Second level cache of users is local to each node, so users whose tokens have been revoked on other nodes (banned,
+ * password changed, deleted) are evicted from it when their revocations are read, along with cached login to user id
+ * mappings. Their cached HTTP Basic credentials are invalidated too.
+ */
+@Service
+@PropertySource("classpath:movieApp.properties")
+public class TokenRevocationService {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final String EXPECTED_PROP = "token.revocation.expected";
+    private static final String RETENTION_PROP = "token.revocation.retention";
+    private static final String SKEW_PROP = "token.revocation.skew";
+    private static final int DEFAULT_EXPECTED = 10000;
+    private static final long DEFAULT_RETENTION = 2 * 24 * 60 * 60 * 1000L;
+    private static final long DEFAULT_SKEW = 60 * 1000L;
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+    private final TokenRevocationRepository revocationRepository;
+    private final EntityManagerFactory entityManagerFactory;
+    private final CredentialCache credentialCache;
+    private final int expected;
+    private final long retention;
+    private final long skew;
+    /**
+     * Time before which tokens are revoked, per user id
+     */
+    private final ConcurrentHashMap<Long, Long> revokedBefore = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+    /**
+     * Time when the last successful refresh started. Guarded by <code>this</code>
+     */
+    private long lastRefresh;
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder filterHits = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder revokedTokens = new LongAdder();
+
+    @Autowired
+    public TokenRevocationService(TokenRevocationRepository revocationRepository,
+                                  EntityManagerFactory entityManagerFactory, CredentialCache credentialCache,
+                                  Environment environment) {
+        this.revocationRepository = revocationRepository;
+        this.entityManagerFactory = entityManagerFactory;
+        this.credentialCache = credentialCache;
+        this.expected = environment.getProperty(EXPECTED_PROP, Integer.class, DEFAULT_EXPECTED);
+        this.retention = environment.getProperty(RETENTION_PROP, Long.class, DEFAULT_RETENTION);
+        this.skew = environment.getProperty(SKEW_PROP, Long.class, DEFAULT_SKEW);
+        this.filter = new BloomFilter(expected, FALSE_POSITIVE_PROBABILITY);
+    }
+
+    /**
+     * Revokes all tokens of user issued up to now
+     *
+     * @param userId id of user whose tokens are revoked. Must not be <code>null</code>, otherwise nothing will happen
+     */
+    public void revoke(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        TokenRevocation revocation = revocationRepository
+                .saveAndFlush(new TokenRevocation(userId, new Timestamp(System.currentTimeMillis())));
+        apply(revocation.getUserId(), revocation.getRevokedBefore().getTime());
+        LOGGER.info("Tokens of user {} have been revoked", userId);
+    }
+
+    /**
+     * Checks whether token has been revoked
+     *
+     * @param userId   id of user the token has been issued to
+     * @param issuedAt time when token has been issued in milliseconds
+     * @return <code>true</code> if token has been revoked
+     */
+    public boolean isRevoked(Long userId, long issuedAt) {
+        checks.increment();
+        if (userId == null || !filter.mightContain(userId)) {
+            return false;
+        }
+        filterHits.increment();
+        Long before = revokedBefore.get(userId);
+        if (before == null) {
+            falsePositives.increment();
+            return false;
+        }
+        if (issuedAt <= before) {
+            revokedTokens.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads revocations made since the last refresh (on any node) and forgets revocations older than retention time.
+     * Revocations stamped within skew margin before the last refresh are read again, as they might have been
+     * committed after it. Users with newly read revocations are evicted from second level cache, cached credentials
+     * of all users with read revocations are invalidated
+     */
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${token.revocation.refreshInterval:5000}",
+            initialDelayString = "${token.revocation.refreshInterval:5000}")
+    public synchronized void refresh() {
+        long now = System.currentTimeMillis();
+        long since = now - retention;
+        List<TokenRevocation> revocations = revocationRepository
+                .findByRevokedBeforeAfter(new Timestamp(Math.max(since, lastRefresh - skew)));
+        Cache cache = entityManagerFactory.getCache();
+        boolean evicted = false;
+        Set<Long> userIds = new HashSet<>();
+        for (TokenRevocation revocation : revocations) {
+            userIds.add(revocation.getUserId());
+            if (apply(revocation.getUserId(), revocation.getRevokedBefore().getTime())) {
+                cache.evict(User.class, revocation.getUserId());
+                evicted = true;
+            }
+        }
+        if (evicted) {
+            // mappings can't be evicted by user id, changed or deleted users are rare
+            entityManagerFactory.unwrap(SessionFactory.class).getCache().evictNaturalIdRegion(User.class);
+        }
+        credentialCache.invalidate(userIds);
+        lastRefresh = now;
+
+        if (revokedBefore.values().removeIf(before -> before < since) || revokedBefore.size() > expected) {
+            BloomFilter rebuilt = new BloomFilter(Math.max(expected, revokedBefore.size() * 2),
+                    FALSE_POSITIVE_PROBABILITY);
+            revokedBefore.keySet().forEach(rebuilt::add);
+            filter = rebuilt;
+        }
+    }
+
+    /**
+     * Get revocation metrics
+     *
+     * @return <code>Map</code> with metric names and their values
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("revokedUsers", (long) revokedBefore.size());
+        stats.put("checks", checks.sum());
+        stats.put("filterHits", filterHits.sum());
+        stats.put("falsePositives", falsePositives.sum());
+        stats.put("revokedTokens", revokedTokens.sum());
+        return stats;
+    }
+
+    /**
+     * Remembers revocation unless a later one is known for the user
+     *
+     * @param userId id of user whose tokens are revoked
+     * @param before tokens issued before this time are revoked
+     * @return <code>true</code> if revocation is new
+     */
+    private synchronized boolean apply(Long userId, long before) {
+        Long known = revokedBefore.get(userId);
+        if (known != null && known >= before) {
+            return false;
+        }
+        revokedBefore.put(userId, before);
+        filter.add(userId);
+        return true;
+    }
+
+}
@@ -1,14 +1,21 @@
 package com.serviceapp.service;
 
 import com.serviceapp.entity.User;
+import com.serviceapp.entity.dto.UserShortDto;
+import com.serviceapp.entity.util.SortTypeUser;
 import com.serviceapp.repository.UserRepository;
+import com.serviceapp.security.CredentialCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Service class that accesses repository layer for user data
@@ -23,10 +30,15 @@ public class UserService {
      */
     private static final String BLANK_SYMBOL = " ";
     private UserRepository userRepository;
+    private CredentialCache credentialCache;
+    private TokenRevocationService tokenRevocationService;
 
     @Autowired
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, CredentialCache credentialCache,
+                       TokenRevocationService tokenRevocationService) {
         this.userRepository = userRepository;
+        this.credentialCache = credentialCache;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     /**
@@ -42,7 +54,8 @@ public class UserService {
     }
 
     /**
-     * Update <code>User</code> entity
+     * Update <code>User</code> entity. Cached authentications of the user are invalidated. If password is changed, all
+     * tokens issued to the user before are revoked
      *
      * @param user <code>User</code> entity to update. Must not be <code>null</code>, otherwise method returns
      *              <code>null</code>
@@ -50,17 +63,30 @@ public class UserService {
      * <code>User</code> object. Returns <code>null</code> if trying to update <code>null</code>
      */
     public User updateUser(User user) {
-        return user == null ? null : userRepository.saveAndFlush(user);
+        if (user == null) {
+            return null;
+        }
+        boolean passwordChanged = user.getId() != null
+                && !Objects.equals(userRepository.findPasswordById(user.getId()), user.getPassword());
+        User updated = userRepository.saveAndFlush(user);
+        credentialCache.invalidate(updated);
+        if (passwordChanged) {
+            tokenRevocationService.revoke(updated.getId());
+        }
+        return updated;
     }
 
     /**
-     * Deletes given <code>User</code>
+     * Deletes given <code>User</code>. Cached authentications of the user are invalidated, tokens issued to the user
+     * are revoked
      *
      * @param user <code>User</code> entity to delete. Must not be <code>null</code>, otherwise nothing will happen
      */
     public void deleteUser(User user) {
         if (user != null) {
             userRepository.delete(user);
+            credentialCache.invalidate(user);
+            tokenRevocationService.revoke(user.getId());
         }
     }
 
@@ -75,7 +101,18 @@ public class UserService {
     }
 
     /**
-     * Get all instances of the <code>User</code> type.
+     * Get short data (id, username and banned state) of users with provided IDs using single database query
+     *
+     * @param ids ids of users to find. <code>null</code> or empty collection results in empty List
+     * @return List of <code>UserShortDto</code> objects for found users. Otherwise returns empty List.
+     */
+    public List<UserShortDto> getUsersShort(Collection<Long> ids) {
+        return ids == null || ids.isEmpty() ? new ArrayList<>() : userRepository.findUsersShortByIdIn(ids);
+    }
+
+    /**
+     * Get all instances of the <code>User</code> type. All of them are loaded into memory at once, use
+     * <code>ExportService</code> to walk through all of them.
      *
      * @return all <code>User</code> instances
      */
@@ -95,6 +132,27 @@ public class UserService {
         return userRepository.findAll(pageable == null ? new PageRequest(0, 10) : pageable);
     }
 
+    /**
+     * Get page of users sorted by given property that starts right after user with given sort value and id, so deep
+     * pages cost the same as the first one. Users with equal sort value are ordered by id.
+     *
+     * @param property  user property to sort by. Must support keyset pagination, otherwise returns empty list
+     * @param direction sort direction. If <code>null</code> - ascending order is used
+     * @param value     sort value of the last user from previous page. Must not be <code>null</code> if <code>id</code>
+     *                  is set, ignored when sorting by id
+     * @param id        id of the last user from previous page. <code>null</code> to get the first page
+     * @param limit     max number of users to get
+     * @return <code>List</code> of users. Empty if none found
+     * @see SortTypeUser#isKeysetSortType(String)
+     */
+    public List<User> getUsersPageAfter(String property, Sort.Direction direction, String value, Long id, int limit) {
+        if (!SortTypeUser.isKeysetSortType(property)) {
+            return new ArrayList<>();
+        }
+        return userRepository.findPageAfter(property, direction == null ? Sort.Direction.ASC : direction, value, id,
+                limit);
+    }
+
     /**
      * Returns whether an entity of type <code>User</code> with the given id exists.
      *
@@ -106,7 +164,8 @@ public class UserService {
     }
 
     /**
-     * Get user with provided login in database
+     * Get user with provided login in database. Login is resolved with second level cache. Logins are compared
+     * ignoring case, as database does
      *
      * @param login login of user to find. Must not be <code>null</code>
      * @return <code>User</code> object if found, otherwise returns <code>null</code>
@@ -119,7 +178,12 @@ public class UserService {
         } else {
             return null;
         }
-        return userRepository.findUserByLogin(login);
+        User user = userRepository.findByNaturalLogin(login);
+        if (user != null && !login.equalsIgnoreCase(user.getLogin())) {
+            // login has been cached in another case and user has changed it since then
+            user = userRepository.findUserByLogin(login);
+        }
+        return user;
     }
 
 }
@@ -0,0 +1,79 @@
+package com.serviceapp.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Compact probabilistic set of <code>long</code> values. Answers whether value might have been added: "no" is always
+ * correct, "yes" may be false with probability close to the one filter has been sized for. Values can't be removed,
+ * filter has to be rebuilt instead. Safe for concurrent use.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final int bitCount;
+    private final int hashCount;
+
+    /**
+     * Creates filter sized for expected number of values and false positive probability
+     *
+     * @param expectedValues           expected number of values. Values over it increase false positive probability
+     * @param falsePositiveProbability desired false positive probability, between 0 and 1
+     */
+    public BloomFilter(int expectedValues, double falsePositiveProbability) {
+        int expected = Math.max(1, expectedValues);
+        long bits = (long) Math.ceil(-expected * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.max(64, Math.min(bits, Integer.MAX_VALUE - 63));
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expected * Math.log(2)));
+        this.bits = new AtomicLongArray((bitCount + 63) / 64);
+    }
+
+    /**
+     * Adds value to filter
+     *
+     * @param value value to add
+     */
+    public void add(long value) {
+        long hash = mix(value);
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = Math.floorMod(first + i * second, bitCount);
+            long mask = 1L << bit;
+            int index = bit >>> 6;
+            long word;
+            do {
+                word = bits.get(index);
+            } while ((word & mask) == 0 && !bits.compareAndSet(index, word, word | mask));
+        }
+    }
+
+    /**
+     * Checks whether value might have been added to filter
+     *
+     * @param value value to check
+     * @return <code>false</code> if value has definitely not been added, <code>true</code> if it might have been
+     */
+    public boolean mightContain(long value) {
+        long hash = mix(value);
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = Math.floorMod(first + i * second, bitCount);
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Spreads bits of value (SplitMix64 finalizer), so close values land far apart in filter
+     */
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.serviceapp.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Helper class to create and read opaque cursors used for keyset (seek) pagination. Cursor holds values of the last
+ * returned record (sort key and id) so the next page can be fetched starting right after it.
+ */
+public class CursorHelper {
+
+    private static final String SEPARATOR = ":";
+
+    /**
+     * Packs provided values into opaque url-safe cursor
+     *
+     * @param values values of the last returned record to pack. Only the last value may contain ":" character
+     * @return url-safe cursor string
+     */
+    public static String encode(Object... values) {
+        StringBuilder builder = new StringBuilder();
+        for (Object value : values) {
+            if (builder.length() > 0) {
+                builder.append(SEPARATOR);
+            }
+            builder.append(value);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Unpacks values from cursor created by {@link #encode(Object...)}
+     *
+     * @param cursor cursor to unpack
+     * @param size   expected number of values in cursor
+     * @return array of values packed in cursor
+     * @throws IllegalArgumentException thrown if cursor is <code>null</code>, corrupted or holds unexpected number
+     *                                  of values
+     */
+    public static String[] decode(String cursor, int size) throws IllegalArgumentException {
+        if (cursor == null) {
+            throw new IllegalArgumentException("Cursor is missing");
+        }
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        String[] values = decoded.split(SEPARATOR, size);
+        if (values.length != size) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return values;
+    }
+
+}
@@ -8,23 +8,29 @@ import com.serviceapp.entity.dto.ReviewTransferObject;
 import com.serviceapp.entity.dto.UserShortDto;
 import com.serviceapp.entity.dto.UserTransferObject;
 import com.serviceapp.entity.util.MovieContainer;
+import com.serviceapp.entity.util.ReviewContainer;
 import com.serviceapp.exception.OnGetNullException;
 import com.serviceapp.service.MovieService;
 import com.serviceapp.service.ReviewService;
 import com.serviceapp.service.UserService;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 
-import java.text.DecimalFormat;
+import java.sql.Date;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Helper class to convert DTO to entities and backwards.
  */
 public class EntityHelper {
 
-    private static final Logger LOGGER = LogManager.getLogger();
+    /**
+     * Reviews per page on movie page
+     */
+    private static final int REVIEWS_PER_PAGE = 10;
 
     /**
      * Converts provided <code>UserTransferObject</code> to <code>User</code> object
@@ -141,7 +147,8 @@ public class EntityHelper {
 
     /**
      * Helper method to get and pack movie data, users and their reviews into one single <code>MovieContainer</code>
-     * object for convenience.
+     * object for convenience. Only the first page of reviews is packed, the rest could be requested with cursor
+     * provided in container.
      *
      * @param movieId id of movie for witch to retrieve data
      * @return <code>MovieContainer</code> object with all movie-related data
@@ -156,28 +163,85 @@ public class EntityHelper {
             throw new OnGetNullException("Unable to get movie");
         }
         MovieTransferObject movieTransferObject = EntityHelper.movieToDto(movie);
-        List<Review> reviews = reviewService.getReviewsByMovieId(movieId);
-        reviews.sort((r1, r2) -> r2.getPostDate().compareTo(r1.getPostDate()));
+        ReviewContainer reviewContainer = completeReviews(movieId, null, reviewService, userService);
+        movieContainer.setMovieTransferObject(movieTransferObject);
+        movieContainer.setReviews(reviewContainer.getReviews());
+        movieContainer.setUsers(reviewContainer.getUsers());
+        movieContainer.setNextReviews(reviewContainer.getNext());
+        return movieContainer;
+    }
+
+    /**
+     * Helper method to get one page of movie reviews together with their authors. Reviews are sorted from newest to
+     * oldest.
+     *
+     * @param movieId id of movie for witch to retrieve reviews
+     * @param after   cursor received with previous page. <code>null</code> to get the first page
+     * @return <code>ReviewContainer</code> object with reviews, their authors and cursor to the next page
+     * @throws OnGetNullException       if author of some review can't be found
+     * @throws IllegalArgumentException if <code>after</code> cursor is corrupted
+     * @see ReviewContainer
+     */
+    public static ReviewContainer completeReviews(Long movieId, String after, ReviewService reviewService,
+                                                  UserService userService)
+            throws OnGetNullException, IllegalArgumentException {
+        Date postDate = null;
+        Long reviewId = null;
+        if (after != null) {
+            String[] cursor = CursorHelper.decode(after, 2);
+            postDate = new Date(Long.parseLong(cursor[0]));
+            reviewId = Long.valueOf(cursor[1]);
+        }
+        List<Review> reviews = reviewService.getReviewsPage(movieId, postDate, reviewId, REVIEWS_PER_PAGE + 1);
+        String next = null;
+        if (reviews.size() > REVIEWS_PER_PAGE) {
+            reviews = new ArrayList<>(reviews.subList(0, REVIEWS_PER_PAGE));
+            Review last = reviews.get(reviews.size() - 1);
+            next = CursorHelper.encode(last.getPostDate().getTime(), last.getId());
+        }
+        ReviewContainer reviewContainer = new ReviewContainer();
+        reviewContainer.setReviews(reviews);
+        reviewContainer.setUsers(completeAuthors(reviews, userService));
+        reviewContainer.setNext(next);
+        return reviewContainer;
+    }
+
+    /**
+     * Gets authors of provided reviews using one query. Each author is resolved only once.
+     *
+     * @param reviews reviews to get authors for
+     * @return List of authors, one per each review in the same order as reviews
+     * @throws OnGetNullException if author of some review can't be found
+     */
+    private static List<UserShortDto> completeAuthors(List<Review> reviews, UserService userService)
+            throws OnGetNullException {
+        Set<Long> userIds = reviews.stream()
+                .filter(EntityHelper::hasAuthor)
+                .map(Review::getUserId)
+                .collect(Collectors.toSet());
+        Map<Long, UserShortDto> authors = userService.getUsersShort(userIds).stream()
+                .collect(Collectors.toMap(UserShortDto::getId, Function.identity()));
         List<UserShortDto> users = new ArrayList<>();
-        if (reviews.size() > 0) {
-            for (Review review : reviews) {
-                if (review != null)
-                    if (review.getUserId() != null)
-                        if (review.getUserId() > 0) {
-                            User user = userService.getUser(review.getUserId());
-                            if (user == null) {
-                                throw new OnGetNullException("Unable to get user");
-                            }
-                            UserShortDto userShort = EntityHelper.userToDtoShort(user);
-                            userShort.setLogin(null);
-                            users.add(userShort);
-                        }
+        for (Review review : reviews) {
+            if (hasAuthor(review)) {
+                UserShortDto userShort = authors.get(review.getUserId());
+                if (userShort == null) {
+                    throw new OnGetNullException("Unable to get user");
+                }
+                users.add(userShort);
             }
         }
-        movieContainer.setMovieTransferObject(movieTransferObject);
-        movieContainer.setReviews(reviews);
-        movieContainer.setUsers(users);
-        return movieContainer;
+        return users;
+    }
+
+    /**
+     * Checks if review is present and refers to a valid author id
+     *
+     * @param review review to check
+     * @return <code>true</code> if review has positive author id, <code>false</code> otherwise
+     */
+    private static boolean hasAuthor(Review review) {
+        return review != null && review.getUserId() != null && review.getUserId() > 0;
     }
 
     /**
@@ -202,54 +266,4 @@ public class EntityHelper {
         return movieToUpdate;
     }
 
-    /**
-     * Recounts current movie rating taking in account new rating
-     *
-     * @param reviews <code>List</code> of <code>Review</code> objects to be parsed for ratings
-     * @param rating  new rating to add to summary
-     * @return new rating value
-     */
-    public static Double recountRating(List<Review> reviews, Integer rating) {
-        if (rating == null || rating < 0) {
-            rating = 0;
-        }
-        Double totalRating = 0d;
-        for (Review review : reviews) {
-            totalRating += review.getRating();
-        }
-        char separator = ((DecimalFormat) DecimalFormat.getInstance()).getDecimalFormatSymbols().getDecimalSeparator();
-        DecimalFormat df = new DecimalFormat("#" + separator + "##");
-        Double newRating = (totalRating + rating) / (reviews.size() + 1);
-        Double newRatingFormatted = null;
-        try {
-            newRatingFormatted = Double.valueOf(df.format(newRating));
-        } catch (NumberFormatException e) {
-            LOGGER.error("Error parsing rating during movie rating update.", e);
-        }
-        return (newRatingFormatted != null) ? newRatingFormatted : newRating;
-    }
-
-    /**
-     * Recounts current movie rating based on review ratings
-     *
-     * @param reviews <code>List</code> of <code>Review</code> objects to be parsed for ratings
-     * @return recalculated rating value as <code>Double</code>
-     */
-    public static Double recountRating(List<Review> reviews) {
-        Double totalRating = 0d;
-        for (Review review : reviews) {
-            totalRating += review.getRating();
-        }
-        char separator = ((DecimalFormat) DecimalFormat.getInstance()).getDecimalFormatSymbols().getDecimalSeparator();
-        DecimalFormat df = new DecimalFormat("#" + separator + "##");
-        Double newRating = totalRating / reviews.size();
-        try {
-            newRating = Double.valueOf(df.format(newRating));
-        } catch (NumberFormatException e) {
-            LOGGER.error("Error parsing rating during movie rating update.", e);
-        }
-        return newRating;
-    }
-
-
 }
@@ -0,0 +1,42 @@
+package com.serviceapp.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Helper class for streaming responses in newline delimited JSON format (one JSON object per line)
+ */
+public class NdjsonHelper {
+
+    public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * Writes object as one JSON line and flushes it to client
+     *
+     * @param outputStream response output stream
+     * @param value        object to write
+     * @throws IOException thrown if object can't be written (e.g. client has closed connection)
+     */
+    public static void writeLine(OutputStream outputStream, Object value) throws IOException {
+        write(outputStream, value);
+        outputStream.flush();
+    }
+
+    /**
+     * Writes object as one JSON line without flushing, so output is sent to client when response buffer is full.
+     * Suits long responses where lines are not awaited one by one
+     *
+     * @param outputStream response output stream
+     * @param value        object to write
+     * @throws IOException thrown if object can't be written (e.g. client has closed connection)
+     */
+    public static void write(OutputStream outputStream, Object value) throws IOException {
+        outputStream.write(OBJECT_MAPPER.writeValueAsBytes(value));
+        outputStream.write('\n');
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.serviceapp.util;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Data source sending read-only transactions to replica databases and everything else to primary database. Replica
+ * is chosen for each connection either in turn (<code>ROUND_ROBIN</code>) or as the one with the least connections
+ * in use (<code>LEAST_BUSY</code>).
+ * <p>
+ * Must be wrapped with <code>LazyConnectionDataSourceProxy</code>: transaction manager asks for connection before it
+ * marks transaction as read-only, so connection has to be taken from this data source at the first statement.
+ * <p>
+ * Replicas may lag behind primary. With read-your-writes enabled, once a request has written to primary all its
+ * following reads go to primary too, so user sees own changes. Request is delimited with
+ * <code>beginRequest</code> and <code>endRequest</code>; reads outside of requests always go to replicas.
+ * <p>
+ * Entities read from replica would repopulate second level cache with values primary may have already changed, so
+ * <code>ReadWriteRoutingJpaDialect</code> makes such transactions only read the cache.
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource {
+
+    public enum Selection {
+        ROUND_ROBIN, LEAST_BUSY
+    }
+
+    private static final ThreadLocal<boolean[]> REQUEST_WROTE = new ThreadLocal<>();
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final Selection selection;
+    private final boolean readYourWrites;
+    private final AtomicInteger[] busy;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param primary        data source of primary database
+     * @param replicas       data sources of replica databases. If empty, all connections are taken from primary
+     * @param selection      how to choose replica for read-only transaction
+     * @param readYourWrites if <code>true</code> - requests which have written to primary read from primary too
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas, Selection selection,
+                                      boolean readYourWrites) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas);
+        this.selection = selection;
+        this.readYourWrites = readYourWrites;
+        this.busy = new AtomicInteger[replicas.size()];
+        for (int i = 0; i < busy.length; i++) {
+            busy[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * Marks the start of request in current thread. Writes made till <code>endRequest</code> make following reads
+     * go to primary
+     */
+    public static void beginRequest() {
+        REQUEST_WROTE.set(new boolean[1]);
+    }
+
+    /**
+     * Marks the end of request in current thread
+     */
+    public static void endRequest() {
+        REQUEST_WROTE.remove();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(null, null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        boolean[] requestWrote = REQUEST_WROTE.get();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (requestWrote != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+                requestWrote[0] = true;
+            }
+            return connect(primary, username, password);
+        }
+        if (!readsFromReplica()) {
+            return connect(primary, username, password);
+        }
+
+        int replica = select();
+        Connection connection = connect(replicas.get(replica), username, password);
+        busy[replica].incrementAndGet();
+        return released(connection, busy[replica]);
+    }
+
+    /**
+     * Check if read-only transaction in current thread would take connection from replica
+     *
+     * @return <code>false</code> if there are no replicas or current request reads its writes from primary
+     */
+    public boolean readsFromReplica() {
+        boolean[] requestWrote = REQUEST_WROTE.get();
+        return !replicas.isEmpty() && !(readYourWrites && requestWrote != null && requestWrote[0]);
+    }
+
+    /**
+     * Get number of connections taken from each replica and not closed yet
+     *
+     * @return numbers of connections in the order of replicas
+     */
+    public int[] getBusyConnections() {
+        int[] connections = new int[busy.length];
+        for (int i = 0; i < busy.length; i++) {
+            connections[i] = busy[i].get();
+        }
+        return connections;
+    }
+
+    private int select() {
+        if (selection == Selection.LEAST_BUSY) {
+            // scan starts from the next replica in turn, so equally busy replicas are used evenly
+            int start = Math.floorMod(next.getAndIncrement(), busy.length);
+            int selected = start;
+            for (int i = 1; i < busy.length; i++) {
+                int replica = (start + i) % busy.length;
+                if (busy[replica].get() < busy[selected].get()) {
+                    selected = replica;
+                }
+            }
+            return selected;
+        }
+        return Math.floorMod(next.getAndIncrement(), replicas.size());
+    }
+
+    private static Connection connect(DataSource dataSource, String username, String password)
+            throws SQLException {
+        return username == null ? dataSource.getConnection() : dataSource.getConnection(username, password);
+    }
+
+    /**
+     * Wraps connection to count it as not busy when it's closed
+     */
+    private static Connection released(Connection connection, AtomicInteger busy) {
+        boolean[] closed = new boolean[1];
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && !closed[0]) {
+                        closed[0] = true;
+                        busy.decrementAndGet();
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+}
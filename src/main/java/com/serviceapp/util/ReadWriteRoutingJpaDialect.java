@@ -0,0 +1,77 @@
+package com.serviceapp.util;
+
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Hibernate dialect for <code>ReadWriteRoutingDataSource</code>. Read-only transactions which read from replica get
+ * entities from second level cache but don't put loaded ones to it (<code>CacheStoreMode.BYPASS</code>): replica may
+ * lag behind primary, and entity loaded from it would stay cached with old values after primary has changed.
+ */
+public class ReadWriteRoutingJpaDialect extends HibernateJpaDialect {
+
+    private static final String CACHE_STORE_MODE = "javax.persistence.cache.storeMode";
+    private final ReadWriteRoutingDataSource dataSource;
+
+    /**
+     * @param dataSource data source of entity manager factory, <code>ReadWriteRoutingDataSource</code> or a proxy of it
+     */
+    public ReadWriteRoutingJpaDialect(DataSource dataSource) {
+        try {
+            this.dataSource = dataSource.unwrap(ReadWriteRoutingDataSource.class);
+        } catch (SQLException e) {
+            throw new IllegalArgumentException("Data source is not ReadWriteRoutingDataSource", e);
+        }
+    }
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws PersistenceException, SQLException, TransactionException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        if (!definition.isReadOnly() || !dataSource.readsFromReplica()) {
+            return transactionData;
+        }
+
+        // entity manager properties, not session cache mode: Hibernate derives cache mode from them on each operation
+        Object previousStoreMode = entityManager.getProperties().get(CACHE_STORE_MODE);
+        entityManager.setProperty(CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+        return new ReplicaTransactionData(entityManager, previousStoreMode, transactionData);
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof ReplicaTransactionData) {
+            ReplicaTransactionData replicaTransactionData = (ReplicaTransactionData) transactionData;
+            // entity manager may outlive transaction, following transactions may read from primary
+            replicaTransactionData.entityManager.setProperty(CACHE_STORE_MODE,
+                    replicaTransactionData.previousStoreMode != null ?
+                            replicaTransactionData.previousStoreMode : CacheStoreMode.USE);
+            transactionData = replicaTransactionData.transactionData;
+        }
+        super.cleanupTransaction(transactionData);
+    }
+
+    /**
+     * Transaction data of <code>HibernateJpaDialect</code> with cache store mode to restore after transaction
+     */
+    private static class ReplicaTransactionData {
+
+        private final EntityManager entityManager;
+        private final Object previousStoreMode;
+        private final Object transactionData;
+
+        private ReplicaTransactionData(EntityManager entityManager, Object previousStoreMode, Object transactionData) {
+            this.entityManager = entityManager;
+            this.previousStoreMode = previousStoreMode;
+            this.transactionData = transactionData;
+        }
+    }
+
+}
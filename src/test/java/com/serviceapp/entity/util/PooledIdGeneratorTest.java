@@ -0,0 +1,190 @@
+package com.serviceapp.entity.util;
+
+import com.serviceapp.entity.Movie;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import resources.TestConfiguration;
+import resources.TestMovies;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for <code>PooledIdGenerator</code> class. Two entity manager factories on the same database play two
+ * application instances
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebAppConfiguration
+@ContextConfiguration(classes = TestConfiguration.class)
+public class PooledIdGeneratorTest {
+
+    private static final String HIBERNATE_DIALECT_PROP = "hibernate.dialect";
+    private static final String HIBERNATE_L2_CACHE_PROP = "hibernate.cache.use_second_level_cache";
+    private static final String HIBERNATE_DDL_PROP = "hibernate.hbm2ddl.auto";
+    private static final int BLOCK_SIZE = 7;
+    private static final int MOVIES_PER_INSTANCE = 100;
+    private static final int MOVIES_PER_TRANSACTION = 20;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    public void uniqueIdsAcrossInstances() throws Exception {
+        Long maxId = maxMovieId();
+        EntityManagerFactory first = instance();
+        EntityManagerFactory second = instance();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Long> ids = new ArrayList<>();
+        try {
+            Future<List<Long>> firstIds = executor.submit(() -> createMovies(first));
+            Future<List<Long>> secondIds = executor.submit(() -> createMovies(second));
+            ids.addAll(firstIds.get());
+            ids.addAll(secondIds.get());
+
+            Set<Long> unique = new HashSet<>(ids);
+            assertEquals(2 * MOVIES_PER_INSTANCE, unique.size());
+            for (Long id : unique) {
+                assertTrue(id > maxId);
+            }
+            EntityManager entityManager = first.createEntityManager();
+            assertEquals((long) unique.size(), entityManager
+                    .createQuery("select count(m) from Movie m where m.id in :ids", Long.class)
+                    .setParameter("ids", unique)
+                    .getSingleResult().longValue());
+            entityManager.close();
+        } finally {
+            executor.shutdown();
+            deleteMovies(first, ids);
+            first.close();
+            second.close();
+        }
+    }
+
+    @Test
+    public void segmentCreationFailure() {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .setName("pooled_failure")
+                .build();
+        Properties properties = new Properties();
+        properties.put(HIBERNATE_DIALECT_PROP, "org.hibernate.dialect.H2Dialect");
+        properties.put(HIBERNATE_L2_CACHE_PROP, "false");
+        properties.put(HIBERNATE_DDL_PROP, "create");
+        EntityManagerFactory factory = instance(database, properties);
+        // generator row of movies can't be created: no table to find the greatest id in
+        new JdbcTemplate(database).execute("DROP TABLE Movie CASCADE");
+
+        EntityManager entityManager = factory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            entityManager.persist(TestMovies.movie("Pooled"));
+            fail("Id generated without generator row");
+        } catch (PersistenceException e) {
+            assertTrue(e.getMessage().contains("Movie"));
+        } finally {
+            entityManager.close();
+            factory.close();
+            database.shutdown();
+        }
+    }
+
+    private Long maxMovieId() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            Long maxId = entityManager.createQuery("select max(m.id) from Movie m", Long.class).getSingleResult();
+            return maxId == null ? 0L : maxId;
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private static List<Long> createMovies(EntityManagerFactory factory) {
+        List<Long> ids = new ArrayList<>();
+        EntityManager entityManager = factory.createEntityManager();
+        try {
+            for (int i = 0; i < MOVIES_PER_INSTANCE; i += MOVIES_PER_TRANSACTION) {
+                List<Movie> movies = new ArrayList<>();
+                entityManager.getTransaction().begin();
+                for (int j = 0; j < MOVIES_PER_TRANSACTION; j++) {
+                    Movie movie = TestMovies.movie("Pooled" + (i + j));
+                    entityManager.persist(movie);
+                    movies.add(movie);
+                }
+                entityManager.getTransaction().commit();
+                entityManager.clear();
+                movies.forEach(movie -> ids.add(movie.getId()));
+            }
+        } finally {
+            entityManager.close();
+        }
+        return ids;
+    }
+
+    private static void deleteMovies(EntityManagerFactory factory, List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        EntityManager entityManager = factory.createEntityManager();
+        entityManager.getTransaction().begin();
+        entityManager.createQuery("delete from Movie m where m.id in :ids").setParameter("ids", ids).executeUpdate();
+        entityManager.getTransaction().commit();
+        entityManager.close();
+    }
+
+
+    /**
+     * Creates entity manager factory on the test database, as another application instance would do
+     *
+     * @return new entity manager factory
+     */
+    private EntityManagerFactory instance() {
+        Properties properties = new Properties();
+        properties.put(HIBERNATE_DIALECT_PROP, entityManagerFactory.getProperties().get(HIBERNATE_DIALECT_PROP));
+        properties.put(HIBERNATE_L2_CACHE_PROP, "false");
+        properties.put(PooledIdGenerator.BLOCK_SIZE_SETTING + ".Movie", String.valueOf(BLOCK_SIZE));
+        return instance(dataSource, properties);
+    }
+
+    /**
+     * Creates entity manager factory of all entities
+     *
+     * @param dataSource database to use
+     * @param properties Hibernate properties
+     * @return new entity manager factory
+     */
+    private static EntityManagerFactory instance(DataSource dataSource, Properties properties) {
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setPackagesToScan("com.serviceapp.entity");
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setJpaProperties(properties);
+        factoryBean.afterPropertiesSet();
+        return factoryBean.getObject();
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.serviceapp.filter;
+
+import com.serviceapp.security.LoginThrottle;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import resources.TestConfiguration;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for login throttling of <code>AuthFilter</code>
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebAppConfiguration
+@ContextConfiguration(classes = TestConfiguration.class)
+public class AuthFilterTest {
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    @After
+    public void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void failedAttemptsThrottled() throws Exception {
+        AuthFilter filter = filter();
+        assertEquals(401, login(filter, "user@mail.com", "wrong").getStatus());
+        assertEquals(401, login(filter, "user@mail.com", "wrong").getStatus());
+
+        MockHttpServletResponse throttled = login(filter, "USER@mail.com", "password");
+        assertEquals(429, throttled.getStatus());
+        assertNotNull(throttled.getHeader("Retry-After"));
+        // password has not been checked
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void successfulAttemptsNotThrottled() throws Exception {
+        AuthFilter filter = filter();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, login(filter, "user@mail.com", "password").getStatus());
+        }
+        assertEquals(5, attempts.get());
+    }
+
+    private MockHttpServletResponse login(AuthFilter filter, String login, String password) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/loginPage");
+        request.addHeader("Authorization", "Basic " + Base64.getEncoder()
+                .encodeToString((login + ":" + password).getBytes(StandardCharsets.UTF_8)));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        SecurityContextHolder.clearContext();
+        return response;
+    }
+
+    private AuthFilter filter() {
+        AuthenticationManager authenticationManager = authentication -> {
+            attempts.incrementAndGet();
+            if (!"password".equals(authentication.getCredentials())) {
+                throw new BadCredentialsException("Bad credentials");
+            }
+            return new UsernamePasswordAuthenticationToken(authentication.getPrincipal(), null,
+                    Collections.emptyList());
+        };
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("login.throttle.loginRate", "1");
+        environment.setProperty("login.throttle.loginBurst", "2");
+        return new AuthFilter(authenticationManager, new LoginThrottle(environment));
+    }
+
+}
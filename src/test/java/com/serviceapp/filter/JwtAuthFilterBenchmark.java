@@ -0,0 +1,192 @@
+package com.serviceapp.filter;
+
+import com.serviceapp.security.TokenAuthenticationManager;
+import com.serviceapp.security.securityEntity.TokenAuthentication;
+import com.serviceapp.service.CustomTokenService;
+import com.serviceapp.service.TokenRevocationService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.impl.DefaultClaims;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.AbstractAuthenticationProcessingFilter;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.util.AntPathMatcher;
+import resources.TestConfiguration;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Measures per-request overhead of token filters with mock requests and cached token. Not run by default
+ * <code>mvn test</code>, run it with <code>mvn test -Pbenchmark</code>.
+ * <p>
+ * <code>tokenFilter</code> measures current single <code>JwtAuthFilter</code>, <code>legacyChain</code> measures
+ * three filters the application used before (one per protected path, each forwarding authenticated request).
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebAppConfiguration
+@ContextConfiguration(classes = TestConfiguration.class)
+public class JwtAuthFilterBenchmark {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final int ITERATIONS = 50000;
+    private static final String[] PATHS = {"/admin/users", "/account", "/movies/1"};
+
+    @Autowired
+    private TokenRevocationService revocationService;
+
+    @After
+    public void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void tokenFilter() throws Exception {
+        measure("single filter", new JwtAuthFilter(authenticationManager()));
+    }
+
+    @Test
+    public void legacyChain() throws Exception {
+        AuthenticationManager authenticationManager = authenticationManager();
+        measure("legacy chain",
+                new LegacyJwtAuthFilter(new AntPathRequestMatcher("/admin/**"), authenticationManager),
+                new LegacyJwtAuthFilter(new AntPathRequestMatcher("/account/**"), authenticationManager),
+                new LegacyJwtAuthFilter(new AntPathRequestMatcher("/movies/**/post**"), authenticationManager));
+    }
+
+    /**
+     * Passes requests to each path through the filters, first round warms up
+     *
+     * @param name    name of measured filters for the log
+     * @param filters filters to measure in chain order
+     */
+    private static void measure(String name, Filter... filters) throws Exception {
+        for (String path : PATHS) {
+            run(path, filters);
+            long start = System.nanoTime();
+            long dispatches = run(path, filters);
+            LOGGER.info("{} {}: {} ns per request, {} dispatches per request", name, path,
+                    (System.nanoTime() - start) / ITERATIONS, (double) dispatches / ITERATIONS);
+        }
+    }
+
+    /**
+     * Passes requests through the filters
+     *
+     * @param path    requested path
+     * @param filters filters to pass requests through
+     * @return number of times requests were dispatched further (reached the servlet or forwarded)
+     */
+    private static long run(String path, Filter... filters) throws Exception {
+        long[] served = new long[1];
+        HttpServlet servlet = new HttpServlet() {
+            @Override
+            public void service(ServletRequest request, ServletResponse response) {
+                served[0]++;
+            }
+        };
+        long forwards = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+            request.setServletPath(path);
+            request.addHeader("Authorization", "Bearer token");
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            new MockFilterChain(servlet, filters).doFilter(request, response);
+            forwards += response.getForwardedUrl() != null ? 1 : 0;
+        }
+        return served[0] + forwards;
+    }
+
+    private AuthenticationManager authenticationManager() {
+        CustomTokenService tokenService = new CustomTokenService(null, null, null, new MockEnvironment()) {
+            @Override
+            public Claims parseToken(String token) throws JwtException {
+                Map<String, Object> claims = new HashMap<>();
+                claims.put("user_id", Integer.MAX_VALUE);
+                claims.put("user_login", "login");
+                claims.put("user_name", "name");
+                claims.put("user_banned", false);
+                claims.put("user_authorities", Collections.singletonList("ROLE_ADMIN"));
+                claims.put("token_creation_date", System.currentTimeMillis());
+                claims.put("token_expiration_date", System.currentTimeMillis() + 60000);
+                return new DefaultClaims(claims);
+            }
+        };
+        return new TokenAuthenticationManager(tokenService, revocationService, new MockEnvironment());
+    }
+
+    /**
+     * Token filter as it was before all token protected paths were handled by single <code>JwtAuthFilter</code>.
+     * Authenticated request is forwarded and then passed down the chain, admin path is matched on each request
+     */
+    private static class LegacyJwtAuthFilter extends AbstractAuthenticationProcessingFilter {
+
+        private LegacyJwtAuthFilter(RequestMatcher requiresAuthenticationRequestMatcher,
+                                    AuthenticationManager authenticationManager) {
+            super(requiresAuthenticationRequestMatcher);
+            setAuthenticationManager(authenticationManager);
+            setAuthenticationSuccessHandler((request, response, authentication) -> {
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+                request.getRequestDispatcher(request.getServletPath() +
+                        (request.getPathInfo() != null ? request.getPathInfo() : "")).forward(request, response);
+            });
+            setAuthenticationFailureHandler((request, response, authenticationException) ->
+                    response.setStatus(HttpServletResponse.SC_FORBIDDEN));
+        }
+
+        @Override
+        public Authentication attemptAuthentication(HttpServletRequest request, HttpServletResponse response)
+                throws AuthenticationException, IOException, ServletException {
+            String authHeader = request.getHeader("Authorization");
+            Authentication authenticated = getAuthenticationManager()
+                    .authenticate(new TokenAuthentication(authHeader.substring(7)));
+            if (new AntPathMatcher().match("/admin/**", request.getServletPath())) {
+                boolean admin = false;
+                for (GrantedAuthority a : authenticated.getAuthorities()) {
+                    admin |= a.toString().contains("ROLE_ADMIN");
+                }
+                if (!admin) {
+                    response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+                }
+            }
+            return authenticated;
+        }
+
+        @Override
+        protected void successfulAuthentication(HttpServletRequest request, HttpServletResponse response,
+                                                FilterChain chain, Authentication authResult)
+                throws IOException, ServletException {
+            super.successfulAuthentication(request, response, chain, authResult);
+            chain.doFilter(request, response);
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.serviceapp.filter;
+
+import com.serviceapp.security.TokenAuthenticationManager;
+import com.serviceapp.service.CustomTokenService;
+import com.serviceapp.service.TokenRevocationService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.impl.DefaultClaims;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import resources.TestConfiguration;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for <code>JwtAuthFilter</code> class
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebAppConfiguration
+@ContextConfiguration(classes = TestConfiguration.class)
+public class JwtAuthFilterTest {
+
+    @Autowired
+    private TokenRevocationService revocationService;
+
+    @After
+    public void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void authenticatedOnce() throws Exception {
+        JwtAuthFilter filter = filter("ROLE_USER");
+        for (String path : new String[]{"/account", "/account/reviews", "/movies/1/post"}) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            MockFilterChain chain = new MockFilterChain();
+            filter.doFilter(request(path, "Bearer token"), response, chain);
+
+            assertNotNull(path, chain.getRequest());
+            assertNull(path, response.getForwardedUrl());
+            assertEquals(path, HttpServletResponse.SC_OK, response.getStatus());
+            assertTrue(SecurityContextHolder.getContext().getAuthentication().isAuthenticated());
+        }
+    }
+
+    @Test
+    public void unprotectedNotAuthenticated() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        filter("ROLE_USER").doFilter(request("/movies/1", null), new MockHttpServletResponse(), chain);
+        assertNotNull(chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    public void adminRoleRequired() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter("ROLE_USER").doFilter(request("/admin/users", "Bearer token"), response, chain);
+        assertNull(chain.getRequest());
+        assertEquals(HttpServletResponse.SC_FORBIDDEN, response.getStatus());
+
+        chain = new MockFilterChain();
+        filter("ROLE_ADMIN").doFilter(request("/admin/users", "Bearer token"), new MockHttpServletResponse(), chain);
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    public void tokenMissing() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter("ROLE_USER").doFilter(request("/account", null), response, chain);
+        assertNull(chain.getRequest());
+        assertEquals(HttpServletResponse.SC_FORBIDDEN, response.getStatus());
+    }
+
+    private static MockHttpServletRequest request(String path, String authorization) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setServletPath(path);
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        return request;
+    }
+
+    private JwtAuthFilter filter(String role) {
+        CustomTokenService tokenService = new CustomTokenService(null, null, null, new MockEnvironment()) {
+            @Override
+            public Claims parseToken(String token) throws JwtException {
+                Map<String, Object> claims = new HashMap<>();
+                claims.put("user_id", Integer.MAX_VALUE);
+                claims.put("user_login", "login");
+                claims.put("user_name", "name");
+                claims.put("user_banned", false);
+                claims.put("user_authorities", Collections.singletonList(role));
+                claims.put("token_creation_date", System.currentTimeMillis());
+                claims.put("token_expiration_date", System.currentTimeMillis() + 60000);
+                return new DefaultClaims(claims);
+            }
+        };
+        return new JwtAuthFilter(
+                new TokenAuthenticationManager(tokenService, revocationService, new MockEnvironment()));
+    }
+
+}
@@ -1,19 +1,24 @@
 package com.serviceapp.repository;
 
 import com.serviceapp.entity.Movie;
+import com.serviceapp.entity.dto.MovieShortDto;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import resources.TestConfiguration;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 
@@ -119,39 +124,66 @@ public class MovieRepositoryTest {
         assertFalse(movieRepository.exists(NEGATIVE_ID));
     }
 
-    @Test(expected = IllegalArgumentException.class)
-    public void findByMovieNameContainsAllIgnoreCaseExceptionThrow() throws Exception {
-        // must throw IllegalArgumentException if search criteria is null
-        assertNotNull(movieRepository.findByMovieNameContainsAllIgnoreCase(null, PAGE_REQUEST));
+    @Test
+    public void findAllPaged() throws Exception {
+        Page<Movie> moviesPaged = movieRepository.findAll((Pageable) null);
+        assertNotNull(moviesPaged);
+        List<Movie> movies = movieRepository.findAll();
+        assertEquals(movies.size(), moviesPaged.getTotalElements());
     }
 
     @Test
-    public void findByMovieNameContainsAllIgnoreCase() {
-        // must not be null thus "" search criteria results in something like findAll()
-        Page<Movie> p = movieRepository.findByMovieNameContainsAllIgnoreCase("", PAGE_REQUEST);
-        assertNotNull(p);
+    public void findAllShort() {
+        Page<MovieShortDto> moviesPaged = movieRepository.findAllShort(PAGE_REQUEST);
+        assertEquals(movieRepository.count(), moviesPaged.getTotalElements());
+        MovieShortDto first = moviesPaged.getContent().get(0);
+        Movie movie = movieRepository.findOne(first.getId());
+        assertEquals(movie.getMovieName(), first.getMovieName());
+        assertEquals(movie.getDirector(), first.getDirector());
+        assertEquals(movie.getReleaseDate(), first.getReleaseDate());
+        assertEquals(movie.getRating(), first.getRating());
+        assertEquals(movie.getPosterURL(), first.getPosterURL());
     }
 
     @Test
-    public void findByMovieNameContainsAllIgnoreCaseEmpty() {
-        // " " as search criteria finds all titles with spaces
-        // alt+255 as search criteria results in empty Page<Movie> object
-        Page<Movie> p = movieRepository.findByMovieNameContainsAllIgnoreCase(" ", PAGE_REQUEST);
-        assertNotNull(p);
+    public void findAllShortSliced() {
+        // walking all slices must return every movie once, last slice has no next one
+        long total = 0;
+        Slice<MovieShortDto> slice = movieRepository.findAllShortSliced(new PageRequest(0, 4));
+        total += slice.getNumberOfElements();
+        while (slice.hasNext()) {
+            slice = movieRepository.findAllShortSliced(slice.nextPageable());
+            total += slice.getNumberOfElements();
+        }
+        assertEquals(movieRepository.count(), total);
     }
 
     @Test
-    public void findFirst10ByOrderByRatingDesc() throws Exception {
-        // size must be 10 (if there are 10+ records in database)
-        assertTrue(movieRepository.findFirst10ByOrderByRatingDesc().size() == 10);
+    public void findShortByTitle() {
+        PageRequest pageRequest = new PageRequest(0, 2, Sort.Direction.ASC, "id");
+        Page<MovieShortDto> page = movieRepository.findShortByTitle("A", pageRequest);
+        Slice<MovieShortDto> slice = movieRepository.findShortSliceByTitle("A", pageRequest);
+        List<Long> expected = page.getContent().stream().map(MovieShortDto::getId).collect(Collectors.toList());
+        for (MovieShortDto movie : page.getContent()) {
+            assertTrue(movie.getMovieName().toLowerCase().contains("a"));
+        }
+        assertEquals(expected, slice.getContent().stream().map(MovieShortDto::getId).collect(Collectors.toList()));
+        assertEquals(page.hasNext(), slice.hasNext());
+        // "" search criteria results in something like findAll()
+        assertEquals(movieRepository.count(), movieRepository.findShortByTitle("", PAGE_REQUEST).getTotalElements());
     }
 
     @Test
-    public void findAllPaged() throws Exception {
-        Page<Movie> moviesPaged = movieRepository.findAll((Pageable) null);
-        assertNotNull(moviesPaged);
-        List<Movie> movies = movieRepository.findAll();
-        assertEquals(movies.size(), moviesPaged.getTotalElements());
+    public void findShortPageAfter() {
+        // walking pages must return every movie once in ascending id order
+        List<Long> ids = new ArrayList<>();
+        List<MovieShortDto> page = movieRepository.findShortFirstPage(new PageRequest(0, 4));
+        while (!page.isEmpty()) {
+            page.forEach(movie -> ids.add(movie.getId()));
+            page = movieRepository.findShortPageAfter(page.get(page.size() - 1).getId(), new PageRequest(0, 4));
+        }
+        assertEquals(movieRepository.findAll(new Sort("id")).stream().map(Movie::getId).collect(Collectors.toList()),
+                ids);
     }
 
-}
\ No newline at end of file
+}
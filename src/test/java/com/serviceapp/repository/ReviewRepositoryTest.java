@@ -4,12 +4,14 @@ import com.serviceapp.entity.Review;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import resources.TestConfiguration;
 
 import java.sql.Date;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -25,6 +27,7 @@ public class ReviewRepositoryTest {
     private static final Long NEGATIVE_ID = -1L;
     private static final Long OK_ID = 1L;
     private static final Long ZERO_ID = 0L;
+    private static final PageRequest PAGE_REQUEST = new PageRequest(0, 3);
     @Autowired
     private ReviewRepository reviewRepository;
 
@@ -84,4 +87,27 @@ public class ReviewRepositoryTest {
         reviewRepository.exists(NULL_LONG);
     }
 
-}
\ No newline at end of file
+
+    @Test
+    public void findByMovieIdOrderByPostDateDescIdDesc() {
+        List<Review> reviews = reviewRepository.findByMovieIdOrderByPostDateDescIdDesc(OK_ID, PAGE_REQUEST);
+        assertTrue(reviews.size() <= PAGE_REQUEST.getPageSize());
+        assertTrue(reviewRepository.findByMovieIdOrderByPostDateDescIdDesc(NEGATIVE_ID, PAGE_REQUEST).isEmpty());
+    }
+
+    @Test
+    public void findReviewsPageAfter() {
+        List<Review> firstPage = reviewRepository.findByMovieIdOrderByPostDateDescIdDesc(OK_ID, PAGE_REQUEST);
+        assertFalse(firstPage.isEmpty());
+        Review last = firstPage.get(firstPage.size() - 1);
+        List<Review> nextPage =
+                reviewRepository.findReviewsPageAfter(OK_ID, last.getPostDate(), last.getId(), PAGE_REQUEST);
+        // next page must start strictly after the last review of previous page
+        for (Review review : nextPage) {
+            assertFalse(firstPage.stream().anyMatch(r -> r.getId().equals(review.getId())));
+            assertTrue(review.getPostDate().before(last.getPostDate())
+                    || (review.getPostDate().equals(last.getPostDate()) && review.getId() < last.getId()));
+        }
+    }
+
+}
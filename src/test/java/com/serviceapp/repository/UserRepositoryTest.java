@@ -6,13 +6,16 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import resources.TestConfiguration;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 
@@ -118,4 +121,27 @@ public class UserRepositoryTest {
         assertEquals(users.size(), usersPaged.getTotalElements());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void findPageAfter() {
+        // walking pages must return users in the same order as sorting all of them in database
+        String[][] sorts = {{"id", "ASC"}, {"id", "DESC"}, {"login", "ASC"}, {"name", "DESC"}};
+        for (String[] sortType : sorts) {
+            String property = sortType[0];
+            Sort.Direction direction = Sort.Direction.fromString(sortType[1]);
+            List<Long> expected = userRepository.findAll(new Sort(direction, property, "id")).stream()
+                    .map(User::getId)
+                    .collect(Collectors.toList());
+
+            List<Long> actual = new ArrayList<>();
+            List<User> page = userRepository.findPageAfter(property, direction, null, null, 3);
+            while (!page.isEmpty()) {
+                page.forEach(user -> actual.add(user.getId()));
+                User last = page.get(page.size() - 1);
+                String value = "login".equals(property) ? last.getLogin() : last.getName();
+                page = userRepository.findPageAfter(property, direction, value, last.getId(), 3);
+            }
+            assertEquals(expected, actual);
+        }
+    }
+
+}
@@ -0,0 +1,199 @@
+package com.serviceapp.security;
+
+import com.serviceapp.entity.User;
+import com.serviceapp.repository.UserRepository;
+import com.serviceapp.security.securityEntity.UserDetailsImpl;
+import com.serviceapp.service.TokenRevocationService;
+import com.serviceapp.service.UserService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import resources.TestConfiguration;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for <code>CredentialCache</code> and <code>CachingAuthenticationProvider</code> classes
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebAppConfiguration
+@ContextConfiguration(classes = TestConfiguration.class)
+public class CredentialCacheTest {
+
+    private static final Long OK_ID = 1L;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CredentialCache credentialCache;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TokenRevocationService revocationService;
+
+    @Test
+    public void disabledByDefault() {
+        assertEquals(Long.valueOf(0), credentialCache.getStats().get("enabled"));
+    }
+
+    @Test
+    public void cachedByLoginAndPassword() {
+        CredentialCache cache = cache(true, 10, 60000);
+        Authentication authentication = authentication(1L, "login");
+        cache.put("login", "password", authentication, cache.version());
+
+        assertSame(authentication, cache.get("login", "password"));
+        assertNull(cache.get("login", "wrong"));
+        assertNull(cache.get("other", "password"));
+        assertEquals(Long.valueOf(1), cache.getStats().get("hits"));
+        assertEquals(Long.valueOf(2), cache.getStats().get("misses"));
+    }
+
+    @Test
+    public void disabled() {
+        CredentialCache cache = cache(false, 10, 60000);
+        cache.put("login", "password", authentication(1L, "login"), cache.version());
+        assertNull(cache.get("login", "password"));
+    }
+
+    @Test
+    public void expired() throws InterruptedException {
+        CredentialCache cache = cache(true, 10, 20);
+        cache.put("login", "password", authentication(1L, "login"), cache.version());
+        Thread.sleep(50);
+        assertNull(cache.get("login", "password"));
+        assertEquals(Long.valueOf(1), cache.getStats().get("expirations"));
+    }
+
+    @Test
+    public void leastRecentlyUsedEvicted() {
+        CredentialCache cache = cache(true, 2, 60000);
+        cache.put("first", "password", authentication(1L, "first"), cache.version());
+        cache.put("second", "password", authentication(2L, "second"), cache.version());
+        assertNotNull(cache.get("first", "password"));
+        cache.put("third", "password", authentication(3L, "third"), cache.version());
+
+        assertNull(cache.get("second", "password"));
+        assertNotNull(cache.get("first", "password"));
+        assertNotNull(cache.get("third", "password"));
+        assertEquals(Long.valueOf(1), cache.getStats().get("evictions"));
+    }
+
+    @Test
+    public void invalidate() {
+        CredentialCache cache = cache(true, 10, 60000);
+        cache.put("first", "password", authentication(1L, "first"), cache.version());
+        cache.put("second", "password", authentication(2L, "second"), cache.version());
+        long version = cache.version();
+
+        User user = new User();
+        user.setId(1L);
+        user.setLogin("renamed");
+        cache.invalidate(user);
+        assertNull(cache.get("first", "password"));
+        assertNotNull(cache.get("second", "password"));
+
+        // authentication done before invalidation is not cached
+        cache.put("first", "password", authentication(1L, "first"), version);
+        assertNull(cache.get("first", "password"));
+    }
+
+    @Test
+    public void invalidateUserIds() {
+        CredentialCache cache = cache(true, 10, 60000);
+        cache.put("first", "password", authentication(1L, "first"), cache.version());
+        cache.put("second", "password", authentication(2L, "second"), cache.version());
+        cache.put("third", "password", authentication(3L, "third"), cache.version());
+        long version = cache.version();
+
+        cache.invalidate(Arrays.asList(1L, 3L));
+        assertNull(cache.get("first", "password"));
+        assertNotNull(cache.get("second", "password"));
+        assertNull(cache.get("third", "password"));
+        assertEquals(Long.valueOf(2), cache.getStats().get("invalidations"));
+
+        // authentication done before invalidation is not cached
+        cache.put("first", "password", authentication(1L, "first"), version);
+        assertNull(cache.get("first", "password"));
+    }
+
+    @Test
+    public void providerDelegatesOnMiss() {
+        AtomicInteger calls = new AtomicInteger();
+        AuthenticationProvider delegate = new AuthenticationProvider() {
+            @Override
+            public Authentication authenticate(Authentication authentication) {
+                calls.incrementAndGet();
+                if (!"password".equals(authentication.getCredentials())) {
+                    throw new BadCredentialsException("Bad credentials");
+                }
+                return authentication(1L, "login");
+            }
+
+            @Override
+            public boolean supports(Class<?> authentication) {
+                return true;
+            }
+        };
+        CachingAuthenticationProvider provider =
+                new CachingAuthenticationProvider(delegate, cache(true, 10, 60000));
+
+        provider.authenticate(new UsernamePasswordAuthenticationToken("login", "password"));
+        Authentication cached = provider.authenticate(new UsernamePasswordAuthenticationToken("login", "password"));
+        assertEquals(1, calls.get());
+        assertTrue(cached.isAuthenticated());
+        assertEquals(OK_ID, ((UserDetailsImpl) cached.getPrincipal()).getId());
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                provider.authenticate(new UsernamePasswordAuthenticationToken("login", "wrong"));
+                fail("Wrong password must not be accepted");
+            } catch (BadCredentialsException e) {
+                // failures are not cached
+            }
+        }
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void updateUserInvalidates() {
+        CredentialCache cache = cache(true, 10, 60000);
+        UserService cachingUserService = new UserService(userRepository, cache, revocationService);
+        User user = userService.getUser(OK_ID);
+        cache.put(user.getLogin(), "password", authentication(OK_ID, user.getLogin()), cache.version());
+        assertNotNull(cache.get(user.getLogin(), "password"));
+        cachingUserService.updateUser(user);
+        assertNull(cache.get(user.getLogin(), "password"));
+    }
+
+    private static Authentication authentication(Long id, String login) {
+        UserDetailsImpl principal = new UserDetailsImpl(id, login, login, "hash",
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")), false);
+        return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+
+    private static CredentialCache cache(boolean enabled, int size, long ttl) {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("credentials.cache.enabled", String.valueOf(enabled));
+        environment.setProperty("credentials.cache.size", String.valueOf(size));
+        environment.setProperty("credentials.cache.ttl", String.valueOf(ttl));
+        return new CredentialCache(environment);
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.serviceapp.security;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import resources.TestConfiguration;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for <code>LoginThrottle</code> class
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebAppConfiguration
+@ContextConfiguration(classes = TestConfiguration.class)
+public class LoginThrottleTest {
+
+    @Test
+    public void loginThrottledAfterBurst() {
+        LoginThrottle throttle = throttle(2, 1000, 1);
+        assertEquals(0, throttle.tryAcquire("login", "10.0.0.1"));
+        assertEquals(0, throttle.tryAcquire("login", "10.0.0.2"));
+        long wait = throttle.tryAcquire("login", "10.0.0.3");
+        assertTrue(wait > 0 && wait <= 60000);
+        // other logins are not affected
+        assertEquals(0, throttle.tryAcquire("other", "10.0.0.3"));
+        assertEquals(Long.valueOf(1), throttle.getStats().get("throttledLogins"));
+    }
+
+    @Test
+    public void addressThrottledAfterBurst() {
+        LoginThrottle throttle = throttle(1000, 2, 1);
+        assertEquals(0, throttle.tryAcquire("first", "10.0.0.1"));
+        assertEquals(0, throttle.tryAcquire("second", "10.0.0.1"));
+        assertTrue(throttle.tryAcquire("third", "10.0.0.1") > 0);
+        assertEquals(0, throttle.tryAcquire("third", "10.0.0.2"));
+        assertEquals(Long.valueOf(1), throttle.getStats().get("throttledAddresses"));
+    }
+
+    @Test
+    public void successfulAttemptsRefunded() {
+        LoginThrottle throttle = throttle(1, 1, 1);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, throttle.tryAcquire("login", "10.0.0.1"));
+            throttle.release("login", "10.0.0.1");
+        }
+    }
+
+    @Test
+    public void refilledBucketsDropped() throws InterruptedException {
+        MockEnvironment environment = environment(1, 1, 1);
+        environment.setProperty("login.throttle.loginRate", "6000");
+        environment.setProperty("login.throttle.addressRate", "6000");
+        LoginThrottle throttle = new LoginThrottle(environment);
+        throttle.tryAcquire("login", "10.0.0.1");
+        assertEquals(Long.valueOf(1), throttle.getStats().get("logins"));
+        Thread.sleep(30);
+        throttle.cleanup();
+        assertEquals(Long.valueOf(0), throttle.getStats().get("logins"));
+        assertEquals(Long.valueOf(0), throttle.getStats().get("addresses"));
+    }
+
+    @Test
+    public void boundedShards() {
+        LoginThrottle throttle = throttle(1, 1000, 3);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, throttle.tryAcquire("login" + i, "10.0.0.1"));
+        }
+        // keys over the limit are not tracked, they share one overflow bucket
+        assertEquals(0, throttle.tryAcquire("login3", "10.0.0.1"));
+        for (int i = 4; i < 10; i++) {
+            assertTrue(throttle.tryAcquire("login" + i, "10.0.0.1") > 0);
+        }
+        assertEquals(Long.valueOf(3), throttle.getStats().get("logins"));
+        assertEquals(Long.valueOf(7), throttle.getStats().get("overflows"));
+
+        // successful attempt refunds overflow bucket
+        throttle.release("login3", "10.0.0.1");
+        assertEquals(0, throttle.tryAcquire("login4", "10.0.0.1"));
+    }
+
+    private static LoginThrottle throttle(int loginBurst, int addressBurst, int shardSize) {
+        return new LoginThrottle(environment(loginBurst, addressBurst, shardSize));
+    }
+
+    private static MockEnvironment environment(int loginBurst, int addressBurst, int shardSize) {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("login.throttle.loginRate", "1");
+        environment.setProperty("login.throttle.loginBurst", String.valueOf(loginBurst));
+        environment.setProperty("login.throttle.addressRate", "1");
+        environment.setProperty("login.throttle.addressBurst", String.valueOf(addressBurst));
+        environment.setProperty("login.throttle.shards", "1");
+        environment.setProperty("login.throttle.shardSize", String.valueOf(shardSize));
+        return environment;
+    }
+
+}
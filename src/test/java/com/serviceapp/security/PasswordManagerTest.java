@@ -1,13 +1,23 @@
 package com.serviceapp.security;
 
+import com.serviceapp.exception.HashCapacityExceededException;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.env.MockEnvironment;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import resources.TestConfiguration;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -73,4 +83,40 @@ public class PasswordManagerTest {
         assertFalse(passwordManager.matches(password, null));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void encodeRejectedWhenQueueFull() throws Exception {
+        // one worker busy with slow hash, one hash queued, the rest must be rejected at once
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("password.secretKeyFactory", "PBKDF2WithHmacSHA512");
+        environment.setProperty("password.hashIterations", "500000");
+        environment.setProperty("password.keyLength", "256");
+        environment.setProperty("password.minLength", "3");
+        environment.setProperty("password.maxLength", "20");
+        environment.setProperty("password.hashThreads", "1");
+        environment.setProperty("password.hashQueue", "1");
+        PasswordManager manager = new PasswordManager(environment);
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(callers.submit(() -> manager.encode("123")));
+            }
+            int rejected = 0;
+            for (Future<String> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof HashCapacityExceededException);
+                    rejected++;
+                }
+            }
+            assertTrue(rejected > 0);
+            assertEquals(Long.valueOf(rejected), manager.getStats().get("rejected"));
+            assertEquals(Long.valueOf(4 - rejected), manager.getStats().get("hashes"));
+        } finally {
+            callers.shutdownNow();
+            manager.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,165 @@
+package com.serviceapp.security;
+
+import com.serviceapp.security.securityEntity.TokenAuthentication;
+import com.serviceapp.security.securityEntity.UserDetailsImpl;
+import com.serviceapp.service.CustomTokenService;
+import com.serviceapp.service.TokenRevocationService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.impl.DefaultClaims;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import resources.TestConfiguration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for verified token cache of <code>TokenAuthenticationManager</code>
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebAppConfiguration
+@ContextConfiguration(classes = TestConfiguration.class)
+public class TokenAuthenticationManagerTest {
+
+    @Autowired
+    private TokenRevocationService revocationService;
+
+    @Test
+    public void verifiedTokenCached() {
+        AtomicInteger parsed = new AtomicInteger();
+        TokenAuthenticationManager manager = manager(parsed, System.currentTimeMillis() + 60000, 10);
+
+        Authentication first = manager.authenticate(new TokenAuthentication("first"));
+        Authentication second = manager.authenticate(new TokenAuthentication("first"));
+        assertTrue(first.isAuthenticated());
+        assertEquals(1, parsed.get());
+        assertEquals("name", second.getName());
+        assertEquals(((UserDetailsImpl) first.getPrincipal()).getId(), ((UserDetailsImpl) second.getPrincipal()).getId());
+        assertEquals(first.getAuthorities(), second.getAuthorities());
+
+        manager.authenticate(new TokenAuthentication("second"));
+        assertEquals(2, parsed.get());
+        assertEquals(Long.valueOf(1), manager.getStats().get("hits"));
+    }
+
+    @Test
+    public void cachedAuthenticationNotShared() {
+        AtomicInteger parsed = new AtomicInteger();
+        TokenAuthenticationManager manager = manager(parsed, System.currentTimeMillis() + 60000, 10);
+
+        Authentication first = manager.authenticate(new TokenAuthentication("token"));
+        first.setAuthenticated(false);
+        ((UserDetailsImpl) first.getPrincipal()).setUserName("changed");
+        ((UserDetailsImpl) first.getPrincipal()).setAuthorities(new ArrayList<>());
+
+        Authentication second = manager.authenticate(new TokenAuthentication("token"));
+        assertEquals(1, parsed.get());
+        assertNotSame(first, second);
+        assertNotSame(first.getPrincipal(), second.getPrincipal());
+        assertTrue(second.isAuthenticated());
+        assertEquals("name", second.getName());
+        assertFalse(((UserDetailsImpl) second.getPrincipal()).getAuthorities().isEmpty());
+    }
+
+    @Test
+    public void leastRecentlyUsedEvicted() {
+        AtomicInteger parsed = new AtomicInteger();
+        TokenAuthenticationManager manager = manager(parsed, System.currentTimeMillis() + 60000, 1);
+        manager.authenticate(new TokenAuthentication("first"));
+        manager.authenticate(new TokenAuthentication("second"));
+        manager.authenticate(new TokenAuthentication("first"));
+        assertEquals(3, parsed.get());
+        assertEquals(Long.valueOf(2), manager.getStats().get("evictions"));
+    }
+
+    @Test
+    public void recentlyUsedKept() {
+        AtomicInteger parsed = new AtomicInteger();
+        TokenAuthenticationManager manager = manager(parsed, System.currentTimeMillis() + 60000, 2);
+        manager.authenticate(new TokenAuthentication("first"));
+        manager.authenticate(new TokenAuthentication("second"));
+        manager.authenticate(new TokenAuthentication("first"));
+        manager.authenticate(new TokenAuthentication("third"));
+        assertEquals(3, parsed.get());
+        assertEquals(Long.valueOf(1), manager.getStats().get("evictions"));
+
+        // second has been used least recently
+        manager.authenticate(new TokenAuthentication("first"));
+        assertEquals(3, parsed.get());
+        manager.authenticate(new TokenAuthentication("second"));
+        assertEquals(4, parsed.get());
+    }
+
+    @Test
+    public void cachedTokenExpires() throws InterruptedException {
+        AtomicInteger parsed = new AtomicInteger();
+        TokenAuthenticationManager manager = manager(parsed, System.currentTimeMillis() + 500, 10);
+        manager.authenticate(new TokenAuthentication("token"));
+        Thread.sleep(600);
+        try {
+            manager.authenticate(new TokenAuthentication("token"));
+            fail("Expired token must not be accepted");
+        } catch (AuthenticationServiceException e) {
+            assertEquals("Token expired", e.getMessage());
+        }
+        assertEquals(2, parsed.get());
+        assertEquals(Long.valueOf(1), manager.getStats().get("expirations"));
+    }
+
+    @Test
+    public void revokedTokenRejected() {
+        AtomicInteger parsed = new AtomicInteger();
+        long userId = Math.abs(new Random().nextInt()) + 1000000L;
+        TokenAuthenticationManager manager = manager(parsed, userId, System.currentTimeMillis() + 60000, 10);
+        manager.authenticate(new TokenAuthentication("token"));
+
+        revocationService.revoke(userId);
+        try {
+            manager.authenticate(new TokenAuthentication("token"));
+            fail("Revoked token must not be accepted");
+        } catch (AuthenticationServiceException e) {
+            assertEquals("Token revoked", e.getMessage());
+        }
+    }
+
+    private TokenAuthenticationManager manager(AtomicInteger parsed, long expires, int cacheSize) {
+        // id of user which tokens are never revoked
+        return manager(parsed, Integer.MAX_VALUE, expires, cacheSize);
+    }
+
+    private TokenAuthenticationManager manager(AtomicInteger parsed, long userId, long expires, int cacheSize) {
+        CustomTokenService tokenService = new CustomTokenService(null, null, null, new MockEnvironment()) {
+            @Override
+            public Claims parseToken(String token) throws JwtException {
+                parsed.incrementAndGet();
+                Map<String, Object> claims = new HashMap<>();
+                claims.put("user_id", (int) userId);
+                claims.put("user_login", "login");
+                claims.put("user_name", "name");
+                claims.put("user_banned", false);
+                claims.put("user_authorities", Collections.singletonList("ROLE_USER"));
+                claims.put("token_creation_date", System.currentTimeMillis() - 1000);
+                claims.put("token_expiration_date", expires);
+                return new DefaultClaims(claims);
+            }
+        };
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("token.cache.size", String.valueOf(cacheSize));
+        return new TokenAuthenticationManager(tokenService, revocationService, environment);
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.serviceapp.service;
+
+import com.serviceapp.entity.User;
+import com.serviceapp.security.PasswordManager;
+import io.jsonwebtoken.Claims;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import resources.TestConfiguration;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for <code>CustomTokenService</code> class
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebAppConfiguration
+@ContextConfiguration(classes = TestConfiguration.class)
+public class CustomTokenServiceTest {
+
+    private static final String PASSWORD = "password";
+
+    @Autowired
+    private CustomTokenService tokenService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PasswordManager passwordManager;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private TokenRevocationService revocationService;
+
+    @Test
+    public void refreshToken() throws Exception {
+        User user = createUser();
+        long logins = tokenService.getStats().get("passwordLogins");
+        String token = tokenService.getToken(user.getLogin(), PASSWORD);
+        assertEquals(Long.valueOf(logins + 1), tokenService.getStats().get("passwordLogins"));
+
+        long refreshes = tokenService.getStats().get("refreshes");
+        Thread.sleep(5);
+        String refreshed = tokenService.refreshToken(token);
+        assertEquals(Long.valueOf(refreshes + 1), tokenService.getStats().get("refreshes"));
+        assertEquals(Long.valueOf(logins + 1), tokenService.getStats().get("passwordLogins"));
+
+        Claims claims = tokenService.parseToken(token);
+        Claims refreshedClaims = tokenService.parseToken(refreshed);
+        assertEquals(claims.get("user_id"), refreshedClaims.get("user_id"));
+        assertEquals(claims.get("user_login"), refreshedClaims.get("user_login"));
+        assertEquals(claims.get("user_authorities"), refreshedClaims.get("user_authorities"));
+        assertTrue(refreshedClaims.get("token_creation_date", Long.class)
+                > claims.get("token_creation_date", Long.class));
+        // login time is kept, so refreshing doesn't extend the session
+        assertEquals(claims.get("auth_time", Long.class), refreshedClaims.get("auth_time", Long.class));
+    }
+
+    @Test
+    public void refreshAfterMaxAge() throws Exception {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("token.refresh.maxAge", "1000");
+        CustomTokenService service = new CustomTokenService(userDetailsService, passwordManager, revocationService,
+                environment);
+        User user = createUser();
+        String token = service.getToken(user.getLogin(), PASSWORD);
+        Thread.sleep(5);
+        String refreshed = service.refreshToken(token);
+        Claims claims = service.parseToken(refreshed);
+        // refreshed token expires with the session
+        assertEquals(claims.get("auth_time", Long.class) + 1000,
+                claims.get("token_expiration_date", Long.class).longValue());
+
+        Thread.sleep(1000);
+        try {
+            service.refreshToken(token);
+            fail("Token must not be refreshed after max age");
+        } catch (AuthenticationServiceException e) {
+            assertEquals("Login required", e.getMessage());
+        }
+    }
+
+    @Test
+    public void refreshRevokedToken() throws Exception {
+        User user = createUser();
+        String token = tokenService.getToken(user.getLogin(), PASSWORD);
+        Thread.sleep(5);
+        revocationService.revoke(user.getId());
+        try {
+            tokenService.refreshToken(token);
+            fail("Revoked token must not be refreshed");
+        } catch (AuthenticationServiceException e) {
+            assertEquals("Token revoked", e.getMessage());
+        }
+    }
+
+    @Test(expected = AuthenticationServiceException.class)
+    public void refreshCorruptedToken() {
+        tokenService.refreshToken("corrupted");
+    }
+
+    private User createUser() {
+        String name = "Refresh" + Math.abs(new Random().nextInt());
+        User user = new User();
+        user.setName(name.substring(0, Math.min(name.length(), 20)));
+        user.setLogin(name.toLowerCase() + "@mail.com");
+        user.setPassword(passwordManager.encode(PASSWORD));
+        user.setAdmin(false);
+        user.setBanned(false);
+        return userService.createUser(user);
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.serviceapp.service;
+
+import com.serviceapp.entity.Movie;
+import com.serviceapp.entity.User;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import resources.TestConfiguration;
+import resources.TestMovies;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for <code>EntityCacheService</code> class and second level cache of entities
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebAppConfiguration
+@ContextConfiguration(classes = TestConfiguration.class)
+public class EntityCacheServiceTest {
+
+    @Autowired
+    private EntityCacheService entityCacheService;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    public void movieCached() {
+        Movie movie = TestMovies.movie("Cached" + Math.abs(new Random().nextInt()));
+        Movie created = movieService.createMovie(movie);
+        try {
+            movieService.getMovie(created.getId());
+            long hits = entityCacheService.getStats().get("Movie.hits");
+            assertEquals(created.getMovieName(), movieService.getMovie(created.getId()).getMovieName());
+            assertEquals(hits + 1, (long) entityCacheService.getStats().get("Movie.hits"));
+        } finally {
+            movieService.deleteMovie(created);
+        }
+        assertNull(movieService.getMovie(created.getId()));
+    }
+
+    @Test
+    public void ratingUpdateEvictsOnlyUpdatedMovie() {
+        Movie rated = movieService.createMovie(TestMovies.movie("Rated" + Math.abs(new Random().nextInt())));
+        Movie other = movieService.createMovie(TestMovies.movie("Other" + Math.abs(new Random().nextInt())));
+        try {
+            movieService.getMovie(rated.getId());
+            movieService.getMovie(other.getId());
+            Cache cache = entityManagerFactory.getCache();
+            assertTrue(cache.contains(Movie.class, rated.getId()));
+
+            assertTrue(movieService.updateRating(rated.getId(), 2, 15));
+            assertFalse(cache.contains(Movie.class, rated.getId()));
+            assertTrue(cache.contains(Movie.class, other.getId()));
+            assertEquals(Double.valueOf(7.5), movieService.getMovie(rated.getId()).getRating());
+
+            assertTrue(movieService.recountRating(rated.getId()));
+            assertFalse(cache.contains(Movie.class, rated.getId()));
+            assertTrue(cache.contains(Movie.class, other.getId()));
+            assertEquals(Double.valueOf(0), movieService.getMovie(rated.getId()).getRating());
+        } finally {
+            movieService.deleteMovie(rated);
+            movieService.deleteMovie(other);
+        }
+    }
+
+    @Test
+    public void userCachedByLogin() {
+        String login = "cached" + Math.abs(new Random().nextInt()) + "@mail.com";
+        User user = new User();
+        user.setLogin(login);
+        user.setName("cached");
+        user.setPassword("password");
+        user.setAdmin(false);
+        user.setBanned(false);
+        User created = userService.createUser(user);
+        try {
+            assertEquals(created.getId(), userService.getUserByLogin(login).getId());
+            long hits = entityCacheService.getStats().get("User.naturalId.hits");
+            assertEquals(created.getId(), userService.getUserByLogin(login).getId());
+            assertTrue(entityCacheService.getStats().get("User.naturalId.hits") > hits);
+
+            // changed login is not found by the old one
+            created.setLogin("renamed" + login);
+            userService.updateUser(created);
+            assertNull(userService.getUserByLogin(login));
+            assertEquals(created.getId(), userService.getUserByLogin("renamed" + login).getId());
+        } finally {
+            userService.deleteUser(created);
+        }
+        assertNull(userService.getUserByLogin("renamed" + login));
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.serviceapp.service;
+
+import com.serviceapp.entity.Movie;
+import com.serviceapp.entity.Review;
+import com.serviceapp.entity.User;
+import com.serviceapp.repository.MovieRepository;
+import com.serviceapp.repository.ReviewRepository;
+import com.serviceapp.repository.UserRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import resources.TestConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for <code>ExportService</code> class
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebAppConfiguration
+@ContextConfiguration(classes = TestConfiguration.class)
+public class ExportServiceTest {
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Test
+    public void exportAllOrderedById() {
+        List<Long> ids = new ArrayList<>();
+        long exported = exportService.export(Movie.class, movie -> ids.add(movie.getId()));
+        assertEquals(movieRepository.count(), exported);
+        assertEquals(exported, ids.size());
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1) < ids.get(i));
+        }
+
+        assertEquals(userRepository.count(), exportService.export(User.class, user -> {
+        }));
+        assertEquals(reviewRepository.count(), exportService.export(Review.class, review -> {
+        }));
+    }
+
+    @Test
+    public void exportedEntitiesDetached() {
+        List<Long> ids = new ArrayList<>();
+        exportService.export(User.class, user -> {
+            ids.add(user.getId());
+            user.setPassword(null);
+        });
+        for (Long id : ids) {
+            assertNotNull(userRepository.findOne(id).getPassword());
+        }
+    }
+
+    @Test
+    public void exportStoppedByConsumer() {
+        List<Movie> movies = new ArrayList<>();
+        try {
+            exportService.export(Movie.class, movie -> {
+                movies.add(movie);
+                throw new IllegalStateException("stop");
+            });
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            assertEquals(1, movies.size());
+        }
+    }
+
+    @Test
+    public void exportInReadOnlyTransaction() {
+        // read-only transactions are routed to replica
+        List<Boolean> readOnly = new ArrayList<>();
+        exportService.export(Movie.class, movie -> readOnly.add(
+                TransactionSynchronizationManager.isActualTransactionActive()
+                        && TransactionSynchronizationManager.isCurrentTransactionReadOnly()));
+        assertFalse(readOnly.isEmpty());
+        assertFalse(readOnly.contains(false));
+    }
+
+}
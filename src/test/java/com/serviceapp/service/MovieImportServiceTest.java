@@ -0,0 +1,120 @@
+package com.serviceapp.service;
+
+import com.serviceapp.entity.Movie;
+import com.serviceapp.entity.util.ImportReport;
+import com.serviceapp.repository.MovieRepository;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import resources.TestConfiguration;
+
+import javax.persistence.EntityManagerFactory;
+import javax.validation.Validator;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for <code>MovieImportService</code> class
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebAppConfiguration
+@ContextConfiguration(classes = TestConfiguration.class)
+public class MovieImportServiceTest {
+
+    private static final PageRequest PAGE_REQUEST = new PageRequest(0, 100);
+    private final String title = "Imported" + Math.abs(new Random().nextInt());
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private Validator validator;
+
+    @After
+    public void deleteImported() {
+        imported().forEach(movieService::deleteMovie);
+    }
+
+    @Test
+    public void importNdjson() {
+        String body = movie(title + " one") + "\n"
+                + "{\"movieName\": \"" + title + " invalid\", \"description\": \"no\"}\n"
+                + movie(title + " two") + "\n"
+                + "42\n"
+                + movie(title + " three") + "\n";
+        List<ImportReport> reports = new ArrayList<>();
+        ImportReport report = service(2).importMovies(stream(body), reports::add);
+
+        assertEquals(3, reports.size());
+        assertEquals(Integer.valueOf(2), reports.get(0).getRecord());
+        assertFalse(reports.get(0).getErrors().isEmpty());
+        assertEquals(Integer.valueOf(4), reports.get(1).getRecord());
+        assertSame(report, reports.get(2));
+        assertTrue(report.isFinished());
+        assertNull(report.getError());
+        assertEquals(3, report.getImported());
+        assertEquals(2, report.getRejected());
+
+        List<Movie> imported = imported();
+        assertEquals(3, imported.size());
+        for (Movie movie : imported) {
+            assertEquals(Double.valueOf(0), movie.getRating());
+        }
+        assertEquals(3, movieService.findMovieShortByTitle(title, PAGE_REQUEST).getTotalElements());
+    }
+
+    @Test
+    public void importArrayStoppedOnMalformedJson() {
+        String body = "[" + movie(title + " one") + ", " + movie(title + " two") + ", {\"movieName\": ";
+        List<ImportReport> reports = new ArrayList<>();
+        ImportReport report = service(10).importMovies(stream(body), reports::add);
+
+        assertEquals(1, reports.size());
+        assertTrue(report.isFinished());
+        assertNotNull(report.getError());
+        assertEquals(2, report.getImported());
+        assertEquals(2, imported().size());
+    }
+
+    private List<Movie> imported() {
+        return movieRepository.findShortByTitle(title, PAGE_REQUEST).getContent().stream()
+                .map(movie -> movieRepository.findOne(movie.getId()))
+                .collect(Collectors.toList());
+    }
+
+    private MovieImportService service(int batchSize) {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("movies.import.batchSize", String.valueOf(batchSize));
+        return new MovieImportService(movieService, entityManagerFactory, validator, environment);
+    }
+
+    private static String movie(String title) {
+        return "{\"movieName\": \"" + title + "\", \"director\": \"director\", \"releaseDate\": \"2016-05-25\", "
+                + "\"posterURL\": \"https://upload.wikimedia.org/wikipedia/ru/2/21/Warcraft_poster.jpg\", "
+                + "\"trailerURL\": \"https://www.youtube.com/embed/RhFMIRuHAL4\", \"rating\": 9, "
+                + "\"description\": \"description\"}";
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -1,17 +1,33 @@
 package com.serviceapp.service;
 
 import com.serviceapp.entity.Movie;
+import com.serviceapp.entity.Review;
+import com.serviceapp.entity.dto.MovieShortDto;
+import com.serviceapp.entity.dto.MovieSuggestionDto;
+import com.serviceapp.repository.MovieRepository;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import resources.TestConfiguration;
+import resources.TestMovies;
 
+import java.sql.Date;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 
@@ -29,9 +45,18 @@ public class MovieServiceTest {
     private static final Long ZERO_ID = 0L;
     private static final PageRequest PAGE_REQUEST = new PageRequest(0, 10);
 
+    private static final int STRESS_THREADS = 16;
+    private static final int STRESS_REVIEWS_PER_THREAD = 125;
+
     @Autowired
     private MovieService movieService;
 
+    @Autowired
+    private ReviewService reviewService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
     @Test
     public void createMovie() {
         assertNull(movieService.createMovie(null));
@@ -81,17 +106,113 @@ public class MovieServiceTest {
     }
 
     @Test
-    public void findMovieByTitle() {
-        Page<Movie> movies = movieService.findMovieByTitle("kis", PAGE_REQUEST);
-        assertNotNull(movies);
+    public void findMovieShortByTitleMatchesDatabase() {
+        PageRequest allResults = new PageRequest(0, 10000);
+        for (String term : new String[]{"kis", "KI", "the ", "a", "no such movie title"}) {
+            List<Long> expected = movieRepository.findShortByTitle(term, allResults).getContent()
+                    .stream()
+                    .map(MovieShortDto::getId)
+                    .sorted()
+                    .collect(Collectors.toList());
+            Page<MovieShortDto> movies = movieService.findMovieShortByTitle(term, allResults);
+            assertEquals(expected.size(), movies.getTotalElements());
+            assertEquals(expected, movies.getContent().stream().map(MovieShortDto::getId).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void findMovieShortByTitleLikeWildcards() {
+        Movie created = movieService.createMovie(TestMovies.movie("Wild10 " + Math.abs(new Random().nextInt())));
+        PageRequest indexed = new PageRequest(0, 10000);
+        PageRequest sorted = new PageRequest(0, 10000, new Sort("id"));
+        try {
+            // titles can't contain these characters, so nothing matches them literally
+            for (String term : new String[]{"%", "_", "!", "d1_", "w%0", "!%"}) {
+                assertEquals(0, movieService.findMovieShortByTitle(term, indexed).getTotalElements());
+                // sorted search is done in database, wildcards must be matched literally there too
+                assertEquals(0, movieService.findMovieShortByTitle(term, sorted).getTotalElements());
+                assertFalse(movieService.findMovieShortByTitleSliced(term, sorted).hasContent());
+            }
+            assertEquals(1, movieService.findMovieShortByTitle(created.getMovieName(), sorted).getTotalElements());
+        } finally {
+            movieService.deleteMovie(created);
+        }
+    }
+
+    @Test
+    public void findMovieShortByTitleFollowsChanges() {
+        String title = "Title" + Math.abs(new Random().nextInt());
+        Movie movie = TestMovies.movie(title);
+        Movie created = movieService.createMovie(movie);
+        assertEquals(1, movieService.findMovieShortByTitle(title.toLowerCase(), PAGE_REQUEST).getTotalElements());
+
+        created.setMovieName("Renamed" + title);
+        movieService.updateMovie(created);
+        assertEquals(1, movieService.findMovieShortByTitle("renamed" + title, PAGE_REQUEST).getTotalElements());
+        assertEquals(0, movieService.findMovieShortByTitle("Title" + title, PAGE_REQUEST).getTotalElements());
+
+        movieService.deleteMovie(created);
+        assertEquals(0, movieService.findMovieShortByTitle(title, PAGE_REQUEST).getTotalElements());
+    }
+
+    @Test
+    public void suggestByTitle() {
+        assertTrue(movieService.suggestByTitle(null, 10).isEmpty());
+        assertTrue(movieService.suggestByTitle(" ", 10).isEmpty());
+
+        List<MovieSuggestionDto> suggestions = movieService.suggestByTitle("th", 10);
+        assertTrue(suggestions.size() <= 10);
+        for (int i = 0; i < suggestions.size(); i++) {
+            assertTrue((" " + suggestions.get(i).getMovieName().toLowerCase()).contains(" th"));
+            if (i > 0) {
+                assertTrue(suggestions.get(i - 1).getRating() >= suggestions.get(i).getRating());
+            }
+        }
     }
 
     @Test
-    public void findMovieByTitleNullEmpty() {
-        assertNull(movieService.findMovieByTitle(null, PAGE_REQUEST));
-        assertNull(movieService.findMovieByTitle("", PAGE_REQUEST));
-        assertNull(movieService.findMovieByTitle(" ", PAGE_REQUEST));
-        assertNull(movieService.findMovieByTitle(" ", PAGE_REQUEST));
+    public void suggestByTitleLongPrefix() {
+        String prefix = "Longtitle" + Math.abs(new Random().nextInt()) + " abcdefghij abcdefghij abcdefghij";
+        List<Movie> created = new ArrayList<>();
+        try {
+            // movies matching longer prefix are created first, so they aren't among the best movies of cut key
+            for (int i = 0; i < 2; i++) {
+                created.add(movieService.createMovie(TestMovies.movie(prefix + " xyz" + i)));
+            }
+            for (int i = 0; i < 10; i++) {
+                created.add(movieService.createMovie(TestMovies.movie(prefix + " other" + i)));
+            }
+            List<MovieSuggestionDto> suggestions = movieService.suggestByTitle(prefix + " xy", 10);
+            assertEquals(2, suggestions.size());
+            assertTrue(suggestions.stream().allMatch(suggestion -> suggestion.getMovieName().contains(" xyz")));
+            assertEquals(10, movieService.suggestByTitle(prefix + " oth", 10).size());
+        } finally {
+            created.forEach(movieService::deleteMovie);
+        }
+    }
+
+    @Test
+    public void suggestByTitleFollowsChanges() {
+        String word = "Word" + Math.abs(new Random().nextInt());
+        Movie movie = TestMovies.movie("The " + word + ": part 2");
+        Movie created = movieService.createMovie(movie);
+        List<MovieSuggestionDto> suggestions = movieService.suggestByTitle(word.toUpperCase() + " pa", 10);
+        assertEquals(1, suggestions.size());
+        assertEquals(created.getId(), suggestions.get(0).getId());
+
+        assertTrue(movieService.updateRating(created.getId(), 1, 7));
+        assertEquals(7d, movieService.suggestByTitle(word, 10).get(0).getRating(), 0.001);
+
+        created.setMovieName("Other title");
+        movieService.updateMovie(created);
+        assertTrue(movieService.suggestByTitle(word, 10).isEmpty());
+        assertEquals(created.getId(), movieService.suggestByTitle("other tit", 10).stream()
+                .filter(suggestion -> suggestion.getId().equals(created.getId()))
+                .findFirst().get().getId());
+
+        movieService.deleteMovie(created);
+        assertFalse(movieService.suggestByTitle("other tit", 10).stream()
+                .anyMatch(suggestion -> suggestion.getId().equals(created.getId())));
     }
 
     @Test
@@ -100,9 +221,146 @@ public class MovieServiceTest {
         assertTrue(movies.size() == 10);
     }
 
+    @Test
+    public void updateRatingNoMovie() {
+        assertFalse(movieService.updateRating(NULL_LONG, 1, 5));
+        assertFalse(movieService.updateRating(NEGATIVE_ID, 1, 5));
+    }
+
+    @Test
+    public void updateRatingConcurrently() throws Exception {
+        Movie movie = TestMovies.movie("stress");
+        Long movieId = movieService.createMovie(movie).getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(STRESS_THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> results = new ArrayList<>();
+        for (int t = 0; t < STRESS_THREADS; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                long ratingSum = 0;
+                for (int i = 0; i < STRESS_REVIEWS_PER_THREAD; i++) {
+                    int rating = ThreadLocalRandom.current().nextInt(1, 11);
+                    Review review = new Review();
+                    review.setMovieId(movieId);
+                    review.setUserId(OK_ID);
+                    review.setTitle("title");
+                    review.setReviewText("texttext");
+                    review.setRating(rating);
+                    review.setPostDate(new Date(new java.util.Date().getTime()));
+                    assertNotNull(reviewService.createReview(review));
+                    assertTrue(movieService.updateRating(movieId, 1, rating));
+                    ratingSum += rating;
+                    if (i % 25 == 0) {
+                        // editing movie with stale data must not overwrite its rating
+                        Movie stale = movieService.getMovie(movieId);
+                        stale.setDescription("description " + i);
+                        assertNotNull(movieService.updateMovie(stale));
+                    }
+                }
+                return ratingSum;
+            }));
+        }
+        start.countDown();
+        long expectedSum = 0;
+        for (Future<Long> result : results) {
+            expectedSum += result.get();
+        }
+        executor.shutdown();
+        long expectedCount = STRESS_THREADS * STRESS_REVIEWS_PER_THREAD;
+        double expectedRating = Math.round(expectedSum * 100d / expectedCount) / 100d;
+
+        Movie updated = movieService.getMovie(movieId);
+        assertEquals(Long.valueOf(expectedCount), updated.getReviewCount());
+        assertEquals(Long.valueOf(expectedSum), updated.getRatingSum());
+        assertEquals(expectedRating, updated.getRating(), 0.011);
+        // in-memory structures end with the last written rating
+        assertEquals(updated.getRating(), movieService.suggestByTitle("stress", 100).stream()
+                .filter(suggestion -> suggestion.getId().equals(movieId))
+                .findFirst().get().getRating(), 0.001);
+
+        // full recount must agree with incrementally updated aggregate
+        assertTrue(movieService.recountRating(movieId));
+        Movie recounted = movieService.getMovie(movieId);
+        assertEquals(updated.getReviewCount(), recounted.getReviewCount());
+        assertEquals(updated.getRatingSum(), recounted.getRatingSum());
+        assertEquals(updated.getRating(), recounted.getRating(), 0.011);
+    }
+
+    @Test
+    public void findTopRatedFollowsChanges() {
+        Movie movie = TestMovies.movie("top");
+        Movie created = movieService.createMovie(movie);
+        assertTopRatedMatchesDatabase();
+
+        // newest movie with the highest rating goes first
+        assertTrue(movieService.updateRating(created.getId(), 1, 10));
+        assertEquals(created.getId(), movieService.findTopRated().get(0).getId());
+        assertTopRatedMatchesDatabase();
+
+        assertTrue(movieService.updateRating(created.getId(), 1, 1));
+        assertTopRatedMatchesDatabase();
+
+        movieService.deleteMovie(created);
+        assertTopRatedMatchesDatabase();
+    }
+
     @Test
     public void findAllPaged() {
         assertTrue(movieService.findAllPaged(null).getNumberOfElements() == 5);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void findAllShortPaged() {
+        assertTrue(movieService.findAllShortPaged(null).getNumberOfElements() == 5);
+        long total = movieService.findAllShortPaged(null).getTotalElements();
+        assertEquals(movieService.countMovies(), Long.valueOf(total));
+    }
+
+    @Test
+    public void findAllShortSliced() {
+        assertTrue(movieService.findAllShortSliced(null).getNumberOfElements() == 5);
+    }
+
+    @Test
+    public void findAllShortAfter() {
+        List<MovieShortDto> first = movieService.findAllShortAfter(null, 3);
+        List<MovieShortDto> next = movieService.findAllShortAfter(first.get(2).getId(), 3);
+        assertTrue(next.isEmpty() || next.get(0).getId() > first.get(2).getId());
+    }
+
+    @Test
+    public void findMovieShortByTitle() {
+        assertNotNull(movieService.findMovieShortByTitle("kis", PAGE_REQUEST));
+        assertNull(movieService.findMovieShortByTitle(null, PAGE_REQUEST));
+        assertNull(movieService.findMovieShortByTitle("", PAGE_REQUEST));
+        assertNull(movieService.findMovieShortByTitle(" ", PAGE_REQUEST));
+        assertNull(movieService.findMovieShortByTitle(" ", PAGE_REQUEST));
+        assertNull(movieService.findMovieShortByTitleSliced(null, PAGE_REQUEST));
+        assertNull(movieService.findMovieShortByTitleSliced(" ", PAGE_REQUEST));
+        // both index and database search return movies ordered by id
+        PageRequest byId = new PageRequest(0, 2, Sort.Direction.ASC, "id");
+        Page<MovieShortDto> movies = movieRepository.findShortByTitle("a", byId);
+        List<Long> expected = movies.getContent().stream().map(MovieShortDto::getId).collect(Collectors.toList());
+        PageRequest[] pageRequests = {new PageRequest(0, 2), new PageRequest(0, 2, Sort.Direction.ASC, "id")};
+        for (PageRequest pageRequest : pageRequests) {
+            Page<MovieShortDto> page = movieService.findMovieShortByTitle("a", pageRequest);
+            Slice<MovieShortDto> slice = movieService.findMovieShortByTitleSliced("a", pageRequest);
+            assertEquals(movies.getTotalElements(), page.getTotalElements());
+            assertEquals(expected, page.getContent().stream().map(MovieShortDto::getId).collect(Collectors.toList()));
+            assertEquals(expected, slice.getContent().stream().map(MovieShortDto::getId).collect(Collectors.toList()));
+            assertEquals(movies.hasNext(), slice.hasNext());
+        }
+    }
+
+    private void assertTopRatedMatchesDatabase() {
+        List<Long> expected = movieRepository.findTopRated(new PageRequest(0, 10)).stream()
+                .map(Movie::getId)
+                .collect(Collectors.toList());
+        List<Long> actual = movieService.findTopRated().stream()
+                .map(Movie::getId)
+                .collect(Collectors.toList());
+        assertEquals(expected, actual);
+    }
+
+}
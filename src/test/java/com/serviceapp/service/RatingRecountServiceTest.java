@@ -0,0 +1,137 @@
+package com.serviceapp.service;
+
+import com.serviceapp.entity.Movie;
+import com.serviceapp.entity.RatingRecountRange;
+import com.serviceapp.entity.util.RecountProgress;
+import com.serviceapp.repository.MovieRepository;
+import com.serviceapp.repository.RatingRecountRangeRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import resources.TestConfiguration;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for <code>RatingRecountService</code> class
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebAppConfiguration
+@ContextConfiguration(classes = TestConfiguration.class)
+public class RatingRecountServiceTest {
+
+    private static final Long OK_ID = 1L;
+    private static final long RANGE_SIZE = 100;
+
+    @Autowired
+    private RatingUpdateService ratingUpdateService;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private RatingRecountRangeRepository rangeRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    public void recountAll() {
+        RatingRecountService recountService = recountService();
+        List<RecountProgress> reports = new ArrayList<>();
+        RecountProgress result = recountService.recountAll(true, reports::add);
+
+        assertTrue(result.isFinished());
+        assertNull(result.getError());
+        assertEquals(result.getRangesTotal(), result.getRangesDone());
+        assertEquals(result.getRangesTotal() + 1, reports.size());
+        assertEquals(movieService.countMovies().longValue(), result.getMoviesDone());
+        assertEquals(0, rangeRepository.count());
+
+        // bulk recount must agree with recount of single movie
+        Movie recounted = movieService.getMovie(OK_ID);
+        assertTrue(movieService.recountRating(OK_ID));
+        Movie expected = movieService.getMovie(OK_ID);
+        assertEquals(expected.getReviewCount(), recounted.getReviewCount());
+        assertEquals(expected.getRatingSum(), recounted.getRatingSum());
+        assertEquals(expected.getRating(), recounted.getRating(), 0.011);
+    }
+
+    @Test
+    public void recountAllResume() {
+        RatingRecountService recountService = recountService();
+        Long reviewCount = movieService.getMovie(OK_ID).getReviewCount();
+        assertTrue(movieService.updateRating(OK_ID, 1, 10));
+        // first range is finished by "interrupted" recount
+        rangeRepository.save(new RatingRecountRange(0L, RANGE_SIZE - 1, 0));
+
+        RecountProgress result = recountService.recountAll(false, progress -> {
+        });
+        assertTrue(result.isFinished());
+        assertEquals(result.getRangesTotal(), result.getRangesDone());
+        // movie from finished range is skipped
+        assertEquals(Long.valueOf(reviewCount + 1), movieService.getMovie(OK_ID).getReviewCount());
+        assertEquals(0, rangeRepository.count());
+
+        recountService.recountAll(true, progress -> {
+        });
+        assertEquals(reviewCount, movieService.getMovie(OK_ID).getReviewCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void recountAllAlreadyRunning() {
+        RatingRecountService recountService = recountService();
+        recountService.recountAll(true, progress -> recountService.recountAll(true, nested -> {
+        }));
+    }
+
+    @Test
+    public void recountDropsPendingChanges() {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("rating.writeBehind.enabled", "true");
+        RatingUpdateService writeBehind = new RatingUpdateService(movieService, environment);
+        RatingRecountService recountService = recountService(writeBehind);
+        recountService.recountAll(true, progress -> {
+        });
+        Long reviewCount = movieService.getMovie(OK_ID).getReviewCount();
+        // change without review, so recalculated rating must not include it
+        assertTrue(writeBehind.addReviews(OK_ID, 1, 10));
+
+        List<Integer> flushed = new ArrayList<>();
+        recountService.recountAll(true, progress -> flushed.add(writeBehind.flush()));
+        assertFalse(flushed.isEmpty());
+        assertTrue("Flush must be paused during recount", flushed.stream().allMatch(updated -> updated == 0));
+        assertEquals(Long.valueOf(0), writeBehind.getStats().get("pendingMovies"));
+        assertEquals(Long.valueOf(0), writeBehind.getStats().get("flushPaused"));
+        assertEquals(0, writeBehind.flush());
+        assertEquals(reviewCount, movieService.getMovie(OK_ID).getReviewCount());
+    }
+
+    private RatingRecountService recountService() {
+        return recountService(ratingUpdateService);
+    }
+
+    private RatingRecountService recountService(RatingUpdateService ratingUpdateService) {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("rating.recount.rangeSize", String.valueOf(RANGE_SIZE));
+        environment.setProperty("rating.recount.threads", "4");
+        return new RatingRecountService(movieRepository, rangeRepository, ratingUpdateService, movieService,
+                entityManagerFactory, dataSource, environment);
+    }
+
+}
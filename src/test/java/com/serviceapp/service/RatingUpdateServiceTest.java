@@ -0,0 +1,202 @@
+package com.serviceapp.service;
+
+import com.serviceapp.entity.Movie;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import resources.TestConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for <code>RatingUpdateService</code> class
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebAppConfiguration
+@ContextConfiguration(classes = TestConfiguration.class)
+public class RatingUpdateServiceTest {
+
+    private static final Long NULL_LONG = null;
+    private static final Long OK_ID = 1L;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private RatingUpdateService ratingUpdateService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void addReviewsNull() {
+        assertFalse(ratingUpdateService.addReviews(NULL_LONG, 1, 5));
+        assertFalse(ratingUpdateService.recountRating(NULL_LONG));
+    }
+
+    @Test
+    public void writeBehind() {
+        RatingUpdateService writeBehind = writeBehindService(10);
+        Long oldCount = movieService.getMovie(OK_ID).getReviewCount();
+
+        assertTrue(writeBehind.addReviews(OK_ID, 1, 7));
+        assertTrue(writeBehind.addReviews(OK_ID, 1, 3));
+        // nothing is written before flush
+        assertEquals(oldCount, movieService.getMovie(OK_ID).getReviewCount());
+        Map<String, Long> stats = writeBehind.getStats();
+        assertEquals(Long.valueOf(1), stats.get("pendingMovies"));
+        assertEquals(Long.valueOf(2), stats.get("pendingReviews"));
+
+        // both reviews are written with one update
+        assertEquals(1, writeBehind.flush());
+        assertEquals(Long.valueOf(oldCount + 2), movieService.getMovie(OK_ID).getReviewCount());
+        assertEquals(Long.valueOf(0), writeBehind.getStats().get("pendingMovies"));
+
+        // revert changes
+        writeBehind.addReviews(OK_ID, -2, -10);
+        writeBehind.shutdown();
+        assertEquals(oldCount, movieService.getMovie(OK_ID).getReviewCount());
+    }
+
+    @Test
+    public void writeBehindQueueFull() {
+        RatingUpdateService writeBehind = writeBehindService(0);
+        Movie movie = movieService.getMovie(OK_ID);
+
+        // no room for pending changes, so it is written at once
+        assertTrue(writeBehind.addReviews(OK_ID, 1, 5));
+        assertEquals(Long.valueOf(movie.getReviewCount() + 1), movieService.getMovie(OK_ID).getReviewCount());
+        assertEquals(Long.valueOf(1), writeBehind.getStats().get("directUpdates"));
+
+        assertTrue(writeBehind.addReviews(OK_ID, -1, -5));
+        assertEquals(movie.getReviewCount(), movieService.getMovie(OK_ID).getReviewCount());
+    }
+
+    @Test
+    public void writeBehindNoSuchMovie() {
+        RatingUpdateService writeBehind = writeBehindService(10);
+        assertFalse(writeBehind.addReviews(Long.MAX_VALUE, 1, 5));
+        assertEquals(Long.valueOf(0), writeBehind.getStats().get("pendingMovies"));
+    }
+
+    @Test
+    public void recountWaitsForFlush() throws Exception {
+        CountDownLatch flushStarted = new CountDownLatch(1);
+        CountDownLatch flushReleased = new CountDownLatch(1);
+        List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        MovieService blockingService = new MovieService(null, null, null, null, null) {
+            @Override
+            public Boolean movieExists(Long id) {
+                return true;
+            }
+
+            @Override
+            public Boolean updateRating(Long movieId, long reviews, long ratings) {
+                flushStarted.countDown();
+                try {
+                    flushReleased.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                calls.add("update");
+                return true;
+            }
+
+            @Override
+            public Boolean recountRating(Long movieId) {
+                calls.add("recount");
+                return true;
+            }
+        };
+        RatingUpdateService writeBehind = writeBehindService(blockingService, 10);
+        assertTrue(writeBehind.addReviews(OK_ID, 1, 5));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> flush = executor.submit(() -> writeBehind.flush());
+            assertTrue(flushStarted.await(5, TimeUnit.SECONDS));
+            Future<Boolean> recount = executor.submit(() -> writeBehind.recountRating(OK_ID));
+            Thread.sleep(100);
+            assertFalse(recount.isDone());
+            flushReleased.countDown();
+
+            assertEquals(Integer.valueOf(1), flush.get(5, TimeUnit.SECONDS));
+            assertTrue(recount.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(Arrays.asList("update", "recount"), calls);
+    }
+
+    @Test
+    public void recountWaitsForTransaction() throws Exception {
+        Long oldCount = movieService.getMovie(OK_ID).getReviewCount();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> recount = new TransactionTemplate(transactionManager).execute(status -> {
+                assertTrue(ratingUpdateService.addReviews(OK_ID, 1, 5));
+                Future<Boolean> started = executor.submit(() -> ratingUpdateService.recountRating(OK_ID));
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                // movie stays locked till the transaction which changed its rating completes
+                assertFalse(started.isDone());
+                status.setRollbackOnly();
+                return started;
+            });
+            assertTrue(recount.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(oldCount, movieService.getMovie(OK_ID).getReviewCount());
+    }
+
+    @Test
+    public void writeBehindQueuedAfterCommit() {
+        RatingUpdateService writeBehind = writeBehindService(10);
+        new TransactionTemplate(transactionManager).execute(status -> {
+            assertTrue(writeBehind.addReviews(OK_ID, 1, 5));
+            assertEquals(Long.valueOf(0), writeBehind.getStats().get("pendingMovies"));
+            status.setRollbackOnly();
+            return null;
+        });
+        // change of rolled back transaction is never queued
+        assertEquals(Long.valueOf(0), writeBehind.getStats().get("pendingMovies"));
+
+        new TransactionTemplate(transactionManager).execute(status -> writeBehind.addReviews(OK_ID, 1, 5));
+        assertEquals(Long.valueOf(1), writeBehind.getStats().get("pendingMovies"));
+        writeBehind.addReviews(OK_ID, -1, -5);
+        assertEquals(Long.valueOf(0), writeBehind.getStats().get("pendingReviews"));
+    }
+
+    private RatingUpdateService writeBehindService(int maxPendingMovies) {
+        return writeBehindService(movieService, maxPendingMovies);
+    }
+
+    private static RatingUpdateService writeBehindService(MovieService movieService, int maxPendingMovies) {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("rating.writeBehind.enabled", "true");
+        environment.setProperty("rating.writeBehind.maxPendingMovies", String.valueOf(maxPendingMovies));
+        return new RatingUpdateService(movieService, environment);
+    }
+
+}
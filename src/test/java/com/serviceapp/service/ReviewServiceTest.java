@@ -1,5 +1,7 @@
 package com.serviceapp.service;
 
+import com.serviceapp.entity.Movie;
+import com.serviceapp.entity.Review;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,6 +10,8 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import resources.TestConfiguration;
 
+import java.sql.Date;
+
 import static org.junit.Assert.*;
 
 /**
@@ -25,11 +29,38 @@ public class ReviewServiceTest {
     @Autowired
     private ReviewService reviewService;
 
+    @Autowired
+    private MovieService movieService;
+
     @Test
     public void createReviewNull() throws Exception {
         assertNull(reviewService.createReview(null));
     }
 
+    @Test
+    public void createRatedReview() throws Exception {
+        assertNull(reviewService.createRatedReview(null));
+        Movie movie = movieService.getMovie(OK_ID);
+
+        Review created = reviewService.createRatedReview(review(OK_ID, 7));
+        assertNotNull(created);
+        Movie rated = movieService.getMovie(OK_ID);
+        assertEquals(Long.valueOf(movie.getReviewCount() + 1), rated.getReviewCount());
+        assertEquals(Long.valueOf(movie.getRatingSum() + 7), rated.getRatingSum());
+
+        reviewService.deleteRatedReview(created);
+        assertFalse(reviewService.reviewExists(created.getId()));
+        assertEquals(movie.getReviewCount(), movieService.getMovie(OK_ID).getReviewCount());
+        assertEquals(movie.getRatingSum(), movieService.getMovie(OK_ID).getRatingSum());
+    }
+
+    @Test
+    public void createRatedReviewNoMovie() throws Exception {
+        // review isn't saved when rating of its movie can't be updated
+        assertNull(reviewService.createRatedReview(review(Long.MAX_VALUE, 7)));
+        assertTrue(reviewService.getReviewsByMovieId(Long.MAX_VALUE).isEmpty());
+    }
+
     @Test
     public void getReview() throws Exception {
         // here id is 2L because there's no 1L
@@ -47,6 +78,7 @@ public class ReviewServiceTest {
     @Test
     public void deleteReview() throws Exception {
         reviewService.deleteReview(null);
+        reviewService.deleteRatedReview(null);
     }
 
     @Test
@@ -64,4 +96,15 @@ public class ReviewServiceTest {
         assertFalse(reviewService.reviewExists(NEGATIVE_ID));
     }
 
-}
\ No newline at end of file
+    private static Review review(Long movieId, int rating) {
+        Review review = new Review();
+        review.setMovieId(movieId);
+        review.setUserId(OK_ID);
+        review.setTitle("title");
+        review.setReviewText("texttext");
+        review.setRating(rating);
+        review.setPostDate(new Date(new java.util.Date().getTime()));
+        return review;
+    }
+
+}
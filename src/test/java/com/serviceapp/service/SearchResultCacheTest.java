@@ -0,0 +1,118 @@
+package com.serviceapp.service;
+
+import com.serviceapp.entity.Movie;
+import com.serviceapp.entity.dto.MovieShortDto;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import resources.TestConfiguration;
+import resources.TestMovies;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for <code>SearchResultCache</code> class
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebAppConfiguration
+@ContextConfiguration(classes = TestConfiguration.class)
+public class SearchResultCacheTest {
+
+    private static final PageRequest PAGE_REQUEST = new PageRequest(0, 5);
+    private static final Page<MovieShortDto> PAGE = new PageImpl<>(new ArrayList<>());
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Test
+    public void leastRecentlyUsedEvicted() {
+        SearchResultCache cache = cache(2, 60000);
+        cache.put("first", PAGE_REQUEST, PAGE, cache.version());
+        cache.put("second", PAGE_REQUEST, PAGE, cache.version());
+        assertSame(PAGE, cache.get("FIRST", PAGE_REQUEST));
+        cache.put("third", PAGE_REQUEST, PAGE, cache.version());
+
+        assertNull(cache.get("second", PAGE_REQUEST));
+        assertSame(PAGE, cache.get("first", PAGE_REQUEST));
+        assertSame(PAGE, cache.get("third", PAGE_REQUEST));
+        assertNull(cache.get("third", new PageRequest(1, 5)));
+        assertEquals(Long.valueOf(1), cache.getStats().get("evictions"));
+        assertEquals(Long.valueOf(3), cache.getStats().get("hits"));
+        assertEquals(Long.valueOf(2), cache.getStats().get("misses"));
+    }
+
+    @Test
+    public void expired() throws InterruptedException {
+        SearchResultCache cache = cache(10, 20);
+        cache.put("term", PAGE_REQUEST, PAGE, cache.version());
+        assertSame(PAGE, cache.get("term", PAGE_REQUEST));
+        Thread.sleep(50);
+        assertNull(cache.get("term", PAGE_REQUEST));
+        assertEquals(Long.valueOf(1), cache.getStats().get("expirations"));
+    }
+
+    @Test
+    public void invalidate() {
+        SearchResultCache cache = cache(10, 60000);
+        cache.put("star", PAGE_REQUEST, PAGE, cache.version());
+        cache.put("wars", PAGE_REQUEST, PAGE, cache.version());
+        cache.put("trek", PAGE_REQUEST, PAGE, cache.version());
+        long version = cache.version();
+
+        cache.invalidate(null, "Star Wars: Episode IV");
+        assertNull(cache.get("star", PAGE_REQUEST));
+        assertNull(cache.get("wars", PAGE_REQUEST));
+        assertSame(PAGE, cache.get("trek", PAGE_REQUEST));
+
+        // result computed before invalidation is not cached
+        cache.put("star", PAGE_REQUEST, PAGE, version);
+        assertNull(cache.get("star", PAGE_REQUEST));
+    }
+
+    @Test
+    public void findMovieShortByTitleCachedUntilChanged() {
+        String title = "Cached" + Math.abs(new Random().nextInt());
+        Movie movie = TestMovies.movie(title);
+        Movie created = movieService.createMovie(movie);
+
+        Page<MovieShortDto> found = movieService.findMovieShortByTitle(title, PAGE_REQUEST);
+        assertSame(found, movieService.findMovieShortByTitle(title.toUpperCase(), PAGE_REQUEST));
+
+        movieService.updateRating(created.getId(), 1, 8);
+        found = movieService.findMovieShortByTitle(title, PAGE_REQUEST);
+        assertEquals(Double.valueOf(8), found.getContent().get(0).getRating());
+
+        created.setMovieName("Renamed");
+        movieService.updateMovie(created);
+        assertEquals(0, movieService.findMovieShortByTitle(title, PAGE_REQUEST).getTotalElements());
+
+        created.setMovieName(title);
+        movieService.updateMovie(created);
+        assertEquals(1, movieService.findMovieShortByTitle(title, PAGE_REQUEST).getTotalElements());
+
+        movieService.deleteMovie(created);
+        assertEquals(0, movieService.findMovieShortByTitle(title, PAGE_REQUEST).getTotalElements());
+        assertTrue(searchResultCache.getStats().get("invalidations") > 0);
+    }
+
+    private static SearchResultCache cache(int size, long ttl) {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("search.cache.size", String.valueOf(size));
+        environment.setProperty("search.cache.ttl", String.valueOf(ttl));
+        return new SearchResultCache(environment);
+    }
+
+}
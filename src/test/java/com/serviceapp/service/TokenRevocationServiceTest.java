@@ -0,0 +1,258 @@
+package com.serviceapp.service;
+
+import com.serviceapp.entity.TokenRevocation;
+import com.serviceapp.entity.User;
+import com.serviceapp.repository.TokenRevocationRepository;
+import com.serviceapp.security.CredentialCache;
+import com.serviceapp.security.securityEntity.UserDetailsImpl;
+import com.serviceapp.util.BloomFilter;
+import com.serviceapp.util.ReadWriteRoutingDataSource;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import resources.TestConfiguration;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for <code>TokenRevocationService</code> class
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@WebAppConfiguration
+@ContextConfiguration(classes = TestConfiguration.class)
+public class TokenRevocationServiceTest {
+
+    @Autowired
+    private TokenRevocationService revocationService;
+
+    @Autowired
+    private TokenRevocationRepository revocationRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    public void revoke() throws InterruptedException {
+        long userId = randomUserId();
+        long issuedBefore = System.currentTimeMillis() - 1000;
+        assertFalse(revocationService.isRevoked(userId, issuedBefore));
+
+        revocationService.revoke(userId);
+        Thread.sleep(10);
+        assertTrue(revocationService.isRevoked(userId, issuedBefore));
+        // tokens issued after revocation are valid
+        assertFalse(revocationService.isRevoked(userId, System.currentTimeMillis()));
+        assertFalse(revocationService.isRevoked(userId + 1, issuedBefore));
+        assertFalse(revocationService.isRevoked(null, issuedBefore));
+    }
+
+    @Test
+    public void refreshReadsNewRevocations() {
+        // revocation made on another node
+        long userId = randomUserId();
+        long issuedBefore = System.currentTimeMillis() - 1000;
+        revocationRepository.saveAndFlush(new TokenRevocation(userId, new Timestamp(System.currentTimeMillis())));
+        revocationService.refresh();
+        assertTrue(revocationService.isRevoked(userId, issuedBefore));
+    }
+
+    @Test
+    public void refreshReadsLateRevocations() {
+        // revocation made on another node: stamped before the last refresh and committed after it, with id lower
+        // than ids of revocations already read
+        long userId = randomUserId();
+        long stamped = System.currentTimeMillis() - 10000;
+        revocationRepository.saveAndFlush(new TokenRevocation(randomUserId(), new Timestamp(stamped)));
+        revocationService.refresh();
+        new JdbcTemplate(dataSource).update("INSERT INTO TokenRevocation (id, userID, revokedbefore) VALUES (?, ?, ?)",
+                -userId, userId, new Timestamp(stamped));
+        revocationService.refresh();
+        assertTrue(revocationService.isRevoked(userId, stamped - 1000));
+
+        // revocations read again change nothing
+        long revokedUsers = revocationService.getStats().get("revokedUsers");
+        revocationService.refresh();
+        assertEquals(revokedUsers, (long) revocationService.getStats().get("revokedUsers"));
+        assertTrue(revocationService.isRevoked(userId, stamped - 1000));
+    }
+
+    @Test
+    public void refreshEvictsCachedUser() {
+        String name = "Evict" + Math.abs(new Random().nextInt());
+        User user = new User();
+        user.setName(name.substring(0, Math.min(name.length(), 20)));
+        user.setLogin(name.toLowerCase() + "@mail.com");
+        user.setPassword("password hash");
+        user.setAdmin(false);
+        user.setBanned(false);
+        Long userId = userService.createUser(user).getId();
+        userService.getUser(userId);
+        assertTrue(entityManagerFactory.getCache().contains(User.class, userId));
+
+        // user banned on another node
+        revocationRepository.saveAndFlush(new TokenRevocation(userId, new Timestamp(System.currentTimeMillis())));
+        revocationService.refresh();
+        assertFalse(entityManagerFactory.getCache().contains(User.class, userId));
+
+        // revocation read again doesn't evict user
+        userService.getUser(userId);
+        revocationService.refresh();
+        assertTrue(entityManagerFactory.getCache().contains(User.class, userId));
+        userService.deleteUser(userService.getUser(userId));
+    }
+
+    @Test
+    public void refreshInvalidatesCredentials() {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("credentials.cache.enabled", "true");
+        CredentialCache credentialCache = new CredentialCache(environment);
+        TokenRevocationService service = new TokenRevocationService(revocationRepository, entityManagerFactory,
+                credentialCache, new MockEnvironment());
+        service.refresh();
+        long userId = randomUserId();
+        UserDetailsImpl principal = new UserDetailsImpl(userId, "login", "login", "hash", Collections.emptyList(),
+                false);
+        credentialCache.put("login", "password",
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()),
+                credentialCache.version());
+        assertNotNull(credentialCache.get("login", "password"));
+
+        // password changed on another node
+        revocationRepository.saveAndFlush(new TokenRevocation(userId, new Timestamp(System.currentTimeMillis())));
+        service.refresh();
+        assertNull(credentialCache.get("login", "password"));
+    }
+
+    @Test
+    public void refreshReadsPrimary() {
+        // revocation committed on primary, not yet replicated
+        long userId = randomUserId();
+        long issuedBefore = System.currentTimeMillis() - 1000;
+        new JdbcTemplate(RoutingConfiguration.PRIMARY).update(
+                "INSERT INTO TokenRevocation (id, userID, revokedbefore) VALUES (?, ?, ?)",
+                userId, userId, new Timestamp(System.currentTimeMillis()));
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(RoutingConfiguration.class);
+        try {
+            TokenRevocationService service = new TokenRevocationService(
+                    context.getBean(TokenRevocationRepository.class), context.getBean(EntityManagerFactory.class),
+                    new CredentialCache(new MockEnvironment()), new MockEnvironment());
+            service.refresh();
+            assertTrue(service.isRevoked(userId, issuedBefore));
+        } finally {
+            context.close();
+        }
+    }
+
+    @Test
+    public void refreshSkipsExpiredRevocations() {
+        long userId = randomUserId();
+        revocationRepository.saveAndFlush(new TokenRevocation(userId, new Timestamp(1000)));
+        revocationService.refresh();
+        assertFalse(revocationService.isRevoked(userId, 0));
+    }
+
+    @Test
+    public void bloomFilter() {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        for (long i = 0; i < 1000; i++) {
+            filter.add(i * 7);
+        }
+        int falsePositives = 0;
+        for (long i = 0; i < 1000; i++) {
+            assertTrue(filter.mightContain(i * 7));
+            if (filter.mightContain(-i - 1)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 50);
+    }
+
+    private static long randomUserId() {
+        return Math.abs(new Random().nextInt()) + 1000000L;
+    }
+
+    /**
+     * Token revocation repository over routing data source with embedded primary and replica databases, configured
+     * the way application uses it. Not a <code>@Configuration</code>, so the test context doesn't pick it up
+     */
+    @EnableTransactionManagement
+    @EnableJpaRepositories(basePackageClasses = TokenRevocationRepository.class,
+            includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE,
+                    classes = TokenRevocationRepository.class))
+    static class RoutingConfiguration {
+
+        private static final EmbeddedDatabase PRIMARY = database("primary");
+        private static final EmbeddedDatabase REPLICA = database("replica");
+
+        @Bean
+        public DataSource dataSource() {
+            return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(PRIMARY,
+                    Collections.singletonList(REPLICA), ReadWriteRoutingDataSource.Selection.ROUND_ROBIN, false));
+        }
+
+        @Bean
+        public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
+            Properties properties = new Properties();
+            properties.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+            properties.put("hibernate.cache.use_second_level_cache", "false");
+
+            LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+            factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+            factoryBean.setPackagesToScan(TokenRevocation.class.getPackage().getName());
+            factoryBean.setDataSource(dataSource);
+            factoryBean.setJpaProperties(properties);
+            return factoryBean;
+        }
+
+        @Bean
+        public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+            return new JpaTransactionManager(entityManagerFactory);
+        }
+
+        private static EmbeddedDatabase database(String name) {
+            EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                    .setType(EmbeddedDatabaseType.H2)
+                    .setName("revocation_" + name)
+                    .build();
+            new JdbcTemplate(database).execute(
+                    "CREATE TABLE TokenRevocation (id BIGINT PRIMARY KEY, userID BIGINT, revokedbefore TIMESTAMP)");
+            return database;
+        }
+
+    }
+
+}
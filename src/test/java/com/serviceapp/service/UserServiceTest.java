@@ -1,5 +1,6 @@
 package com.serviceapp.service;
 
+import com.serviceapp.entity.User;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,6 +9,8 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import resources.TestConfiguration;
 
+import java.util.Random;
+
 import static org.junit.Assert.*;
 
 /**
@@ -25,6 +28,9 @@ public class UserServiceTest {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private TokenRevocationService revocationService;
+
     @Test
     public void createUser() throws Exception {
         assertNull(userService.createUser(null));
@@ -35,11 +41,33 @@ public class UserServiceTest {
         assertNull(userService.updateUser(null));
     }
 
+    @Test
+    public void updateUserRevokesTokensOnPasswordChange() throws Exception {
+        User user = newUser();
+        long issuedBefore = System.currentTimeMillis() - 1000;
+        user.setName("Renamed");
+        userService.updateUser(user);
+        assertFalse(revocationService.isRevoked(user.getId(), issuedBefore));
+
+        user.setPassword("changed password hash");
+        userService.updateUser(user);
+        assertTrue(revocationService.isRevoked(user.getId(), issuedBefore));
+        userService.deleteUser(user);
+    }
+
     @Test
     public void deleteUser() throws Exception {
         userService.deleteUser(null);
     }
 
+    @Test
+    public void deleteUserRevokesTokens() throws Exception {
+        User user = newUser();
+        long issuedBefore = System.currentTimeMillis() - 1000;
+        userService.deleteUser(user);
+        assertTrue(revocationService.isRevoked(user.getId(), issuedBefore));
+    }
+
     @Test
     public void getUser() throws Exception {
         assertNotNull(userService.getUser(OK_ID));
@@ -72,6 +100,13 @@ public class UserServiceTest {
         assertTrue(userService.getAllUsersPaged(null).getNumberOfElements() == 10);
     }
 
+    @Test
+    public void getUsersPageAfter() throws Exception {
+        assertEquals(10, userService.getUsersPageAfter("login", null, null, null, 10).size());
+        // sorting by nullable column is not supported
+        assertTrue(userService.getUsersPageAfter("admin", null, null, null, 10).isEmpty());
+    }
+
     @Test
     public void getUserByLogin() throws Exception {
         assertNull(userService.getUserByLogin(""));
@@ -82,4 +117,15 @@ public class UserServiceTest {
         assertNull(userService.getUserByLogin(" "));
     }
 
-}
\ No newline at end of file
+    private User newUser() {
+        String name = "Revoke" + Math.abs(new Random().nextInt());
+        User user = new User();
+        user.setName(name.substring(0, Math.min(name.length(), 20)));
+        user.setLogin(name.toLowerCase() + "@mail.com");
+        user.setPassword("password hash");
+        user.setAdmin(false);
+        user.setBanned(false);
+        return userService.createUser(user);
+    }
+
+}
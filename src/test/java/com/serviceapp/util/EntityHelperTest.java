@@ -1,13 +1,30 @@
 package com.serviceapp.util;
 
+import com.serviceapp.entity.Movie;
+import com.serviceapp.entity.Review;
+import com.serviceapp.entity.User;
+import com.serviceapp.entity.util.MovieContainer;
+import com.serviceapp.service.MovieService;
+import com.serviceapp.service.ReviewService;
+import com.serviceapp.service.UserService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import resources.TestConfiguration;
+import resources.TestMovies;
 
+import javax.persistence.EntityManagerFactory;
+import java.sql.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Tests for entity converters
@@ -17,6 +34,17 @@ import static org.junit.Assert.assertNull;
 @ContextConfiguration(classes = TestConfiguration.class)
 public class EntityHelperTest {
 
+    private static final int REVIEWS_COUNT = 50;
+
+    @Autowired
+    private MovieService movieService;
+    @Autowired
+    private ReviewService reviewService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @Test
     public void dtoToUser() throws Exception {
         assertNull(EntityHelper.dtoToUser(null));
@@ -32,4 +60,41 @@ public class EntityHelperTest {
         assertNull(EntityHelper.userToDtoShort(null));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void completeMovieQueryCount() throws Exception {
+        // number of queries must not depend on number of reviews and their authors
+        Movie movie = TestMovies.movie("Query count");
+        Long movieId = movieService.createMovie(movie).getId();
+        List<User> authors = userService.getAllUsers();
+
+        postReviews(movieId, authors, 1);
+        long singleReviewQueries = countCompleteMovieQueries(movieId);
+        postReviews(movieId, authors, REVIEWS_COUNT);
+        long manyReviewsQueries = countCompleteMovieQueries(movieId);
+
+        assertEquals(singleReviewQueries, manyReviewsQueries);
+    }
+
+    private long countCompleteMovieQueries(Long movieId) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        MovieContainer container = EntityHelper.completeMovie(movieId, movieService, reviewService, userService);
+        assertEquals(container.getReviews().size(), container.getUsers().size());
+        assertTrue(container.getUsers().stream().allMatch(user -> user.getLogin() == null));
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void postReviews(Long movieId, List<User> authors, int count) {
+        for (int i = 0; i < count; i++) {
+            Review review = new Review();
+            review.setMovieId(movieId);
+            review.setUserId(authors.get(i % authors.size()).getId());
+            review.setTitle("title");
+            review.setReviewText("texttext");
+            review.setRating(i % 10 + 1);
+            review.setPostDate(new Date(new java.util.Date().getTime()));
+            reviewService.createReview(review);
+        }
+    }
+
+}
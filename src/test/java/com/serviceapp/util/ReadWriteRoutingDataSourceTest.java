@@ -0,0 +1,341 @@
+package com.serviceapp.util;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.Cacheable;
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for <code>ReadWriteRoutingDataSource</code> and <code>ReadWriteRoutingJpaDialect</code> classes. Primary and
+ * replicas are separate embedded databases, each one knows its own name
+ */
+public class ReadWriteRoutingDataSourceTest {
+
+    private static final String NAME_QUERY = "SELECT name FROM node";
+    private static final Long NODE_ID = 1L;
+    private static EmbeddedDatabase primary;
+    private static EmbeddedDatabase firstReplica;
+    private static EmbeddedDatabase secondReplica;
+
+    @BeforeClass
+    public static void createDatabases() {
+        primary = database("primary");
+        firstReplica = database("replica1");
+        secondReplica = database("replica2");
+    }
+
+    @AfterClass
+    public static void shutdownDatabases() {
+        primary.shutdown();
+        firstReplica.shutdown();
+        secondReplica.shutdown();
+    }
+
+    @After
+    public void endRequest() {
+        ReadWriteRoutingDataSource.endRequest();
+    }
+
+    @Test
+    public void readOnlyToReplicas() {
+        Routing routing = new Routing(ReadWriteRoutingDataSource.Selection.ROUND_ROBIN, true);
+
+        assertEquals("primary", routing.write());
+        assertEquals("primary", routing.jdbcTemplate.queryForObject(NAME_QUERY, String.class));
+        List<String> reads = Arrays.asList(routing.read(), routing.read(), routing.read(), routing.read());
+        assertEquals(Arrays.asList("replica1", "replica2", "replica1", "replica2"), reads);
+    }
+
+    @Test
+    public void noReplicas() {
+        Routing routing = new Routing(Collections.emptyList(), ReadWriteRoutingDataSource.Selection.ROUND_ROBIN, true);
+        assertEquals("primary", routing.read());
+        assertEquals("primary", routing.write());
+    }
+
+    @Test
+    public void leastBusy() {
+        Routing routing = new Routing(ReadWriteRoutingDataSource.Selection.LEAST_BUSY, true);
+        assertEquals("replica1", routing.read());
+        assertEquals("replica2", routing.read());
+
+        routing.transactionTemplate.setReadOnly(true);
+        routing.transactionTemplate.execute(status -> {
+            // first replica stays busy while this transaction is open
+            String busy = routing.jdbcTemplate.queryForObject(NAME_QUERY, String.class);
+            List<String> reads = Arrays.asList(routing.read(), routing.read(), routing.read());
+            assertEquals("replica1", busy);
+            assertEquals(Arrays.asList("replica2", "replica2", "replica2"), reads);
+            assertArrayEquals(new int[]{1, 0}, routing.dataSource.getBusyConnections());
+            return null;
+        });
+        assertArrayEquals(new int[]{0, 0}, routing.dataSource.getBusyConnections());
+    }
+
+    @Test
+    public void readYourWritesInRequest() {
+        Routing routing = new Routing(ReadWriteRoutingDataSource.Selection.ROUND_ROBIN, true);
+        ReadWriteRoutingDataSource.beginRequest();
+        assertEquals("replica1", routing.read());
+        routing.write();
+        assertEquals("primary", routing.read());
+        assertEquals("primary", routing.read());
+
+        ReadWriteRoutingDataSource.endRequest();
+        assertEquals("replica2", routing.read());
+
+        // writes outside of requests don't affect reads
+        routing.write();
+        assertEquals("replica1", routing.read());
+    }
+
+    @Test
+    public void readYourWritesDisabled() {
+        Routing routing = new Routing(ReadWriteRoutingDataSource.Selection.ROUND_ROBIN, false);
+        ReadWriteRoutingDataSource.beginRequest();
+        routing.write();
+        assertEquals("replica1", routing.read());
+    }
+
+    @Test
+    public void connectionClosedOnce() {
+        Routing routing = new Routing(ReadWriteRoutingDataSource.Selection.LEAST_BUSY, true);
+        routing.transactionTemplate.setReadOnly(true);
+        routing.transactionTemplate.execute(status -> {
+            try {
+                Connection connection = routing.dataSource.getConnection();
+                connection.close();
+                connection.close();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return null;
+        });
+        assertArrayEquals(new int[]{0, 0}, routing.dataSource.getBusyConnections());
+    }
+
+    @Test
+    public void jpaReadOnlyToReplicas() {
+        JpaRouting routing = new JpaRouting(true);
+        try {
+            assertEquals("replica1", routing.read());
+            assertEquals("replica2", routing.read());
+            assertFalse(routing.cached());
+
+            assertEquals("primary", routing.write());
+            assertTrue(routing.cached());
+            // cached entity is still read
+            assertEquals("primary", routing.read());
+            assertArrayEquals(new int[]{0, 0}, routing.dataSource.getBusyConnections());
+        } finally {
+            routing.close();
+        }
+    }
+
+    @Test
+    public void jpaReadYourWritesInRequest() {
+        JpaRouting routing = new JpaRouting(true);
+        try {
+            ReadWriteRoutingDataSource.beginRequest();
+            assertEquals("replica1", routing.read());
+            assertEquals("primary", routing.write());
+            routing.entityManagerFactory.getCache().evictAll();
+            assertEquals("primary", routing.read());
+            assertTrue(routing.cached());
+
+            ReadWriteRoutingDataSource.endRequest();
+            routing.entityManagerFactory.getCache().evictAll();
+            assertEquals("replica2", routing.read());
+            assertFalse(routing.cached());
+        } finally {
+            routing.close();
+        }
+    }
+
+    @Test
+    public void jpaReadYourWritesDisabled() {
+        JpaRouting routing = new JpaRouting(false);
+        try {
+            ReadWriteRoutingDataSource.beginRequest();
+            routing.write();
+            routing.entityManagerFactory.getCache().evictAll();
+            assertEquals("replica1", routing.read());
+            assertFalse(routing.cached());
+        } finally {
+            routing.close();
+        }
+    }
+
+    private static EmbeddedDatabase database(String name) {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .setName("routing_" + name)
+                .build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE node (id BIGINT PRIMARY KEY, name VARCHAR(20))");
+        jdbcTemplate.update("INSERT INTO node VALUES (?, ?)", NODE_ID, name);
+        return database;
+    }
+
+    /**
+     * Routing data source with transaction manager and templates, configured the way application uses it
+     */
+    private static class Routing {
+
+        private final ReadWriteRoutingDataSource dataSource;
+        private final JdbcTemplate jdbcTemplate;
+        private final TransactionTemplate transactionTemplate;
+
+        private Routing(ReadWriteRoutingDataSource.Selection selection, boolean readYourWrites) {
+            this(Arrays.asList(firstReplica, secondReplica), selection, readYourWrites);
+        }
+
+        private Routing(List<DataSource> replicas, ReadWriteRoutingDataSource.Selection selection,
+                        boolean readYourWrites) {
+            dataSource = new ReadWriteRoutingDataSource(primary, replicas, selection, readYourWrites);
+            DataSource lazyDataSource = new LazyConnectionDataSourceProxy(dataSource);
+            jdbcTemplate = new JdbcTemplate(lazyDataSource);
+            transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(lazyDataSource));
+        }
+
+        /**
+         * @return name of database read in new read-only transaction
+         */
+        private String read() {
+            TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+            readOnly.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            readOnly.setReadOnly(true);
+            return readOnly.execute(status -> jdbcTemplate.queryForObject(NAME_QUERY, String.class));
+        }
+
+        /**
+         * @return name of database written in read-write transaction
+         */
+        private String write() {
+            return transactionTemplate.execute(status -> {
+                jdbcTemplate.update("UPDATE node SET name = name");
+                return jdbcTemplate.queryForObject(NAME_QUERY, String.class);
+            });
+        }
+
+    }
+
+    /**
+     * Routing data source with JPA transaction manager and Hibernate entity manager factory caching nodes, configured
+     * the way application uses it
+     */
+    private static class JpaRouting {
+
+        private final ReadWriteRoutingDataSource dataSource;
+        private final LocalContainerEntityManagerFactoryBean factoryBean;
+        private final EntityManagerFactory entityManagerFactory;
+        private final TransactionTemplate transactionTemplate;
+
+        private JpaRouting(boolean readYourWrites) {
+            dataSource = new ReadWriteRoutingDataSource(primary, Arrays.asList(firstReplica, secondReplica),
+                    ReadWriteRoutingDataSource.Selection.ROUND_ROBIN, readYourWrites);
+            DataSource lazyDataSource = new LazyConnectionDataSourceProxy(dataSource);
+
+            Properties properties = new Properties();
+            properties.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+            properties.put("hibernate.cache.use_second_level_cache", "true");
+            properties.put("hibernate.cache.region.factory_class", "org.hibernate.cache.jcache.JCacheRegionFactory");
+            properties.put("hibernate.javax.cache.provider", "org.ehcache.jsr107.EhcacheCachingProvider");
+
+            factoryBean = new LocalContainerEntityManagerFactoryBean();
+            factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+            factoryBean.setJpaDialect(new ReadWriteRoutingJpaDialect(lazyDataSource));
+            factoryBean.setPackagesToScan(Node.class.getPackage().getName());
+            factoryBean.setDataSource(lazyDataSource);
+            factoryBean.setJpaProperties(properties);
+            factoryBean.afterPropertiesSet();
+            entityManagerFactory = factoryBean.getObject();
+            transactionTemplate = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+        }
+
+        /**
+         * @return name of node found in new read-only transaction
+         */
+        private String read() {
+            TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+            readOnly.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            readOnly.setReadOnly(true);
+            return readOnly.execute(status -> entityManager().find(Node.class, NODE_ID).getName());
+        }
+
+        /**
+         * @return name of node found in read-write transaction. Native update would evict all nodes from cache
+         */
+        private String write() {
+            return transactionTemplate.execute(status -> entityManager().find(Node.class, NODE_ID).getName());
+        }
+
+        /**
+         * @return <code>true</code> if node is in second level cache
+         */
+        private boolean cached() {
+            return entityManagerFactory.getCache().contains(Node.class, NODE_ID);
+        }
+
+        private EntityManager entityManager() {
+            return EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+        }
+
+        private void close() {
+            factoryBean.destroy();
+        }
+
+    }
+
+    @Entity
+    @Cacheable
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @Table(name = "node")
+    public static class Node {
+
+        @Id
+        private Long id;
+        private String name;
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+}
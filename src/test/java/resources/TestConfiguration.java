@@ -3,6 +3,7 @@ package resources;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.orm.jpa.JpaTransactionManager;
@@ -12,6 +13,7 @@ import org.springframework.transaction.PlatformTransactionManager;
 
 import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
+import java.io.IOException;
 import java.util.Properties;
 
 /**
@@ -31,6 +33,20 @@ public class TestConfiguration {
 
     private static final String HIBERNATE_DIALECT_PROP = "hibernate.dialect";
     private static final String HIBERNATE_DIALECT_VALUE = "org.hibernate.dialect.MySQLDialect";
+    private static final String HIBERNATE_STATISTICS_PROP = "hibernate.generate_statistics";
+    private static final String HIBERNATE_STATISTICS_VALUE = "true";
+    private static final String HIBERNATE_L2_CACHE_PROP = "hibernate.cache.use_second_level_cache";
+    private static final String HIBERNATE_L2_CACHE_VALUE = "true";
+    private static final String HIBERNATE_CACHE_FACTORY_PROP = "hibernate.cache.region.factory_class";
+    private static final String HIBERNATE_CACHE_FACTORY_VALUE = "org.hibernate.cache.jcache.JCacheRegionFactory";
+    private static final String HIBERNATE_CACHE_PROVIDER_PROP = "hibernate.javax.cache.provider";
+    private static final String HIBERNATE_CACHE_PROVIDER_VALUE = "org.ehcache.jsr107.EhcacheCachingProvider";
+    private static final String HIBERNATE_CACHE_URI_PROP = "hibernate.javax.cache.uri";
+    private static final String CACHE_CONFIG = "ehcache.xml";
+    private static final String HIBERNATE_BATCH_SIZE_PROP = "hibernate.jdbc.batch_size";
+    private static final String HIBERNATE_BATCH_SIZE_VALUE = "50";
+    private static final String HIBERNATE_ORDER_INSERTS_PROP = "hibernate.order_inserts";
+    private static final String HIBERNATE_ORDER_INSERTS_VALUE = "true";
 
     @Bean
     public DataSource dataSource() {
@@ -66,6 +82,17 @@ public class TestConfiguration {
     private Properties hibernateProps() {
         Properties properties = new Properties();
         properties.put(HIBERNATE_DIALECT_PROP, HIBERNATE_DIALECT_VALUE);
+        properties.put(HIBERNATE_STATISTICS_PROP, HIBERNATE_STATISTICS_VALUE);
+        properties.put(HIBERNATE_BATCH_SIZE_PROP, HIBERNATE_BATCH_SIZE_VALUE);
+        properties.put(HIBERNATE_ORDER_INSERTS_PROP, HIBERNATE_ORDER_INSERTS_VALUE);
+        properties.put(HIBERNATE_L2_CACHE_PROP, HIBERNATE_L2_CACHE_VALUE);
+        properties.put(HIBERNATE_CACHE_FACTORY_PROP, HIBERNATE_CACHE_FACTORY_VALUE);
+        properties.put(HIBERNATE_CACHE_PROVIDER_PROP, HIBERNATE_CACHE_PROVIDER_VALUE);
+        try {
+            properties.put(HIBERNATE_CACHE_URI_PROP, new ClassPathResource(CACHE_CONFIG).getURI().toString());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
         return properties;
     }
 
@@ -0,0 +1,33 @@
+package resources;
+
+import com.serviceapp.entity.Movie;
+
+import java.sql.Date;
+
+/**
+ * Builds movies for tests
+ */
+public final class TestMovies {
+
+    private TestMovies() {
+    }
+
+    /**
+     * Creates valid unsaved movie with zero rating
+     *
+     * @param title title of movie
+     * @return new <code>Movie</code> object without id
+     */
+    public static Movie movie(String title) {
+        Movie movie = new Movie();
+        movie.setMovieName(title);
+        movie.setDirector("director");
+        movie.setReleaseDate(new Date(new java.util.Date().getTime()));
+        movie.setPosterURL("https://upload.wikimedia.org/wikipedia/ru/2/21/Warcraft_poster.jpg");
+        movie.setTrailerURL("https://www.youtube.com/embed/RhFMIRuHAL4");
+        movie.setRating(0d);
+        movie.setDescription("description");
+        return movie;
+    }
+
+}